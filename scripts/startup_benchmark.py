@@ -0,0 +1,139 @@
+#!/usr/bin/env python3
+"""
+Startup Benchmark - Measure time-to-prompt and resident memory of the POPM exam shell
+"""
+
+import argparse
+import json
+import os
+import pty
+import select
+import shlex
+import statistics
+import subprocess
+import sys
+import tempfile
+import time
+from pathlib import Path
+
+PROJECT_DIR = Path(__file__).resolve().parent.parent
+JAR = PROJECT_DIR / "target" / "safe-popm-exam-0.0.1-SNAPSHOT.jar"
+CDS_JAR = PROJECT_DIR / "target" / "cds" / "safe-popm-exam-0.0.1-SNAPSHOT-cds.jar"
+CDS_ARCHIVE = PROJECT_DIR / "target" / "cds" / "safe-popm-exam.jsa"
+# JLine switches on bracketed paste just before it draws the prompt and reads a line
+PROMPT_MARKERS = (b"popm-exam:>", b"\x1b[?2004h")
+
+
+def default_variants():
+    """
+    The variants to compare when none are given: the executable jar, and the
+    class-data-sharing build from the 'cds' Maven profile if it has been built.
+    """
+    variants = {"jar": f"java -jar {JAR}"}
+    if CDS_ARCHIVE.exists():
+        variants["cds"] = f"java -XX:SharedArchiveFile={CDS_ARCHIVE} -jar {CDS_JAR}"
+    return variants
+
+
+def resident_memory_kb(pid):
+    """
+    Resident set size of a process in KB, from /proc on Linux or ps elsewhere.
+    """
+    status = Path(f"/proc/{pid}/status")
+    if status.exists():
+        for line in status.read_text().splitlines():
+            if line.startswith("VmRSS:"):
+                return int(line.split()[1])
+    output = subprocess.run(["ps", "-o", "rss=", "-p", str(pid)], capture_output=True, text=True).stdout
+    return int(output.strip() or 0)
+
+
+def measure(command, timeout):
+    """
+    Start the shell on a pseudo-terminal in a scratch directory, so every run starts from an
+    empty question bank, and wait for the prompt.
+
+    Returns:
+        tuple: (milliseconds until the prompt appeared, resident memory in KB at that point)
+    """
+    env = dict(os.environ)
+    env.setdefault("ANTHROPIC_API_KEY", "startup-benchmark")
+    with tempfile.TemporaryDirectory(prefix="popm-startup-") as workdir:
+        master, slave = pty.openpty()
+        started = time.monotonic()
+        process = subprocess.Popen(shlex.split(command), stdin=slave, stdout=slave, stderr=slave,
+                                   cwd=workdir, env=env, close_fds=True)
+        os.close(slave)
+        output = b""
+        try:
+            while not any(marker in output for marker in PROMPT_MARKERS):
+                remaining = timeout - (time.monotonic() - started)
+                if remaining <= 0:
+                    raise TimeoutError(f"No prompt within {timeout}s from: {command}\n{output.decode(errors='replace')}")
+                ready, _, _ = select.select([master], [], [], remaining)
+                if ready:
+                    try:
+                        chunk = os.read(master, 65536)
+                    except OSError:
+                        chunk = b""
+                    if not chunk:
+                        raise RuntimeError(f"Exited before the prompt: {command}\n{output.decode(errors='replace')}")
+                    output += chunk
+            elapsed_ms = (time.monotonic() - started) * 1000
+            rss_kb = resident_memory_kb(process.pid)
+            os.write(master, b"exit\n")
+            process.wait(timeout=30)
+            return elapsed_ms, rss_kb
+        finally:
+            if process.poll() is None:
+                process.kill()
+                process.wait()
+            os.close(master)
+
+
+def main():
+    parser = argparse.ArgumentParser(description='Measure time-to-prompt and RSS of the POPM exam shell')
+    parser.add_argument('--variant', action='append', metavar='NAME=COMMAND',
+                        help='A named command line to benchmark (repeatable; default: the jar, and the CDS build if present)')
+    parser.add_argument('-n', '--runs', type=int, default=5, help='Measured runs per variant (default: 5)')
+    parser.add_argument('--warmup', type=int, default=1, help='Unmeasured runs per variant first, to warm the OS file cache (default: 1)')
+    parser.add_argument('--timeout', type=float, default=120, help='Seconds to wait for the prompt (default: 120)')
+    parser.add_argument('-o', '--output', default=str(PROJECT_DIR / "target" / "startup-result.json"),
+                        help='Where to write the results as JSON')
+    args = parser.parse_args()
+
+    if args.variant:
+        variants = dict(variant.split("=", 1) for variant in args.variant)
+    else:
+        if not JAR.exists():
+            print(f"Error: {JAR} not found. Build it with: ./mvnw package -DskipTests")
+            sys.exit(1)
+        variants = default_variants()
+
+    results = {}
+    for name, command in variants.items():
+        for _ in range(args.warmup):
+            measure(command, args.timeout)
+        samples = [measure(command, args.timeout) for _ in range(args.runs)]
+        times = [sample[0] for sample in samples]
+        rss = [sample[1] / 1024 for sample in samples]
+        results[name] = {
+            "command": command,
+            "timeToPromptMs": {"median": statistics.median(times), "min": min(times), "max": max(times), "samples": times},
+            "rssMb": {"median": statistics.median(rss), "min": min(rss), "max": max(rss), "samples": rss},
+        }
+
+    print(f"{'Variant':<12}{'Time to prompt (median, min-max)':<38}{'RSS (median)':>14}")
+    for name, result in results.items():
+        time_ms = result["timeToPromptMs"]
+        print(f"{name:<12}{time_ms['median']:>8.0f} ms  ({time_ms['min']:.0f}-{time_ms['max']:.0f} ms){'':<12}"
+              f"{result['rssMb']['median']:>10.0f} MB")
+
+    output = Path(args.output)
+    output.parent.mkdir(parents=True, exist_ok=True)
+    output.write_text(json.dumps(results, indent=2))
+    print(f"Results saved to {output}")
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,83 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.AttemptEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Answer-journalling throughput from 4 threads, against a fresh journal file per iteration.
+ * {@code append} only enqueues, so it shows the cost the exam path pays; {@code appendAndFlush}
+ * waits until each event is on disk, so concurrent answers share fsyncs through group commit.
+ * {@code fsyncInterval} is how often the writer forces the file when nobody is waiting.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AttemptJournalBenchmark {
+
+    @Param({"0ms", "50ms"})
+    String fsyncInterval;
+
+    Path directory;
+    AttemptJournal journal;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("attempt-journal-benchmark");
+        journal = new AttemptJournal(true, directory.resolve("attempts.journal").toString(),
+                Duration.ofMillis(Long.parseLong(fsyncInterval.replace("ms", ""))), 65536, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Candidate {
+        String sessionId = UUID.randomUUID().toString();
+        int position;
+    }
+
+    @Benchmark
+    public void append(Candidate candidate) {
+        journal.append(AttemptEvent.answered(candidate.sessionId, candidate.position, candidate.position++, 1, true));
+    }
+
+    @Benchmark
+    public void appendAndFlush(Candidate candidate) {
+        journal.append(AttemptEvent.answered(candidate.sessionId, candidate.position, candidate.position++, 1, true));
+        journal.flush();
+    }
+}
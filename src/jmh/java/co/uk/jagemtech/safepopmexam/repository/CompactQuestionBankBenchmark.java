@@ -0,0 +1,127 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Heap footprint of {@code bankSize} synthetic questions held as {@link Question} objects and
+ * as a {@link CompactQuestionBank}, printed during setup, and the cost of reading the correct
+ * answer and decoding a question from each.
+ * <p>
+ * Footprint is the growth in used heap after a full GC while the structure is reachable. Use
+ * {@code -Djmh.args="CompactQuestionBankBenchmark -p bankSize=1000000"} for the large bank alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class CompactQuestionBankBenchmark {
+    private static final String[] WORDS = {
+        "agile", "release", "train", "portfolio", "value", "stream", "backlog", "feature", "enabler",
+        "capability", "solution", "program", "increment", "planning", "objective", "team", "epic",
+        "owner", "manager", "architect", "lean", "budget", "guardrail", "flow", "metric", "roadmap",
+        "iteration", "review", "demo", "inspect", "adapt", "runway", "customer", "business", "risk"
+    };
+
+    @Param({"100000", "1000000"})
+    int bankSize;
+
+    List<Question> objects;
+    CompactQuestionBank bank;
+    int[] positions;
+    int next;
+
+    @Setup
+    public void setUp() {
+        IntFunction<Question> questions = seed -> randomQuestion(new SplittableRandom(seed));
+
+        long before = usedHeapAfterGc();
+        objects = new ArrayList<>(bankSize);
+        for (int i = 0; i < bankSize; i++) {
+            objects.add(questions.apply(i));
+        }
+        long objectBytes = usedHeapAfterGc() - before;
+
+        before = usedHeapAfterGc();
+        bank = new CompactQuestionBank(false, bankSize);
+        for (int i = 0; i < bankSize; i++) {
+            bank.append(questions.apply(i));
+        }
+        bank.trimToSize();
+        long compactBytes = usedHeapAfterGc() - before;
+
+        System.out.printf("%n%,d questions: objects %,d KB (%d B/question), compact bank %,d KB (%d B/question), %.1fx smaller%n",
+                bankSize, objectBytes / 1024, objectBytes / bankSize, compactBytes / 1024, compactBytes / bankSize,
+                (double) objectBytes / compactBytes);
+
+        SplittableRandom random = new SplittableRandom(7);
+        positions = random.ints(1024, 0, bankSize).toArray();
+    }
+
+    @Benchmark
+    public int correctAnswerFromObjects() {
+        return objects.get(nextPosition()).getCorrectIndex();
+    }
+
+    @Benchmark
+    public int correctAnswerFromBank() {
+        return bank.correctIndex(nextPosition());
+    }
+
+    @Benchmark
+    public Question decodeFromBank() {
+        return bank.get(nextPosition());
+    }
+
+    private int nextPosition() {
+        return positions[next++ & (positions.length - 1)];
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Question randomQuestion(SplittableRandom random) {
+        List<Choice> choices = new ArrayList<>(4);
+        int correct = random.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            choices.add(new Choice(sentence(random, 6), i == correct));
+        }
+        Topic topic = Topic.values()[random.nextInt(Topic.values().length)];
+        return new Question(sentence(random, 14) + "?", choices, sentence(random, 25), topic);
+    }
+
+    private static String sentence(SplittableRandom random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sentence.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
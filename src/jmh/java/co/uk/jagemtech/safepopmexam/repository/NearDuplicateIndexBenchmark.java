@@ -0,0 +1,88 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of checking one new question against a bank of {@code bankSize} synthetic questions,
+ * for both a distinct question and a reworded copy of one already in the bank.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NearDuplicateIndexBenchmark {
+    private static final String[] WORDS = {
+        "agile", "release", "train", "portfolio", "value", "stream", "backlog", "feature", "enabler",
+        "capability", "solution", "program", "increment", "planning", "objective", "team", "epic",
+        "owner", "manager", "architect", "lean", "budget", "guardrail", "flow", "metric", "roadmap",
+        "iteration", "review", "demo", "inspect", "adapt", "runway", "customer", "business", "risk"
+    };
+
+    @Param({"1000", "100000"})
+    int bankSize;
+
+    NearDuplicateIndex index;
+    Question distinct;
+    Question paraphrase;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        index = new NearDuplicateIndex(0.6);
+        Question first = null;
+        for (int i = 0; i < bankSize; i++) {
+            Question question = randomQuestion(random);
+            index.addIfDistinct(question);
+            if (first == null) {
+                first = question;
+            }
+        }
+        distinct = randomQuestion(random);
+        paraphrase = new Question("In SAFe, " + first.getText(), first.getChoices(), first.getExplanation());
+    }
+
+    @Benchmark
+    public boolean checkDistinct() {
+        return index.isNearDuplicate(distinct);
+    }
+
+    @Benchmark
+    public boolean checkParaphrase() {
+        return index.isNearDuplicate(paraphrase);
+    }
+
+    private static Question randomQuestion(SplittableRandom random) {
+        List<Choice> choices = new ArrayList<>(4);
+        for (int i = 0; i < 4; i++) {
+            choices.add(new Choice(sentence(random, 8), i == 0));
+        }
+        return new Question(sentence(random, 12) + "?", choices, sentence(random, 15));
+    }
+
+    private static String sentence(SplittableRandom random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sentence.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of choosing a 20-question exam, excluding 10 questions already seen, from a cached bank
+ * of {@code bankSize} questions: by copying and shuffling the bank, and by sampling ids from the
+ * topic and id indexes and reading them through a view. Run with {@code -prof gc} to compare
+ * the allocation per exam.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class QuestionSamplingBenchmark {
+    private static final int EXAM_SIZE = 20;
+
+    @Param({"10000", "1000000"})
+    int bankSize;
+
+    CompactQuestionBank bank;
+    TopicIndex topics;
+    QuestionIdIndex ids;
+    Set<Long> seen;
+    SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        bank = new CompactQuestionBank(false, bankSize);
+        topics = new TopicIndex();
+        ids = new QuestionIdIndex();
+        for (int i = 0; i < bankSize; i++) {
+            Topic topic = Topic.values()[i % Topic.values().length];
+            Question question = new Question("Question " + i + "?",
+                    List.of(new Choice("Right " + i, true), new Choice("Wrong " + i, false)), "Because " + i, topic);
+            int position = bank.append(question);
+            topics.add(position, topic);
+            ids.add(position, question.getId());
+        }
+        seen = random.ints(10, 0, bankSize).mapToObj(ids::id).collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public List<Question> copyAndShuffle() {
+        List<Question> questions = new ArrayList<>(bank.asList());
+        Collections.shuffle(questions, random);
+        List<Question> exam = new ArrayList<>(EXAM_SIZE);
+        for (Question question : questions) {
+            if (exam.size() < EXAM_SIZE && !seen.contains(question.getId())) {
+                exam.add(question);
+            }
+        }
+        return exam;
+    }
+
+    @Benchmark
+    public List<Question> sampleIds() {
+        int[] positions = topics.sample(EXAM_SIZE, Set.of(), position -> seen.contains(ids.id(position)), random);
+        long[] sampled = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            sampled[i] = ids.id(positions[i]);
+        }
+        return List.copyOf(QuestionSampling.view(sampled, id -> bank.get(ids.position(id))));
+    }
+}
@@ -0,0 +1,273 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.repository.AttemptJournal;
+import co.uk.jagemtech.safepopmexam.repository.ClaudeQuestionRepository;
+import co.uk.jagemtech.safepopmexam.repository.MockQuestionRepository;
+import co.uk.jagemtech.safepopmexam.repository.NearDuplicateIndex;
+import co.uk.jagemtech.safepopmexam.repository.QuestionStore;
+import co.uk.jagemtech.safepopmexam.repository.SourceChunkStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives simulated candidates through whole exams against one {@link ExamService} backed by a
+ * {@link ClaudeQuestionRepository} and a {@link FakeChatModel}, then reports exam throughput,
+ * latency percentiles and heap allocation per exam. Each candidate repeatedly starts an exam,
+ * answers every question and ends it, for a warm-up period and then a measured period.
+ * <p>
+ * Options, all optional:
+ * <pre>
+ * --candidates 100     simulated candidates, each on its own virtual thread
+ * --questions 20       questions per exam
+ * --prefill 0          questions generated into the cache before the run; 0 starts cold
+ * --think 0ms          pause before each answer
+ * --latency 500ms      fake Claude's time to answer a call, or to stream its first question
+ * --per-question 20ms  fake Claude's time to stream each further question
+ * --claude-budget 20s  popm.tiers.claude-budget
+ * --warmup 10s         unmeasured run time
+ * --duration 30s       measured run time
+ * </pre>
+ * Results are printed and written to {@code target/load-test-result.json}.
+ */
+public class ExamLoadTest {
+
+    private final int candidates;
+    private final int questions;
+    private final int prefill;
+    private final Duration think;
+    private final Duration warmup;
+    private final Duration duration;
+    private final FakeChatModel chatModel;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClaudeQuestionRepository questionRepository;
+    private final ExamService examService;
+
+    private final Recorder startLatency = new Recorder(3);
+    private final Recorder answerLatency = new Recorder(3);
+    private final Recorder examLatency = new Recorder(3);
+    private final AtomicLong exams = new AtomicLong();
+    private final AtomicLong answers = new AtomicLong();
+    private final AtomicLong emptyExams = new AtomicLong();
+    private volatile boolean running = true;
+
+    ExamLoadTest(Map<String, String> options) {
+        candidates = Integer.parseInt(options.getOrDefault("candidates", "100"));
+        questions = Integer.parseInt(options.getOrDefault("questions", "20"));
+        prefill = Integer.parseInt(options.getOrDefault("prefill", "0"));
+        think = duration(options, "think", "0ms");
+        warmup = duration(options, "warmup", "10s");
+        duration = duration(options, "duration", "30s");
+        chatModel = new FakeChatModel(duration(options, "latency", "500ms"), duration(options, "per-question", "20ms"));
+
+        GenerationController generationController = new GenerationController(5, 10, 400, 8192, Duration.ofSeconds(30));
+        ResilientChatCaller resilientCaller = new ResilientChatCaller(Duration.ofSeconds(90), 3, Duration.ofMillis(500),
+                Duration.ofSeconds(8), false, Duration.ofSeconds(20), 5, Duration.ofSeconds(30));
+        ClaudeService claudeService = new ClaudeService(chatModel, generationController, resilientCaller, meterRegistry,
+                new SourceChunkStore(false, "unused"), new GenerationProgress(meterRegistry), 0);
+        questionRepository = new ClaudeQuestionRepository(claudeService, new MockQuestionRepository(),
+                new BatchGenerationEngine(claudeService, 4), generationController, new QuestionStore(false, "unused"),
+                event -> { }, new NearDuplicateIndex(0.6), meterRegistry, false,
+                duration(options, "claude-budget", "20s"));
+        examService = new ExamService(questionRepository, new DifficultyCalibration(),
+                new AttemptJournal(false, "unused", Duration.ZERO, 1, meterRegistry), Duration.ofMinutes(30),
+                3, 5, 0.4, meterRegistry);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option name, found " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        // Per-call logging would dominate the run
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        ExamLoadTest loadTest = new ExamLoadTest(options);
+        try {
+            loadTest.report(loadTest.run(), options);
+        } finally {
+            loadTest.examService.shutdown();
+        }
+        System.exit(0);
+    }
+
+    Result run() throws InterruptedException {
+        if (prefill > 0) {
+            System.out.printf("Generating %d questions into the cache...%n", prefill);
+            questionRepository.refreshQuestions(prefill);
+        }
+        List<Thread> threads = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            long seed = i;
+            threads.add(Thread.ofVirtual().name("candidate-" + i).start(() -> candidate(seed)));
+        }
+
+        System.out.printf("Warming up %d candidates for %ds...%n", candidates, warmup.toSeconds());
+        Thread.sleep(warmup);
+        startLatency.reset();
+        answerLatency.reset();
+        examLatency.reset();
+        Snapshot before = snapshot();
+
+        System.out.printf("Measuring for %ds...%n", duration.toSeconds());
+        Thread.sleep(duration);
+        Snapshot after = snapshot();
+        Histogram starts = startLatency.getIntervalHistogram();
+        Histogram answered = answerLatency.getIntervalHistogram();
+        Histogram completed = examLatency.getIntervalHistogram();
+
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        return new Result(after.exams - before.exams, after.answers - before.answers,
+                after.emptyExams - before.emptyExams, after.allocated - before.allocated,
+                after.claudeCalls - before.claudeCalls, after.coalesced - before.coalesced,
+                starts, answered, completed);
+    }
+
+    /**
+     * One candidate: start an exam, answer each question as it arrives, end it, and repeat.
+     */
+    private void candidate(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String sessionId = examService.createSessionId();
+        while (running) {
+            long started = System.nanoTime();
+            examService.startExam(sessionId, questions);
+            startLatency.recordValue(System.nanoTime() - started);
+
+            int asked = 0;
+            while (running) {
+                long asking = System.nanoTime();
+                Question question = examService.getCurrentQuestion(sessionId);
+                if (question == null) {
+                    break;
+                }
+                long shown = System.nanoTime();
+                pause();
+                long answering = System.nanoTime();
+                examService.submitAnswer(sessionId, random.nextInt(question.getChoices().size()));
+                // Time spent waiting for the question plus submitting the answer, not thinking
+                answerLatency.recordValue(shown - asking + System.nanoTime() - answering);
+                answers.incrementAndGet();
+                asked++;
+            }
+            examService.endExam(sessionId);
+            if (running) {
+                examLatency.recordValue(System.nanoTime() - started);
+                exams.incrementAndGet();
+                if (asked == 0) {
+                    emptyExams.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void pause() {
+        if (!think.isZero()) {
+            try {
+                Thread.sleep(think);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Snapshot snapshot() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double coalesced = meterRegistry.find(ClaudeQuestionRepository.COALESCED_COUNTER).counters().stream()
+                .mapToDouble(Counter::count).sum();
+        return new Snapshot(exams.get(), answers.get(), emptyExams.get(), threads.getTotalThreadAllocatedBytes(),
+                chatModel.getCalls(), (long) coalesced);
+    }
+
+    private void report(Result result, Map<String, String> options) throws IOException {
+        double seconds = duration.toNanos() / 1e9;
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("options", options);
+        json.put("candidates", candidates);
+        json.put("examsPerSecond", result.exams / seconds);
+        json.put("answersPerSecond", result.answers / seconds);
+        json.put("examsWithoutQuestions", result.emptyExams);
+        json.put("allocatedBytesPerExam", result.exams > 0 ? result.allocated / result.exams : 0);
+        json.put("claudeCalls", result.claudeCalls);
+        json.put("coalescedRequests", result.coalesced);
+        json.put("startExamMillis", percentiles(result.starts));
+        json.put("answerMillis", percentiles(result.answered));
+        json.put("examMillis", percentiles(result.completed));
+
+        System.out.println();
+        System.out.printf("Candidates        %d, %d questions per exam%n", candidates, questions);
+        System.out.printf("Throughput        %.1f exams/s, %.1f answers/s%n", result.exams / seconds, result.answers / seconds);
+        System.out.printf("Allocation        %.1f KB per exam (whole process)%n",
+                result.exams > 0 ? result.allocated / 1024.0 / result.exams : 0.0);
+        System.out.printf("Claude calls      %d, %d requests coalesced%n", result.claudeCalls, result.coalesced);
+        if (result.emptyExams > 0) {
+            System.out.printf("Empty exams       %d exams had no questions%n", result.emptyExams);
+        }
+        System.out.printf("%-17s %9s %9s %9s %9s %9s%n", "Latency (ms)", "p50", "p90", "p99", "p99.9", "max");
+        printRow("start-exam", result.starts);
+        printRow("answer", result.answered);
+        printRow("whole exam", result.completed);
+
+        Path output = Path.of("target", "load-test-result.json");
+        Files.createDirectories(output.getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), json);
+        System.out.println("Results written to " + output);
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", millis(histogram.getValueAtPercentile(50)));
+        percentiles.put("p90", millis(histogram.getValueAtPercentile(90)));
+        percentiles.put("p99", millis(histogram.getValueAtPercentile(99)));
+        percentiles.put("p99.9", millis(histogram.getValueAtPercentile(99.9)));
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        return percentiles;
+    }
+
+    private static void printRow(String name, Histogram histogram) {
+        System.out.printf("%-17s %9.2f %9.2f %9.2f %9.2f %9.2f%n", name,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static Duration duration(Map<String, String> options, String name, String defaultValue) {
+        return DurationStyle.detectAndParse(options.getOrDefault(name, defaultValue));
+    }
+
+    private record Snapshot(long exams, long answers, long emptyExams, long allocated, long claudeCalls, long coalesced) {
+    }
+
+    record Result(long exams, long answers, long emptyExams, long allocated, long claudeCalls, long coalesced,
+                  Histogram starts, Histogram answered, Histogram completed) {
+    }
+}
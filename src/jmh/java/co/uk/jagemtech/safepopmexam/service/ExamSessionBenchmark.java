@@ -0,0 +1,73 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.repository.AttemptJournal;
+import co.uk.jagemtech.safepopmexam.repository.MockQuestionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answer-submission throughput with one exam session per benchmark thread, all hosted by a
+ * single {@link ExamService}. Compare runs with {@code -t 1}, {@code -t 2}, {@code -t 4} ...
+ * to check that throughput scales with cores, e.g.
+ * {@code -Djmh.args="ExamSessionBenchmark -t 4"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExamSessionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        ExamService examService;
+
+        @Setup
+        public void setUp() {
+            examService = new ExamService(new MockQuestionRepository(), new DifficultyCalibration(),
+                    new AttemptJournal(false, "unused", Duration.ZERO, 1, new SimpleMeterRegistry()), Duration.ofMinutes(30),
+                    3, 5, 0.4, new SimpleMeterRegistry());
+        }
+
+        @TearDown
+        public void tearDown() {
+            examService.shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Candidate {
+        String sessionId;
+        int answer;
+
+        @Setup(Level.Iteration)
+        public void setUp(Service service) {
+            sessionId = service.examService.createSessionId();
+            service.examService.startExam(sessionId, 5);
+        }
+    }
+
+    @Benchmark
+    public boolean submitAnswer(Service service, Candidate candidate) {
+        ExamService examService = service.examService;
+        if (!examService.isExamInProgress(candidate.sessionId)) {
+            examService.startExam(candidate.sessionId, 5);
+        }
+        candidate.answer = (candidate.answer + 1) & 3;
+        return examService.submitAnswer(candidate.sessionId, candidate.answer);
+    }
+}
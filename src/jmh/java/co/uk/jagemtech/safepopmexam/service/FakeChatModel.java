@@ -0,0 +1,120 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A stand-in for Claude that answers every prompt with as many distinct, well-formed questions
+ * as it asks for. A call takes {@code latency} before answering; a stream waits {@code latency}
+ * for its first question and {@code perQuestion} for each of the rest.
+ */
+class FakeChatModel implements ChatModel {
+    private static final Pattern COUNT = Pattern.compile("Generate exactly (\\d+) questions");
+    private static final int TOKENS_PER_QUESTION = 120;
+    private static final String[] WORDS = {
+        "agile", "release", "train", "portfolio", "value", "stream", "backlog", "feature", "enabler",
+        "capability", "solution", "program", "increment", "planning", "objective", "team", "epic",
+        "owner", "manager", "architect", "lean", "budget", "guardrail", "flow", "metric", "roadmap",
+        "iteration", "review", "demo", "inspect", "adapt", "runway", "customer", "business", "risk"
+    };
+
+    private final Duration latency;
+    private final Duration perQuestion;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong serial = new AtomicLong();
+
+    FakeChatModel(Duration latency, Duration perQuestion) {
+        this.latency = latency;
+        this.perQuestion = perQuestion;
+    }
+
+    /**
+     * Calls and streams started so far.
+     */
+    long getCalls() {
+        return calls.get();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        calls.incrementAndGet();
+        int count = count(prompt);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",").append(question());
+        }
+        sleep(latency);
+        return response(json.append(']').toString(), count * TOKENS_PER_QUESTION);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        calls.incrementAndGet();
+        int count = count(prompt);
+        List<String> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            chunks.add((i == 0 ? "[" : ",") + question() + (i == count - 1 ? "]" : ""));
+        }
+        return Flux.range(0, count)
+                .delayElements(perQuestion)
+                .delaySubscription(latency)
+                .map(i -> response(chunks.get(i), i == count - 1 ? count * TOKENS_PER_QUESTION : 0));
+    }
+
+    private static int count(Prompt prompt) {
+        List<Message> messages = prompt.getInstructions();
+        Matcher matcher = COUNT.matcher(messages.get(messages.size() - 1).getText());
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 5;
+    }
+
+    private String question() {
+        long id = serial.incrementAndGet();
+        SplittableRandom random = new SplittableRandom(id);
+        Topic topic = Topic.values()[random.nextInt(Topic.values().length)];
+        return "{\"text\":\"" + sentence(random, 12) + " " + id + "?\",\"choices\":["
+                + "{\"text\":\"" + sentence(random, 6) + "\",\"correct\":true},"
+                + "{\"text\":\"" + sentence(random, 6) + "\",\"correct\":false},"
+                + "{\"text\":\"" + sentence(random, 6) + "\",\"correct\":false},"
+                + "{\"text\":\"" + sentence(random, 6) + "\",\"correct\":false}],"
+                + "\"explanation\":\"" + sentence(random, 15) + "\",\"topic\":\"" + topic.getSection() + "\"}";
+    }
+
+    private static String sentence(SplittableRandom random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sentence.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+
+    private static ChatResponse response(String text, int outputTokens) {
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .usage(new DefaultUsage(1500, outputTokens))
+                .build();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
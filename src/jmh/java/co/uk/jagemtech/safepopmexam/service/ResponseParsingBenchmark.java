@@ -0,0 +1,112 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each stage of the response-parsing pipeline against the checked-in corpus in
+ * {@code src/jmh/resources/corpus}. Throughput and sampled latency percentiles (p99) are
+ * reported per corpus file; run with {@code -prof gc} (the default {@code jmh.args}) for
+ * allocation rates. Save {@code target/jmh-result.json} from a baseline run to compare
+ * parser changes against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    @Param({
+        "fenced-5",
+        "unfenced-5",
+        "trailing-commas-5",
+        "newlines-in-strings-5",
+        "truncated-mid-string-5",
+        "fenced-50",
+        "unfenced-500"
+    })
+    public String corpus;
+
+    private String response;
+    private QuestionJsonExtractor extractor;
+    private ObjectMapper objectMapper;
+    private final char[] buffer = new char[8192];
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/corpus/" + corpus + ".txt")) {
+            if (in == null) {
+                throw new IllegalStateException("Missing corpus file " + corpus);
+            }
+            response = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        objectMapper = ClaudeService.createObjectMapper();
+        extractor = new QuestionJsonExtractor(objectMapper);
+    }
+
+    /**
+     * Locating and repairing the JSON only.
+     */
+    @Benchmark
+    public long repair() throws IOException {
+        long total = 0;
+        try (Reader reader = new QuestionJsonExtractor.RepairingReader(response)) {
+            int read;
+            while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Repair, tokenize and bind each question to a DTO.
+     */
+    @Benchmark
+    public int extract(Blackhole blackhole) {
+        return extractor.extract(response, blackhole::consume);
+    }
+
+    /**
+     * The full path used by {@code generateQuestions}: extraction plus conversion to the model.
+     */
+    @Benchmark
+    public List<Question> extractAndConvert() {
+        List<Question> questions = new ArrayList<>();
+        extractor.extract(response, dto -> questions.add(ClaudeService.convertDtoToQuestion(dto)));
+        return questions;
+    }
+
+    /**
+     * The streaming path, fed in small chunks the way a token stream arrives.
+     */
+    @Benchmark
+    public void streamInChunks(Blackhole blackhole) {
+        StreamingQuestionParser parser = new StreamingQuestionParser(objectMapper, blackhole::consume);
+        for (int i = 0; i < response.length(); i += 16) {
+            parser.accept(response.substring(i, Math.min(i + 16, response.length())));
+        }
+    }
+}
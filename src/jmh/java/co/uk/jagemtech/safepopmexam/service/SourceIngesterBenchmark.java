@@ -0,0 +1,123 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.repository.SourceChunkStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to ingest a synthetic corpus of {@code corpusMegabytes} spread over 64 text files shaped
+ * like {@code pdf_text_extractor.py} output, into a fresh store each time. Throughput in MB/s is
+ * {@code corpusMegabytes} divided by the score; the heap is capped at 256 MB to show that memory
+ * use does not grow with the corpus.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+@State(Scope.Benchmark)
+public class SourceIngesterBenchmark {
+    private static final int FILES = 64;
+    private static final String[] HEADINGS = {
+        "Lesson 1: Exploring the Product Owner/Product Manager Roles", "Lesson 2: Preparing for PI Planning",
+        "Lesson 3: Leading PI Planning", "Lesson 4: Executing Iterations", "Lesson 5: Executing the PI"
+    };
+    private static final String[] WORDS = {
+        "agile", "release", "train", "portfolio", "value", "stream", "backlog", "feature", "enabler",
+        "capability", "solution", "program", "increment", "planning", "objective", "team", "epic",
+        "owner", "manager", "architect", "lean", "budget", "guardrail", "flow", "metric", "roadmap"
+    };
+
+    @Param({"512"})
+    int corpusMegabytes;
+
+    @Param({"1", "4"})
+    int maxConcurrency;
+
+    Path corpus;
+    Path storePath;
+    SourceChunkStore store;
+
+    @Setup(Level.Trial)
+    public void writeCorpus() throws IOException {
+        corpus = Files.createTempDirectory("popm-corpus");
+        long bytesPerFile = (long) corpusMegabytes * 1024 * 1024 / FILES;
+        SplittableRandom random = new SplittableRandom(42);
+        for (int file = 0; file < FILES; file++) {
+            try (BufferedWriter writer = Files.newBufferedWriter(corpus.resolve("course-" + file + ".txt"), StandardCharsets.UTF_8)) {
+                long written = 0;
+                int lesson = 0;
+                while (written < bytesPerFile) {
+                    String heading = HEADINGS[lesson++ % HEADINGS.length] + "\n\n";
+                    writer.write(heading);
+                    written += heading.length();
+                    for (int paragraph = 0; paragraph < 200 && written < bytesPerFile; paragraph++) {
+                        for (int line = 0; line < 5; line++) {
+                            String text = sentence(random) + "\n";
+                            writer.write(text);
+                            written += text.length();
+                        }
+                        writer.write("\n");
+                        written++;
+                    }
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void openStore() throws IOException {
+        storePath = Files.createTempFile("popm-sources", ".bank");
+        Files.delete(storePath);
+        store = new SourceChunkStore(true, storePath.toString());
+    }
+
+    @Benchmark
+    public IngestResult ingest() {
+        return new SourceIngester(store, 2000, maxConcurrency).ingest(corpus);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeStore() throws IOException {
+        store.close();
+        Files.deleteIfExists(storePath);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        try (Stream<Path> files = Files.walk(corpus)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static String sentence(SplittableRandom random) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            sentence.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.append('.').toString();
+    }
+}
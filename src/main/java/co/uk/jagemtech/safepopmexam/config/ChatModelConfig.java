@@ -0,0 +1,67 @@
+package co.uk.jagemtech.safepopmexam.config;
+
+import co.uk.jagemtech.safepopmexam.service.RecordingChatModel;
+import org.springframework.ai.anthropic.AnthropicChatModel;
+import org.springframework.ai.autoconfigure.anthropic.AnthropicChatProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.nio.file.Path;
+
+@Configuration
+public class ChatModelConfig {
+
+    /**
+     * The chat model used for question generation: Claude, wrapped so that responses can be
+     * recorded and replayed ({@code popm.chat-cache.mode}). Claude is looked up on the first
+     * call, so with {@code popm.claude.lazy-init} the Anthropic client is not built at startup.
+     * Its default options come from configuration, so replaying never builds it.
+     */
+    @Bean
+    @Primary
+    public RecordingChatModel recordingChatModel(ObjectProvider<AnthropicChatModel> anthropicChatModel,
+                                                 ObjectProvider<AnthropicChatProperties> anthropicChatProperties,
+                                                 @Value("${popm.chat-cache.mode:passthrough}") RecordingChatModel.Mode mode,
+                                                 @Value("${popm.chat-cache.path:claude-responses}") String path) {
+        AnthropicChatProperties properties = anthropicChatProperties.getIfAvailable();
+        return new RecordingChatModel(SingletonSupplier.of(anthropicChatModel::getObject),
+                properties != null ? properties.getOptions() : null, mode, Path.of(path));
+    }
+
+    /**
+     * Mark every Spring AI bean lazy when {@code popm.claude.lazy-init} is set, so the Anthropic
+     * client and its HTTP and JSON machinery are built on first generation rather than before the
+     * shell prompt appears. Exams served from cached, stored or mock questions never build them.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor lazyClaudeBeans(Environment environment) {
+        return beanFactory -> {
+            if (!environment.getProperty("popm.claude.lazy-init", Boolean.class, false)) {
+                return;
+            }
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (isSpringAi(definition)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    static boolean isSpringAi(BeanDefinition definition) {
+        String type = definition.getBeanClassName();
+        if (type == null && definition instanceof AnnotatedBeanDefinition annotated
+                && annotated.getFactoryMethodMetadata() != null) {
+            type = annotated.getFactoryMethodMetadata().getReturnTypeName();
+        }
+        return type != null && type.startsWith("org.springframework.ai.");
+    }
+}
@@ -1,11 +1,16 @@
 package co.uk.jagemtech.safepopmexam.config;
 
+import co.uk.jagemtech.safepopmexam.service.GenerationProgress;
+import co.uk.jagemtech.safepopmexam.util.ProgressIndicator;
 import org.jline.utils.AttributedString;
 import org.jline.utils.AttributedStyle;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.shell.jline.PromptProvider;
 
+import java.time.Duration;
+
 @Configuration
 public class ShellConfig {
 
@@ -14,4 +19,14 @@ public class ShellConfig {
         return () -> new AttributedString("popm-exam:>", 
                 AttributedStyle.DEFAULT.foreground(AttributedStyle.YELLOW));
     }
+
+    /**
+     * The progress line shared by all shell commands.
+     */
+    @Bean
+    public ProgressIndicator progressIndicator(GenerationProgress generationProgress,
+                                               @Value("${popm.progress.frame-interval:100ms}") Duration frameInterval,
+                                               @Value("${popm.progress.stall-after:10s}") Duration stallAfter) {
+        return new ProgressIndicator(System.out, generationProgress, frameInterval, stallAfter);
+    }
 }
@@ -0,0 +1,35 @@
+package co.uk.jagemtech.safepopmexam.model;
+
+/**
+ * One step of a candidate's exam attempt, as written to the attempt journal. Fields that do not
+ * apply to the event's type are zero.
+ *
+ * @param timestamp         milliseconds since the epoch
+ * @param numberOfQuestions the number of questions requested, for {@link Type#STARTED}
+ * @param adaptive          whether the exam is adaptive, for {@link Type#STARTED}
+ * @param position          the question's position in the exam, for {@link Type#ASKED} and {@link Type#ANSWERED}
+ * @param questionId        the question's {@link Question#getId() id}, for {@link Type#ASKED} and {@link Type#ANSWERED}
+ * @param choice            the chosen answer, for {@link Type#ANSWERED}
+ * @param correct           whether the answer was right, for {@link Type#ANSWERED}
+ */
+public record AttemptEvent(Type type, String sessionId, long timestamp, int numberOfQuestions, boolean adaptive,
+                           int position, long questionId, int choice, boolean correct) {
+
+    public enum Type { STARTED, ASKED, ANSWERED, ENDED }
+
+    public static AttemptEvent started(String sessionId, int numberOfQuestions, boolean adaptive) {
+        return new AttemptEvent(Type.STARTED, sessionId, System.currentTimeMillis(), numberOfQuestions, adaptive, 0, 0, 0, false);
+    }
+
+    public static AttemptEvent asked(String sessionId, int position, long questionId) {
+        return new AttemptEvent(Type.ASKED, sessionId, System.currentTimeMillis(), 0, false, position, questionId, 0, false);
+    }
+
+    public static AttemptEvent answered(String sessionId, int position, long questionId, int choice, boolean correct) {
+        return new AttemptEvent(Type.ANSWERED, sessionId, System.currentTimeMillis(), 0, false, position, questionId, choice, correct);
+    }
+
+    public static AttemptEvent ended(String sessionId) {
+        return new AttemptEvent(Type.ENDED, sessionId, System.currentTimeMillis(), 0, false, 0, 0, 0, false);
+    }
+}
@@ -1,8 +1,8 @@
 package co.uk.jagemtech.safepopmexam.model;
 
 public class Choice {
-    private String text;
-    private boolean correct;
+    private final String text;
+    private final boolean correct;
 
     public Choice(String text, boolean correct) {
         this.text = text;
@@ -13,15 +13,7 @@ public class Choice {
         return text;
     }
 
-    public void setText(String text) {
-        this.text = text;
-    }
-
     public boolean isCorrect() {
         return correct;
     }
-
-    public void setCorrect(boolean correct) {
-        this.correct = correct;
-    }
 }
@@ -2,45 +2,86 @@ package co.uk.jagemtech.safepopmexam.model;
 
 import java.util.List;
 
+/**
+ * An immutable multiple-choice question. The position of the correct choice is found once,
+ * when the question is created. Its id is derived from the text, so the same question has the
+ * same id wherever it is loaded from.
+ */
 public class Question {
-    private String text;
-    private List<Choice> choices;
-    private String explanation;
+    private final String text;
+    private final List<Choice> choices;
+    private final String explanation;
+    private final Topic topic;
+    private final int correctIndex;
+    private final long id;
 
     public Question(String text, List<Choice> choices, String explanation) {
+        this(text, choices, explanation, null);
+    }
+
+    public Question(String text, List<Choice> choices, String explanation, Topic topic) {
         this.text = text;
-        this.choices = choices;
+        this.choices = choices != null ? List.copyOf(choices) : List.of();
         this.explanation = explanation;
+        this.topic = topic;
+        this.correctIndex = correctIndex(this.choices);
+        this.id = idOf(text);
     }
 
-    public String getText() {
-        return text;
+    /**
+     * A stable 64-bit id: the FNV-1a hash of the question text.
+     */
+    public static long idOf(String text) {
+        long hash = 0xcbf29ce484222325L;
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
     }
 
-    public void setText(String text) {
-        this.text = text;
+    public long getId() {
+        return id;
     }
 
-    public List<Choice> getChoices() {
-        return choices;
+    public String getText() {
+        return text;
     }
 
-    public void setChoices(List<Choice> choices) {
-        this.choices = choices;
+    public List<Choice> getChoices() {
+        return choices;
     }
 
     public String getExplanation() {
         return explanation;
     }
 
-    public void setExplanation(String explanation) {
-        this.explanation = explanation;
+    /**
+     * The syllabus topic the question covers, or null if it has not been tagged.
+     */
+    public Topic getTopic() {
+        return topic;
+    }
+
+    /**
+     * The position of the first correct choice, or -1 if no choice is marked correct.
+     */
+    public int getCorrectIndex() {
+        return correctIndex;
     }
 
     public Choice getCorrectChoice() {
-        return choices.stream()
-                .filter(Choice::isCorrect)
-                .findFirst()
-                .orElse(null);
+        return correctIndex >= 0 ? choices.get(correctIndex) : null;
+    }
+
+    private static int correctIndex(List<Choice> choices) {
+        for (int i = 0; i < choices.size(); i++) {
+            if (choices.get(i).isCorrect()) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
@@ -0,0 +1,10 @@
+package co.uk.jagemtech.safepopmexam.model;
+
+/**
+ * A passage of course material, tagged with the syllabus topic it was found under (or null),
+ * that question generation can be grounded in.
+ *
+ * @param source the file the passage came from
+ */
+public record SourceChunk(String source, Topic topic, String text) {
+}
@@ -0,0 +1,55 @@
+package co.uk.jagemtech.safepopmexam.model;
+
+/**
+ * The sections of the POPM exam syllabus, with the share of exam questions the blueprint
+ * gives each one.
+ */
+public enum Topic {
+    ROLES_AND_RESPONSIBILITIES("5.1", "Product Owner/Product Management Roles and Responsibilities", 20),
+    PI_PLANNING_PREPARATION("5.2", "PI Planning Preparation", 25),
+    LEADERSHIP_FOR_PI_PLANNING("5.3", "Leadership for PI Planning", 15),
+    ITERATION_EXECUTION("5.4", "Iteration Execution", 25),
+    PI_EXECUTION("5.5", "PI Execution", 15);
+
+    private final String section;
+    private final String title;
+    private final int weight;
+
+    Topic(String section, String title, int weight) {
+        this.section = section;
+        this.title = title;
+        this.weight = weight;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * The blueprint weight, as a percentage of exam questions.
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * The topic for a syllabus section number such as "5.2" or "5.2.1", or null if the
+     * section is not recognised.
+     */
+    public static Topic fromSection(String section) {
+        if (section == null) {
+            return null;
+        }
+        String trimmed = section.trim();
+        for (Topic topic : values()) {
+            if (trimmed.equals(topic.section) || trimmed.startsWith(topic.section + ".")) {
+                return topic;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,333 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.AttemptEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only journal of exam attempt events, for analytics and for resuming exams
+ * after a crash.
+ * <p>
+ * Callers only enqueue events, so answering never waits for the disk. A single writer thread
+ * drains everything queued into one write (group commit) and forces the file at most once per
+ * {@code popm.journal.fsync-interval}, or after every write when the interval is zero. An event
+ * can therefore be lost in a crash up to one interval after it was appended; {@link #flush()}
+ * waits until everything appended so far is on disk. Events are written as
+ * {@code [length][crc32][payload]} records and a torn tail is truncated on open.
+ */
+@Component
+public class AttemptJournal {
+    private static final Logger logger = LoggerFactory.getLogger(AttemptJournal.class);
+
+    public static final String EVENTS_COUNTER = "popm.journal.events";
+    public static final String COMMIT_SIZE_SUMMARY = "popm.journal.commit.size";
+    public static final String FSYNC_TIMER = "popm.journal.fsync";
+
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final int FIXED_PAYLOAD_SIZE = 1 + Long.BYTES + Integer.BYTES + 1 + Integer.BYTES + Long.BYTES
+            + Integer.BYTES + 1 + Integer.BYTES;
+    private static final int MAX_COMMIT_EVENTS = 4096;
+    private static final AttemptEvent.Type[] TYPES = AttemptEvent.Type.values();
+    private static final Object STOP = new Object();
+
+    private final boolean enabled;
+    private final Path path;
+    private final long fsyncIntervalNanos;
+    private final BlockingQueue<Object> queue;
+    private final Counter events;
+    private final DistributionSummary commitSize;
+    private final Timer fsyncs;
+    private FileChannel log;
+    private volatile long logEnd = 0;
+    private volatile boolean closed = false;
+    private Thread writer;
+
+    public AttemptJournal(@Value("${popm.journal.enabled:false}") boolean enabled,
+                          @Value("${popm.journal.path:safe-popm-exam-attempts.journal}") String path,
+                          @Value("${popm.journal.fsync-interval:50ms}") Duration fsyncInterval,
+                          @Value("${popm.journal.queue-capacity:65536}") int queueCapacity,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.events = Counter.builder(EVENTS_COUNTER)
+                .description("Exam attempt events written to the journal").register(meterRegistry);
+        this.commitSize = DistributionSummary.builder(COMMIT_SIZE_SUMMARY)
+                .description("Events written to the journal per group commit").register(meterRegistry);
+        this.fsyncs = Timer.builder(FSYNC_TIMER)
+                .description("Time taken to force the journal to disk").register(meterRegistry);
+        if (enabled) {
+            open();
+            writer = Thread.ofPlatform().name("attempt-journal").daemon().start(this::writeLoop);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue an event for writing. Blocks only if the writer has fallen
+     * {@code popm.journal.queue-capacity} events behind.
+     */
+    public void append(AttemptEvent event) {
+        if (!enabled || closed) {
+            return;
+        }
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while journalling {} event for session {}", event.type(), event.sessionId());
+        }
+    }
+
+    /**
+     * Wait until every event appended before this call has been forced to disk.
+     */
+    public void flush() {
+        if (!enabled || closed) {
+            return;
+        }
+        FlushRequest request = new FlushRequest(new CompletableFuture<>());
+        try {
+            queue.put(request);
+            request.done().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read every event written so far, in order, and return how many there were.
+     */
+    public int replay(Consumer<AttemptEvent> consumer) {
+        if (!enabled) {
+            return 0;
+        }
+        try {
+            int[] count = {0};
+            scan(logEnd, event -> {
+                consumer.accept(event);
+                count[0]++;
+            });
+            return count[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay attempt journal " + path, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled || closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(STOP);
+            writer.join();
+            // Release any flush that raced with closing
+            for (Object entry : queue) {
+                if (entry instanceof FlushRequest request) {
+                    request.done().complete(null);
+                }
+            }
+            log.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Failed to close attempt journal: {}", e.getMessage());
+        }
+    }
+
+    private void open() {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long logSize = log.size();
+            long end = scan(logSize, null);
+            if (end < logSize) {
+                logger.warn("Truncating {} bytes of incomplete data from attempt journal", logSize - end);
+                log.truncate(end);
+            }
+            logEnd = end;
+            logger.info("Opened attempt journal {} ({} bytes)", path, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open attempt journal " + path, e);
+        }
+    }
+
+    /**
+     * Read intact records up to {@code limit}, passing each event to the consumer if there is one,
+     * and return the end of the last intact record.
+     */
+    private long scan(long limit, Consumer<AttemptEvent> consumer) throws IOException {
+        long position = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (position + HEADER_SIZE <= limit) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < FIXED_PAYLOAD_SIZE || position + HEADER_SIZE + length > limit) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                if (consumer != null) {
+                    consumer.accept(decode(ByteBuffer.wrap(payload)));
+                }
+                position += HEADER_SIZE + length;
+            }
+        } catch (EOFException e) {
+            // A torn record at the end of the file
+        }
+        return position;
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        List<FlushRequest> waiting = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        CRC32 crc = new CRC32();
+        long lastForce = System.nanoTime();
+        boolean unforced = false;
+        boolean running = true;
+        while (running) {
+            Object first;
+            try {
+                first = unforced
+                        ? queue.poll(Math.max(0, fsyncIntervalNanos - (System.nanoTime() - lastForce)), TimeUnit.NANOSECONDS)
+                        : queue.take();
+            } catch (InterruptedException e) {
+                first = STOP;
+            }
+
+            batch.clear();
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch, MAX_COMMIT_EVENTS - 1);
+            }
+            buffer.clear();
+            int written = 0;
+            for (Object entry : batch) {
+                if (entry instanceof AttemptEvent event) {
+                    buffer = encode(event, buffer, crc);
+                    written++;
+                } else if (entry instanceof FlushRequest request) {
+                    waiting.add(request);
+                } else if (entry == STOP) {
+                    running = false;
+                }
+            }
+
+            try {
+                if (written > 0) {
+                    buffer.flip();
+                    long position = logEnd;
+                    while (buffer.hasRemaining()) {
+                        position += log.write(buffer, position);
+                    }
+                    logEnd = position;
+                    unforced = true;
+                    events.increment(written);
+                    commitSize.record(written);
+                }
+                if (unforced && (!waiting.isEmpty() || !running || System.nanoTime() - lastForce >= fsyncIntervalNanos)) {
+                    long started = System.nanoTime();
+                    log.force(false);
+                    lastForce = System.nanoTime();
+                    fsyncs.record(lastForce - started, TimeUnit.NANOSECONDS);
+                    unforced = false;
+                }
+                waiting.forEach(request -> request.done().complete(null));
+            } catch (IOException e) {
+                logger.error("Failed to write {} events to attempt journal", written, e);
+                waiting.forEach(request -> request.done().completeExceptionally(e));
+            }
+            waiting.clear();
+        }
+    }
+
+    /**
+     * Append the event's record to the buffer, growing it if needed, and return the buffer.
+     */
+    private static ByteBuffer encode(AttemptEvent event, ByteBuffer buffer, CRC32 crc) {
+        byte[] sessionId = event.sessionId().getBytes(StandardCharsets.UTF_8);
+        int length = FIXED_PAYLOAD_SIZE + sessionId.length;
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + HEADER_SIZE + length));
+            buffer = grown.put(buffer.flip());
+        }
+        int start = buffer.position();
+        buffer.putInt(length).putInt(0)
+                .put((byte) event.type().ordinal())
+                .putLong(event.timestamp())
+                .putInt(event.numberOfQuestions())
+                .put((byte) (event.adaptive() ? 1 : 0))
+                .putInt(event.position())
+                .putLong(event.questionId())
+                .putInt(event.choice())
+                .put((byte) (event.correct() ? 1 : 0))
+                .putInt(sessionId.length)
+                .put(sessionId);
+        crc.reset();
+        crc.update(buffer.slice(start + HEADER_SIZE, length));
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+        return buffer;
+    }
+
+    private static AttemptEvent decode(ByteBuffer payload) {
+        AttemptEvent.Type type = TYPES[payload.get()];
+        long timestamp = payload.getLong();
+        int numberOfQuestions = payload.getInt();
+        boolean adaptive = payload.get() == 1;
+        int position = payload.getInt();
+        long questionId = payload.getLong();
+        int choice = payload.getInt();
+        boolean correct = payload.get() == 1;
+        byte[] sessionId = new byte[payload.getInt()];
+        payload.get(sessionId);
+        return new AttemptEvent(type, new String(sessionId, StandardCharsets.UTF_8), timestamp, numberOfQuestions,
+                adaptive, position, questionId, choice, correct);
+    }
+
+    private record FlushRequest(CompletableFuture<Void> done) {
+    }
+}
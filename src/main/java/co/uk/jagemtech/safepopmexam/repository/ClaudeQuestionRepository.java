@@ -1,110 +1,645 @@
 package co.uk.jagemtech.safepopmexam.repository;
 
 import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import co.uk.jagemtech.safepopmexam.service.BatchGenerationEngine;
 import co.uk.jagemtech.safepopmexam.service.ClaudeService;
+import co.uk.jagemtech.safepopmexam.service.GenerationController;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.random.RandomGenerator;
 
+/**
+ * The application's question source: a {@link TieredQuestionRepository} chain of the in-memory
+ * cache and unseen questions, the on-disk question bank, Claude, and the mock questions. Claude
+ * is only waited on for {@code popm.tiers.claude-budget} between questions; whatever it produces
+ * after that is persisted and cached for the next exam. Also refreshes and replenishes the cache
+ * in concurrent batches, rejecting near-duplicates.
+ * <p>
+ * The cache is an immutable-once-published snapshot read without locking: a refresh builds a
+ * new one and swaps it in, and additions append to the current one under the repository's lock.
+ * Concurrent refreshes of the same number of questions, and concurrent cache misses asking
+ * Claude for the same batch size, share one in-flight generation rather than each calling Claude.
+ */
 @Repository
 @Primary
 public class ClaudeQuestionRepository implements QuestionRepository {
     private static final Logger logger = LoggerFactory.getLogger(ClaudeQuestionRepository.class);
-    private static final int BATCH_SIZE = 5;
+    private static final Executor STREAM_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    public static final String CACHE_COUNTER = "popm.questions.cache";
+    public static final String FALLBACKS_COUNTER = "popm.questions.fallbacks";
+    public static final String REFRESH_TIMER = "popm.questions.refresh";
+    public static final String COALESCED_COUNTER = "popm.questions.coalesced";
 
     private final ClaudeService claudeService;
     private final MockQuestionRepository mockRepository;
-    private List<Question> cachedQuestions = null;
+    private final BatchGenerationEngine generationEngine;
+    private final GenerationController generationController;
+    private final QuestionStore questionStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NearDuplicateIndex duplicateIndex;
+    private final Deque<Question> unseenQuestions = new ConcurrentLinkedDeque<>();
+    private final TopicIndex storeTopics = new TopicIndex();
+    private final QuestionIdIndex storeIds = new QuestionIdIndex();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter fallbacks;
+    private final Timer refreshTimer;
+    private final boolean offHeapCache;
+    private final MemoryTier memoryTier = new MemoryTier();
+    private final TieredQuestionRepository tiers;
+    private final SingleFlight<Integer, RefreshResult> refreshFlight;
+    private final SingleFlight<Integer, List<Question>> generateFlight;
+    private volatile CachedQuestions cachedQuestions = null;
     
     @Autowired
-    public ClaudeQuestionRepository(ClaudeService claudeService, MockQuestionRepository mockRepository) {
+    public ClaudeQuestionRepository(ClaudeService claudeService, MockQuestionRepository mockRepository,
+                                    BatchGenerationEngine generationEngine, GenerationController generationController,
+                                    QuestionStore questionStore,
+                                    ApplicationEventPublisher eventPublisher, NearDuplicateIndex duplicateIndex,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${popm.cache.off-heap:false}") boolean offHeapCache,
+                                    @Value("${popm.tiers.claude-budget:20s}") Duration claudeBudget) {
         this.claudeService = claudeService;
         this.mockRepository = mockRepository;
+        this.generationEngine = generationEngine;
+        this.generationController = generationController;
+        this.questionStore = questionStore;
+        this.eventPublisher = eventPublisher;
+        this.duplicateIndex = duplicateIndex;
+        this.offHeapCache = offHeapCache;
+        this.cacheHits = Counter.builder(CACHE_COUNTER).tag("result", "hit")
+                .description("Question requests served from the cache or question bank").register(meterRegistry);
+        this.cacheMisses = Counter.builder(CACHE_COUNTER).tag("result", "miss")
+                .description("Question requests that had to wait for Claude").register(meterRegistry);
+        this.fallbacks = Counter.builder(FALLBACKS_COUNTER)
+                .description("Question requests answered with mock questions because Claude failed").register(meterRegistry);
+        this.refreshTimer = Timer.builder(REFRESH_TIMER)
+                .description("Time taken to refresh the question cache").register(meterRegistry);
+        this.refreshFlight = new SingleFlight<>(Counter.builder(COALESCED_COUNTER).tag("work", "refresh")
+                .description("Requests that shared another caller's in-flight generation").register(meterRegistry));
+        this.generateFlight = new SingleFlight<>(Counter.builder(COALESCED_COUNTER).tag("work", "generate")
+                .description("Requests that shared another caller's in-flight generation").register(meterRegistry));
+        this.tiers = new TieredQuestionRepository(List.of(
+                new TieredQuestionRepository.Tier("memory", memoryTier, Duration.ZERO, false),
+                new TieredQuestionRepository.Tier("store", new StoreTier(), Duration.ZERO, false),
+                new TieredQuestionRepository.Tier("claude", new ClaudeTier(), claudeBudget, true),
+                new TieredQuestionRepository.Tier("mock", new FallbackTier(), Duration.ZERO, false)),
+                STREAM_EXECUTOR, meterRegistry);
+        indexStoreAsync(true);
     }
 
     @Override
     public List<Question> getAllQuestions() {
-        // Use cached questions if available
-        if (cachedQuestions != null && !cachedQuestions.isEmpty()) {
-            logger.debug("Returning {} cached questions", cachedQuestions.size());
-            return new ArrayList<>(cachedQuestions);
-        }
-        
+        (hasLocalQuestions() ? cacheHits : cacheMisses).increment();
+        return tiers.getAllQuestions();
+    }
+    
+    @Override
+    public CompletableFuture<Void> streamQuestions(int count, RandomGenerator random, Consumer<Question> consumer) {
+        // Served from memory or the question bank at once, otherwise Claude streams the exam so the
+        // first question can be shown while the rest are generated
+        (hasLocalQuestions() ? cacheHits : cacheMisses).increment();
+        AtomicInteger served = new AtomicInteger();
+        return tiers.streamQuestions(count, random, question -> {
+            served.incrementAndGet();
+            consumer.accept(question);
+        }).thenRun(() -> eventPublisher.publishEvent(new QuestionsServedEvent(served.get(), unseenQuestions.size())));
+    }
+    
+    @Override
+    public Question getQuestion(long id) {
+        return tiers.getQuestion(id);
+    }
+    
+    @Override
+    public long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+        return tiers.sampleIds(count, topics, excluded, random);
+    }
+    
+    /**
+     * The chain of question sources behind {@link #getAllQuestions()} and {@link #streamQuestions}.
+     */
+    public TieredQuestionRepository getTiers() {
+        return tiers;
+    }
+    
+    private boolean hasLocalQuestions() {
+        return !memoryTier.isEmpty() || !questionStore.isEmpty();
+    }
+    
+    /**
+     * Replace the cache with newly generated questions, dropping any that are near-duplicates
+     * of questions already in the bank. A refresh requested while another for the same number
+     * of questions is running waits for that one and returns its result.
+     */
+    public RefreshResult refreshQuestions(int requestedCount) {
+        return refreshFlight.run(requestedCount, () -> refreshTimer.record(() -> refresh(requestedCount)));
+    }
+    
+    private RefreshResult refresh(int requestedCount) {
+        List<Question> allQuestions = new ArrayList<>();
+        int generated = 0;
         try {
-            // Try to generate questions with Claude
-            logger.info("No cached questions available. Generating questions with Claude...");
-            List<Question> generatedQuestions = claudeService.generateQuestions(BATCH_SIZE);
+            logger.info("Refreshing questions - requesting {} new questions from Claude", requestedCount);
+            
+            // Get questions in concurrent batches to avoid token limitations, persisting each batch as it arrives
+            generated = generationEngine.generate(requestedCount, generationController.getBatchSize(), batch -> {
+                List<Question> distinct = rejectDuplicates(batch);
+                persist(distinct);
+                allQuestions.addAll(distinct);
+            }).size();
             
-            // Cache the generated questions
-            if (generatedQuestions != null && !generatedQuestions.isEmpty()) {
-                logger.info("Successfully generated {} questions with Claude", generatedQuestions.size());
-                cachedQuestions = new ArrayList<>(generatedQuestions);
-                return generatedQuestions;
+            if (!allQuestions.isEmpty()) {
+                logger.info("Successfully refreshed questions. Cached {} new questions", allQuestions.size());
+                replaceCache(allQuestions);
+                unseenQuestions.clear();
+                unseenQuestions.addAll(allQuestions);
             } else {
-                logger.warn("Claude returned empty question list");
+                logger.warn("Failed to refresh questions - Claude returned no new questions");
             }
         } catch (Exception e) {
-            logger.error("Error generating questions with Claude", e);
+            logger.error("Failed to refresh questions", e);
         }
         
-        // Fallback to mock questions if Claude fails
-        logger.info("Falling back to mock questions");
-        return mockRepository.getAllQuestions();
+        RefreshResult result = new RefreshResult(allQuestions.size(), generated - allQuestions.size());
+        logger.info("Refresh rejected {} of {} generated questions as near-duplicates ({}%)", result.duplicates(),
+                generated, String.format("%.1f", result.duplicateRate() * 100));
+        return result;
     }
     
-    public void refreshQuestions(int requestedCount) {
-        try {
-            logger.info("Refreshing questions - requesting {} new questions from Claude", requestedCount);
-            List<Question> allQuestions = new ArrayList<>();
-            
-            // Get questions in batches to avoid token limitations
-            int batchesNeeded = (int) Math.ceil((double) requestedCount / BATCH_SIZE);
-            logger.info("Fetching questions in {} batches of up to {} questions each", batchesNeeded, BATCH_SIZE);
-            
-            // Generate questions in batches
-            for (int i = 0; i < batchesNeeded && allQuestions.size() < requestedCount; i++) {
-                int remainingCount = requestedCount - allQuestions.size();
-                int batchCount = Math.min(remainingCount, BATCH_SIZE);
-                
-                logger.info("Generating batch {} of {}: {} questions", i+1, batchesNeeded, batchCount);
-                List<Question> batchQuestions = claudeService.generateQuestions(batchCount);
-                
-                if (batchQuestions != null && !batchQuestions.isEmpty()) {
-                    allQuestions.addAll(batchQuestions);
-                    logger.info("Batch {} complete, now have {} total questions", i+1, allQuestions.size());
+    /**
+     * Generate up to {@code count} questions and add them to the cache and the pool of
+     * unseen questions as each batch arrives. Returns the number of questions added.
+     */
+    public int replenish(int count) {
+        logger.info("Replenishing question pool with {} new questions", count);
+        List<Question> added = new ArrayList<>();
+        List<Question> generatedQuestions = generationEngine.generate(count, generationController.getBatchSize(), batch -> {
+            List<Question> distinct = rejectDuplicates(batch);
+            persist(distinct);
+            addToCache(distinct);
+            unseenQuestions.addAll(distinct);
+            added.addAll(distinct);
+        });
+        logger.info("Replenished question pool with {} questions ({} near-duplicates rejected), {} unseen",
+                added.size(), generatedQuestions.size() - added.size(), unseenQuestions.size());
+        return added.size();
+    }
+    
+    /**
+     * The number of generated questions that have not yet been served to an exam.
+     */
+    public int getUnseenCount() {
+        return unseenQuestions.size();
+    }
+    
+    public void clearCache() {
+        logger.info("Clearing question cache");
+        replaceCache(List.of());
+        unseenQuestions.clear();
+        duplicateIndex.clear();
+        indexStoreAsync(false);
+    }
+    
+    private List<Question> rejectDuplicates(List<Question> questions) {
+        List<Question> distinct = new ArrayList<>(questions.size());
+        for (Question question : questions) {
+            if (duplicateIndex.addIfDistinct(question)) {
+                distinct.add(question);
+            } else {
+                logger.debug("Rejected near-duplicate question: {}", question.getText());
+            }
+        }
+        return distinct;
+    }
+    
+    /**
+     * Index the questions already in the bank in the background, so start-up is not delayed.
+     * Topics are read without decoding questions, so the topic index is ready first; ids are
+     * indexed as questions are decoded for near-duplicate detection.
+     */
+    private void indexStoreAsync(boolean indexTopics) {
+        int stored = questionStore.size();
+        if (stored == 0) {
+            return;
+        }
+        STREAM_EXECUTOR.execute(() -> {
+            if (indexTopics) {
+                for (int position = 0; position < stored; position++) {
+                    storeTopics.add(position, questionStore.topic(position));
+                }
+                logger.debug("Indexed topics of {} stored questions", stored);
+            }
+            List<Question> questions = questionStore.asList();
+            for (int position = 0; position < stored; position++) {
+                Question question = questions.get(position);
+                if (indexTopics) {
+                    storeIds.add(position, question.getId());
+                }
+                duplicateIndex.addIfDistinct(question);
+            }
+            logger.debug("Indexed {} stored questions for near-duplicate detection", duplicateIndex.size());
+        });
+    }
+    
+    private void persist(List<Question> questions) {
+        int first = questionStore.append(questions);
+        if (first >= 0) {
+            for (int i = 0; i < questions.size(); i++) {
+                storeTopics.add(first + i, questions.get(i).getTopic());
+                storeIds.add(first + i, questions.get(i).getId());
+            }
+        }
+    }
+    
+    /**
+     * Build a new cache snapshot and publish it in one write, so readers see either the old
+     * questions or the new ones.
+     */
+    private synchronized void replaceCache(List<Question> questions) {
+        CachedQuestions replacement = null;
+        if (!questions.isEmpty()) {
+            replacement = new CachedQuestions(offHeapCache, questions.size());
+            replacement.addAll(questions);
+        }
+        cachedQuestions = replacement;
+    }
+    
+    /**
+     * Append questions not already cached to the current snapshot, or publish a new snapshot
+     * holding them if there is none yet. Returns those appended.
+     */
+    private synchronized List<Question> addToCache(List<Question> questions) {
+        if (questions.isEmpty()) {
+            return List.of();
+        }
+        CachedQuestions cached = cachedQuestions;
+        if (cached != null) {
+            return cached.addAll(questions);
+        }
+        cached = new CachedQuestions(offHeapCache, questions.size());
+        List<Question> added = cached.addAll(questions);
+        cachedQuestions = cached;
+        return added;
+    }
+    
+    private List<Question> takeUnseen(int count, List<Question> alreadySelected) {
+        Set<Long> selectedIds = new HashSet<>();
+        alreadySelected.forEach(question -> selectedIds.add(question.getId()));
+        List<Question> taken = new ArrayList<>(count);
+        Question question;
+        while (taken.size() < count && (question = unseenQuestions.poll()) != null) {
+            if (!selectedIds.contains(question.getId())) {
+                taken.add(question);
+            }
+        }
+        return taken;
+    }
+    
+    /**
+     * Pick up to {@code count} questions from the question bank, in proportion to the exam
+     * blueprint's topic weights, decoding only the chosen entries.
+     */
+    private List<Question> sampleStore(int count, List<Question> alreadySelected, RandomGenerator random) {
+        int[] positions = null;
+        // Until the stored topics have been indexed, fall back to uniform sampling
+        if (storeTopics.size() >= questionStore.size()) {
+            positions = storeTopics.sample(count, alreadySelected, random);
+        }
+        // Taken after sampling so that every indexed position is in the view
+        return sample(count, alreadySelected, random, questionStore.asList(), positions);
+    }
+    
+    /**
+     * Pick up to {@code count} cached questions in proportion to the exam blueprint's topic weights.
+     */
+    private List<Question> sampleCache(int count, List<Question> alreadySelected, RandomGenerator random) {
+        CachedQuestions cached = cachedQuestions;
+        if (cached == null) {
+            return List.of();
+        }
+        int[] positions = cached.topics.sample(count, alreadySelected, random);
+        // Taken after sampling so that every indexed position is in the view
+        return sample(count, alreadySelected, random, cached.bank.asList(), positions);
+    }
+    
+    /**
+     * Up to {@code count} of the available questions not already selected: those at the sampled
+     * positions first, then uniformly at random. Memory is proportional to {@code count}: random
+     * positions are tried a bounded number of times, then one reservoir-sampling pass fills any
+     * remaining shortfall.
+     */
+    private static List<Question> sample(int count, List<Question> alreadySelected, RandomGenerator random,
+                                         List<Question> available, int[] positions) {
+        if (count <= 0 || available.isEmpty()) {
+            return List.of();
+        }
+        Set<String> selectedTexts = new HashSet<>();
+        alreadySelected.forEach(question -> selectedTexts.add(question.getText()));
+        
+        List<Question> sampled = new ArrayList<>(count);
+        if (positions != null) {
+            for (int position : positions) {
+                Question question = available.get(position);
+                if (sampled.size() < count && selectedTexts.add(question.getText())) {
+                    sampled.add(question);
+                }
+            }
+        }
+        int attempts = 4 * (count - sampled.size()) + 16;
+        for (int attempt = 0; attempt < attempts && sampled.size() < count; attempt++) {
+            Question question = available.get(random.nextInt(available.size()));
+            if (selectedTexts.add(question.getText())) {
+                sampled.add(question);
+            }
+        }
+        if (sampled.size() < count) {
+            Question[] reservoir = new Question[count - sampled.size()];
+            int seen = 0;
+            for (Question question : available) {
+                if (selectedTexts.contains(question.getText())) {
+                    continue;
+                }
+                if (seen < reservoir.length) {
+                    reservoir[seen] = question;
                 } else {
-                    logger.warn("Batch {} returned no questions, stopping", i+1);
-                    break;
+                    int slot = random.nextInt(seen + 1);
+                    if (slot < reservoir.length) {
+                        reservoir[slot] = question;
+                    }
+                }
+                seen++;
+            }
+            for (int i = 0; i < Math.min(seen, reservoir.length); i++) {
+                if (selectedTexts.add(reservoir[i].getText())) {
+                    sampled.add(reservoir[i]);
                 }
-                
-                // Small delay between batches to avoid rate limiting
-                if (i < batchesNeeded - 1) {
-                    try {
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
+            }
+        }
+        return sampled;
+    }
+    
+    private static long[] ids(int[] positions, QuestionIdIndex index) {
+        long[] ids = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            ids[i] = index.id(positions[i]);
+        }
+        return ids;
+    }
+    
+    /**
+     * One snapshot of the cache: the questions and their topic and id indexes. Appends go to the
+     * bank before the indexes, so every indexed position can be read.
+     */
+    private static final class CachedQuestions {
+        private final CompactQuestionBank bank;
+        private final TopicIndex topics = new TopicIndex();
+        private final QuestionIdIndex ids = new QuestionIdIndex();
+        
+        CachedQuestions(boolean offHeap, int initialCapacity) {
+            this.bank = new CompactQuestionBank(offHeap, initialCapacity);
+        }
+        
+        List<Question> addAll(List<Question> questions) {
+            List<Question> added = new ArrayList<>(questions.size());
+            for (Question question : questions) {
+                if (ids.position(question.getId()) < 0) {
+                    int position = bank.append(question);
+                    topics.add(position, question.getTopic());
+                    ids.add(position, question.getId());
+                    added.add(question);
+                }
+            }
+            return added;
+        }
+    }
+    
+    /**
+     * Questions generated but not yet served, then the rest of the cache.
+     */
+    private final class MemoryTier implements QuestionTier {
+        @Override
+        public boolean isEmpty() {
+            CachedQuestions cached = cachedQuestions;
+            return unseenQuestions.isEmpty() && (cached == null || cached.bank.isEmpty());
+        }
+        
+        @Override
+        public List<Question> getAllQuestions() {
+            CachedQuestions cached = cachedQuestions;
+            if (cached == null || cached.bank.isEmpty()) {
+                return List.of();
+            }
+            logger.debug("Returning {} cached questions", cached.bank.size());
+            return cached.bank.asList();
+        }
+        
+        @Override
+        public Question getQuestion(long id) {
+            CachedQuestions cached = cachedQuestions;
+            int position = cached != null ? cached.ids.position(id) : -1;
+            return position >= 0 ? cached.bank.get(position) : null;
+        }
+        
+        @Override
+        public long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+            CachedQuestions cached = cachedQuestions;
+            if (cached == null) {
+                return new long[0];
+            }
+            int[] positions = cached.topics.sample(count, topics, position -> excluded.test(cached.ids.id(position)), random);
+            return ids(positions, cached.ids);
+        }
+        
+        @Override
+        public CompletableFuture<Void> streamQuestions(int count, List<Question> alreadySelected, RandomGenerator random,
+                                                       Consumer<Question> consumer) {
+            List<Question> selected = takeUnseen(count, alreadySelected);
+            if (selected.size() < count) {
+                List<Question> excluded = new ArrayList<>(alreadySelected);
+                excluded.addAll(selected);
+                selected.addAll(sampleCache(count - selected.size(), excluded, random));
+            }
+            selected.forEach(consumer);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        @Override
+        public void promote(List<Question> questions, boolean served) {
+            // Callers that shared one generation each promote its questions, so only new ones count
+            List<Question> added = addToCache(questions);
+            if (!served) {
+                unseenQuestions.addAll(added);
+            }
+        }
+    }
+    
+    /**
+     * The on-disk question bank, decoding questions on access.
+     */
+    private final class StoreTier implements QuestionTier {
+        @Override
+        public boolean isEmpty() {
+            return questionStore.isEmpty();
+        }
+        
+        @Override
+        public List<Question> getAllQuestions() {
+            logger.debug("Returning {} stored questions", questionStore.size());
+            return questionStore.asList();
+        }
+        
+        @Override
+        public Question getQuestion(long id) {
+            int position = storeIds.position(id);
+            if (position >= 0) {
+                return questionStore.get(position);
+            }
+            // Questions not yet indexed are decoded to compare their ids
+            int stored = questionStore.size();
+            for (position = 0; position < stored && storeIds.size() < stored; position++) {
+                if (!storeIds.contains(position)) {
+                    Question question = questionStore.get(position);
+                    if (question.getId() == id) {
+                        return question;
                     }
                 }
             }
-            
-            if (!allQuestions.isEmpty()) {
-                logger.info("Successfully refreshed questions. Cached {} new questions", allQuestions.size());
-                cachedQuestions = new ArrayList<>(allQuestions);
-            } else {
-                logger.warn("Failed to refresh questions - Claude returned empty results for all batches");
+            return null;
+        }
+        
+        @Override
+        public long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+            int stored = questionStore.size();
+            if (storeTopics.size() < stored || storeIds.size() < stored) {
+                // Until the bank has been indexed, sample it by decoding every question
+                return QuestionSampling.sampleIds(questionStore.asList(), count, topics, excluded, random);
             }
-        } catch (Exception e) {
-            logger.error("Failed to refresh questions", e);
+            return ids(storeTopics.sample(count, topics, position -> excluded.test(storeIds.id(position)), random), storeIds);
+        }
+        
+        @Override
+        public CompletableFuture<Void> streamQuestions(int count, List<Question> alreadySelected, RandomGenerator random,
+                                                       Consumer<Question> consumer) {
+            sampleStore(count, alreadySelected, random).forEach(consumer);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        @Override
+        public void promote(List<Question> questions, boolean served) {
+            persist(questions);
         }
     }
     
-    public void clearCache() {
-        logger.info("Clearing question cache");
-        cachedQuestions = null;
+    /**
+     * New questions from Claude, with near-duplicates of the bank rejected.
+     */
+    private final class ClaudeTier implements QuestionTier {
+        @Override
+        public List<Question> getAllQuestions() {
+            int batchSize = generationController.getBatchSize();
+            return generateFlight.run(batchSize, () -> generate(batchSize));
+        }
+        
+        private List<Question> generate(int batchSize) {
+            try {
+                logger.info("No cached questions available. Generating questions with Claude...");
+                List<Question> generatedQuestions = claudeService.generateQuestions(batchSize);
+                if (generatedQuestions != null && !generatedQuestions.isEmpty()) {
+                    List<Question> distinct = rejectDuplicates(generatedQuestions);
+                    logger.info("Successfully generated {} questions with Claude", distinct.size());
+                    return distinct;
+                }
+                logger.warn("Claude returned empty question list");
+            } catch (Exception e) {
+                logger.error("Error generating questions with Claude", e);
+            }
+            return List.of();
+        }
+        
+        @Override
+        public CompletableFuture<Void> streamQuestions(int count, List<Question> alreadySelected, RandomGenerator random,
+                                                       Consumer<Question> consumer) {
+            return CompletableFuture.runAsync(() -> {
+                int streamed = 0;
+                try {
+                    logger.info("Streaming {} questions from Claude...", count);
+                    while (streamed < count) {
+                        int batchCount = Math.min(count - streamed, generationController.getBatchSize());
+                        int[] distinct = {0};
+                        claudeService.streamQuestions(batchCount, question -> {
+                            if (duplicateIndex.addIfDistinct(question)) {
+                                distinct[0]++;
+                                consumer.accept(question);
+                            }
+                        });
+                        streamed += distinct[0];
+                        if (distinct[0] == 0) {
+                            logger.warn("Claude stream returned no new questions, stopping");
+                            break;
+                        }
+                    }
+                } catch (Exception e) {
+                    logger.error("Error streaming questions from Claude", e);
+                }
+                if (streamed > 0) {
+                    logger.info("Successfully streamed {} questions with Claude", streamed);
+                }
+            }, STREAM_EXECUTOR);
+        }
+    }
+    
+    /**
+     * The mock questions, for when nothing else could answer.
+     */
+    private final class FallbackTier implements QuestionTier {
+        @Override
+        public List<Question> getAllQuestions() {
+            logger.info("Falling back to mock questions");
+            fallbacks.increment();
+            return mockRepository.getAllQuestions();
+        }
+        
+        @Override
+        public CompletableFuture<Void> streamQuestions(int count, List<Question> alreadySelected, RandomGenerator random,
+                                                       Consumer<Question> consumer) {
+            logger.info("Falling back to mock questions");
+            fallbacks.increment();
+            return mockRepository.streamQuestions(count, alreadySelected, random, consumer);
+        }
+        
+        @Override
+        public Question getQuestion(long id) {
+            return mockRepository.getQuestion(id);
+        }
+        
+        @Override
+        public long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+            return mockRepository.sampleIds(count, topics, excluded, random);
+        }
     }
 }
@@ -0,0 +1,286 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An append-only bank of questions held in a few primitive arrays instead of an object graph.
+ * <p>
+ * Every string of every question (text, explanation, then each choice) is written as UTF-8 to
+ * one shared arena, on or off the heap, and located by its start offset; a string ends where the
+ * next one starts. Each question keeps the index of its first string, its correct choice as a
+ * byte and its topic as a byte, so the correct answer and topic are O(1) reads that decode
+ * nothing. A question costs about 30 bytes plus its UTF-8 text, against several hundred bytes of
+ * object headers, references and lists for the equivalent {@link Question} graph.
+ * <p>
+ * Appends are synchronized; reads are not. The arrays are replaced, never resized in place, and
+ * the size is published last, so a reader sees every question below the size it read.
+ */
+public final class CompactQuestionBank {
+    private static final int FIXED_STRINGS = 2;
+    private static final byte NO_TOPIC = -1;
+    private static final byte NULL_TEXT = 1;
+    private static final byte NULL_EXPLANATION = 2;
+    private static final Topic[] TOPICS = Topic.values();
+    private static final int MAX_ARENA_SIZE = Integer.MAX_VALUE - 8;
+
+    private final boolean offHeap;
+    private volatile ByteBuffer arena;
+    private volatile int[] stringStarts;
+    private volatile int[] firstStrings;
+    private volatile byte[] correctChoices;
+    private volatile byte[] topics;
+    private volatile byte[] flags;
+    private int arenaEnd = 0;
+    private int stringCount = 0;
+    private volatile int count = 0;
+
+    public CompactQuestionBank() {
+        this(false, 16);
+    }
+
+    /**
+     * @param offHeap         keep the text arena in direct memory rather than on the heap
+     * @param initialCapacity the number of questions to size the arrays for
+     */
+    public CompactQuestionBank(boolean offHeap, int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.offHeap = offHeap;
+        this.arena = allocate(capacity * 128);
+        this.stringStarts = new int[capacity * (FIXED_STRINGS + 4) + 1];
+        this.firstStrings = new int[capacity + 1];
+        this.correctChoices = new byte[capacity];
+        this.topics = new byte[capacity];
+        this.flags = new byte[capacity];
+    }
+
+    /**
+     * A bank holding exactly the given questions, with no spare capacity.
+     */
+    public static CompactQuestionBank of(List<Question> questions, boolean offHeap) {
+        CompactQuestionBank bank = new CompactQuestionBank(offHeap, questions.size());
+        bank.appendAll(questions);
+        bank.trimToSize();
+        return bank;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Append a question and return its position.
+     *
+     * @throws IllegalArgumentException if the question has more than 127 choices
+     */
+    public synchronized int append(Question question) {
+        List<Choice> choices = question.getChoices();
+        if (choices.size() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("A compact question can have at most 127 choices");
+        }
+        int position = count;
+        int strings = FIXED_STRINGS + choices.size();
+        ensureCapacity(position + 1, stringCount + strings);
+
+        firstStrings[position] = stringCount;
+        putString(question.getText());
+        putString(question.getExplanation());
+        for (Choice choice : choices) {
+            putString(choice.getText());
+        }
+        firstStrings[position + 1] = stringCount;
+        correctChoices[position] = (byte) question.getCorrectIndex();
+        topics[position] = question.getTopic() != null ? (byte) question.getTopic().ordinal() : NO_TOPIC;
+        flags[position] = (byte) ((question.getText() == null ? NULL_TEXT : 0)
+                | (question.getExplanation() == null ? NULL_EXPLANATION : 0));
+        count = position + 1;
+        return position;
+    }
+
+    /**
+     * Append questions in order and return the position of the first, or -1 if there were none.
+     */
+    public synchronized int appendAll(List<Question> questions) {
+        int first = questions.isEmpty() ? -1 : count;
+        for (Question question : questions) {
+            append(question);
+        }
+        return first;
+    }
+
+    /**
+     * Decode the question at the given position.
+     */
+    public Question get(int position) {
+        checkIndex(position);
+        int first = firstStrings[position];
+        int choiceCount = firstStrings[position + 1] - first - FIXED_STRINGS;
+        int correct = correctChoices[position];
+        List<Choice> choices = new ArrayList<>(choiceCount);
+        for (int i = 0; i < choiceCount; i++) {
+            choices.add(new Choice(string(first + FIXED_STRINGS + i), i == correct));
+        }
+        return new Question(text(position), choices, explanation(position), topic(position));
+    }
+
+    public String text(int position) {
+        checkIndex(position);
+        return (flags[position] & NULL_TEXT) != 0 ? null : string(firstStrings[position]);
+    }
+
+    public String explanation(int position) {
+        checkIndex(position);
+        return (flags[position] & NULL_EXPLANATION) != 0 ? null : string(firstStrings[position] + 1);
+    }
+
+    public int choiceCount(int position) {
+        checkIndex(position);
+        return firstStrings[position + 1] - firstStrings[position] - FIXED_STRINGS;
+    }
+
+    public String choiceText(int position, int choice) {
+        int choiceCount = choiceCount(position);
+        if (choice < 0 || choice >= choiceCount) {
+            throw new IndexOutOfBoundsException("Choice " + choice + " of " + choiceCount);
+        }
+        return string(firstStrings[position] + FIXED_STRINGS + choice);
+    }
+
+    /**
+     * The position of the correct choice, or -1 if no choice is marked correct.
+     */
+    public int correctIndex(int position) {
+        checkIndex(position);
+        return correctChoices[position];
+    }
+
+    public Topic topic(int position) {
+        checkIndex(position);
+        byte topic = topics[position];
+        return topic == NO_TOPIC ? null : TOPICS[topic];
+    }
+
+    /**
+     * A read-only view of the questions appended so far, decoding each question on access.
+     */
+    public List<Question> asList() {
+        int size = count;
+        return new BankList(size);
+    }
+
+    /**
+     * Bytes held by the arena and the index arrays, including unused capacity.
+     */
+    public long allocatedBytes() {
+        return arena.capacity() + (long) stringStarts.length * Integer.BYTES
+                + (long) firstStrings.length * Integer.BYTES
+                + correctChoices.length + topics.length + flags.length;
+    }
+
+    /**
+     * Release spare capacity once no more questions are expected.
+     */
+    public synchronized void trimToSize() {
+        if (arena.capacity() > arenaEnd) {
+            ByteBuffer trimmed = allocate(arenaEnd);
+            trimmed.put(0, arena, 0, arenaEnd);
+            arena = trimmed;
+        }
+        stringStarts = Arrays.copyOf(stringStarts, stringCount + 1);
+        firstStrings = Arrays.copyOf(firstStrings, count + 1);
+        correctChoices = Arrays.copyOf(correctChoices, count);
+        topics = Arrays.copyOf(topics, count);
+        flags = Arrays.copyOf(flags, count);
+    }
+
+    private void checkIndex(int position) {
+        int size = count;
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Question " + position + " of " + size);
+        }
+    }
+
+    private String string(int index) {
+        int[] starts = stringStarts;
+        int start = starts[index];
+        byte[] utf8 = new byte[starts[index + 1] - start];
+        arena.get(start, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private void putString(String value) {
+        byte[] utf8 = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if ((long) arenaEnd + utf8.length > arena.capacity()) {
+            growArena((long) arenaEnd + utf8.length);
+        }
+        arena.put(arenaEnd, utf8);
+        arenaEnd += utf8.length;
+        stringCount++;
+        stringStarts[stringCount] = arenaEnd;
+    }
+
+    private void ensureCapacity(int questions, int strings) {
+        if (questions + 1 > firstStrings.length || questions > correctChoices.length) {
+            int capacity = Math.max(questions + 1, firstStrings.length * 2);
+            firstStrings = Arrays.copyOf(firstStrings, capacity);
+            correctChoices = Arrays.copyOf(correctChoices, capacity);
+            topics = Arrays.copyOf(topics, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        if (strings + 1 > stringStarts.length) {
+            stringStarts = Arrays.copyOf(stringStarts, Math.max(strings + 1, stringStarts.length * 2));
+        }
+    }
+
+    private void growArena(long required) {
+        if (required > MAX_ARENA_SIZE) {
+            throw new IllegalStateException("Compact question bank exceeds 2GB of text");
+        }
+        long capacity = Math.max(required, (long) arena.capacity() * 2);
+        ByteBuffer grown = allocate((int) Math.min(MAX_ARENA_SIZE, capacity));
+        grown.put(0, arena, 0, arenaEnd);
+        arena = grown;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private class BankList extends AbstractList<Question> implements RandomAccess {
+        private final int size;
+
+        BankList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Question get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Question " + index + " of " + size);
+            }
+            return CompactQuestionBank.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
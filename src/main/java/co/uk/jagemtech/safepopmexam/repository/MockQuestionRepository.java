@@ -2,17 +2,59 @@ package co.uk.jagemtech.safepopmexam.repository;
 
 import co.uk.jagemtech.safepopmexam.model.Choice;
 import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.random.RandomGenerator;
 
+/**
+ * A fixed set of sample questions, used when no generated questions are available. Questions
+ * are immutable, so the set is built once and shared.
+ */
 @Repository
-public class MockQuestionRepository implements QuestionRepository {
+public class MockQuestionRepository implements QuestionRepository, QuestionTier {
+
+    private static final List<Question> QUESTIONS = createQuestions();
 
     @Override
     public List<Question> getAllQuestions() {
+        return QUESTIONS;
+    }
+
+    @Override
+    public CompletableFuture<Void> streamQuestions(int count, List<Question> alreadySelected, RandomGenerator random,
+                                                   Consumer<Question> consumer) {
+        Set<Long> selectedIds = new HashSet<>();
+        alreadySelected.forEach(question -> selectedIds.add(question.getId()));
+        List<Question> questions = new ArrayList<>(QUESTIONS);
+        Collections.shuffle(questions, random);
+        questions.stream()
+                .filter(question -> !selectedIds.contains(question.getId()))
+                .limit(count)
+                .forEach(consumer);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public Question getQuestion(long id) {
+        return QuestionRepository.super.getQuestion(id);
+    }
+
+    @Override
+    public long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+        return QuestionRepository.super.sampleIds(count, topics, excluded, random);
+    }
+
+    private static List<Question> createQuestions() {
         List<Question> questions = new ArrayList<>();
         
         // Question 1
@@ -24,7 +66,8 @@ public class MockQuestionRepository implements QuestionRepository {
                 new Choice("Middle-out implementation focusing on program managers", false),
                 new Choice("Implementation through external consultants only", false)
             ),
-            "SAFe advocates a top-down implementation approach, starting with training leaders, as this accelerates organizational change."
+            "SAFe advocates a top-down implementation approach, starting with training leaders, as this accelerates organizational change.",
+            Topic.ROLES_AND_RESPONSIBILITIES
         ));
         
         // Question 2
@@ -36,7 +79,8 @@ public class MockQuestionRepository implements QuestionRepository {
                 new Choice("Respect for People, Flow, Innovation, Relentless Improvement", false),
                 new Choice("Trust, Value, Efficiency, Delivery", false)
             ),
-            "The four Core Values of SAFe are Alignment, Built-in Quality, Transparency, and Program Execution."
+            "The four Core Values of SAFe are Alignment, Built-in Quality, Transparency, and Program Execution.",
+            Topic.ROLES_AND_RESPONSIBILITIES
         ));
         
         // Question 3
@@ -48,7 +92,8 @@ public class MockQuestionRepository implements QuestionRepository {
                 new Choice("To evaluate the performance of individual team members", false),
                 new Choice("To create a project budget for the fiscal year", false)
             ),
-            "PI Planning aligns teams to a common mission and creates the PI plan with objectives for the upcoming Program Increment."
+            "PI Planning aligns teams to a common mission and creates the PI plan with objectives for the upcoming Program Increment.",
+            Topic.PI_PLANNING_PREPARATION
         ));
         
         // Question 4
@@ -60,7 +105,8 @@ public class MockQuestionRepository implements QuestionRepository {
                 new Choice("Defining and prioritizing the team backlog", true),
                 new Choice("Conducting performance reviews of team members", false)
             ),
-            "The Product Owner is responsible for defining Stories and prioritizing the Team Backlog to streamline the execution of Program priorities."
+            "The Product Owner is responsible for defining Stories and prioritizing the Team Backlog to streamline the execution of Program priorities.",
+            Topic.ROLES_AND_RESPONSIBILITIES
         ));
         
         // Question 5
@@ -72,9 +118,10 @@ public class MockQuestionRepository implements QuestionRepository {
                 new Choice("11-15", false),
                 new Choice("There is no recommended number", false)
             ),
-            "SAFe recommends 1-5 ARTs per Value Stream, with 50-125 people per ART."
+            "SAFe recommends 1-5 ARTs per Value Stream, with 50-125 people per ART.",
+            Topic.ROLES_AND_RESPONSIBILITIES
         ));
         
-        return questions;
+        return List.copyOf(questions);
     }
 }
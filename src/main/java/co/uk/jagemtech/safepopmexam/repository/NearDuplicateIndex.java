@@ -0,0 +1,205 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MinHash/LSH index for spotting questions that are paraphrases of ones already in the bank.
+ * <p>
+ * Each question's stem and choice text is normalised and split into word-pair shingles,
+ * which are reduced to a {@value #NUM_HASHES}-value MinHash signature. Signatures are split
+ * into {@value #BANDS} bands; two questions become candidates when any band matches, and a
+ * candidate is a near-duplicate when the share of matching MinHash values (an estimate of
+ * the Jaccard similarity of their shingles) reaches {@code popm.dedup.threshold}. A lookup
+ * only compares against the few candidates in matching buckets, so its cost does not grow
+ * with the size of the bank.
+ */
+@Component
+public class NearDuplicateIndex {
+    static final int NUM_HASHES = 64;
+    static final int BANDS = 16;
+    private static final int ROWS = NUM_HASHES / BANDS;
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final double threshold;
+    private final List<int[]> signatures = new ArrayList<>();
+    private final List<Map<Long, int[]>> buckets = new ArrayList<>(BANDS);
+
+    public NearDuplicateIndex(@Value("${popm.dedup.threshold:0.6}") double threshold) {
+        this.threshold = threshold;
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Add the question unless it is a near-duplicate of one already indexed.
+     *
+     * @return true if the question was added, false if it was rejected as a near-duplicate
+     */
+    public synchronized boolean addIfDistinct(Question question) {
+        int[] signature = signature(question);
+        if (findSimilar(signature) >= 0) {
+            return false;
+        }
+        add(signature);
+        return true;
+    }
+
+    public synchronized boolean isNearDuplicate(Question question) {
+        return findSimilar(signature(question)) >= 0;
+    }
+
+    public synchronized int size() {
+        return signatures.size();
+    }
+
+    public synchronized void clear() {
+        signatures.clear();
+        buckets.forEach(Map::clear);
+    }
+
+    private int findSimilar(int[] signature) {
+        for (int band = 0; band < BANDS; band++) {
+            int[] ids = buckets.get(band).get(bandKey(signature, band));
+            if (ids == null) {
+                continue;
+            }
+            for (int i = 1; i <= ids[0]; i++) {
+                if (similarity(signature, signatures.get(ids[i])) >= threshold) {
+                    return ids[i];
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void add(int[] signature) {
+        int id = signatures.size();
+        signatures.add(signature);
+        for (int band = 0; band < BANDS; band++) {
+            // Bucket entries are growable int arrays whose first element holds the count
+            buckets.get(band).merge(bandKey(signature, band), new int[] {1, id}, (ids, single) -> {
+                if (ids[0] + 1 == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[++ids[0]] = id;
+                return ids;
+            });
+        }
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int matches = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                matches++;
+            }
+        }
+        return (double) matches / NUM_HASHES;
+    }
+
+    static int[] signature(Question question) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        ShingleHasher hasher = new ShingleHasher(signature);
+        hasher.accept(question.getText());
+        if (question.getChoices() != null) {
+            for (Choice choice : question.getChoices()) {
+                hasher.accept(choice.getText());
+            }
+        }
+        hasher.finish();
+        return signature;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = key * 31 + signature[row];
+        }
+        return mix(key);
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Splits each field into normalised words (lower case letters and digits) and folds every
+     * pair of adjacent words into the signature, without allocating per shingle. Shingles do
+     * not span fields, so choices that merely share a prefix such as "Option" stay distinct.
+     */
+    private static class ShingleHasher {
+        private final int[] signature;
+        private boolean emitted = false;
+
+        ShingleHasher(int[] signature) {
+            this.signature = signature;
+        }
+
+        void accept(String text) {
+            if (text == null) {
+                return;
+            }
+            long previousWord = 0;
+            long word = 0;
+            int words = 0;
+            boolean inWord = false;
+            for (int i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    word = word * 131 + c;
+                    inWord = true;
+                } else if (inWord) {
+                    if (words > 0) {
+                        fold(previousWord * 31 + word);
+                    }
+                    previousWord = word;
+                    word = 0;
+                    words++;
+                    inWord = false;
+                }
+            }
+            // A single-word field is hashed as its own shingle
+            if (words == 1) {
+                fold(previousWord);
+            }
+        }
+
+        void finish() {
+            if (!emitted) {
+                fold(0);
+            }
+        }
+
+        private void fold(long shingle) {
+            emitted = true;
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int value = (int) (mix(shingle ^ SEEDS[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+    }
+}
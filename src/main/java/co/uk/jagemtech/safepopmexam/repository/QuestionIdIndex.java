@@ -0,0 +1,108 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Question ids of a bank by position, and positions by id, held in primitive arrays rather than
+ * a map of boxed entries, which takes about half the memory and no allocation per lookup.
+ * Positions may be added in any order. If two positions share an id, lookups find the first added.
+ */
+class QuestionIdIndex {
+    private static final int NOT_FOUND = -1;
+
+    private long[] ids = new long[16];
+    private final BitSet indexed = new BitSet();
+    private long[] keys = new long[32];
+    // Position + 1, so that zero marks an empty slot
+    private int[] slots = new int[32];
+    private int size = 0;
+
+    synchronized void add(int position, long id) {
+        if (position >= ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(ids.length * 2, position + 1));
+        }
+        ids[position] = id;
+        if (indexed.get(position)) {
+            return;
+        }
+        indexed.set(position);
+        size++;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        insert(id, position);
+    }
+
+    /**
+     * The number of positions indexed.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Whether the position has been indexed.
+     */
+    synchronized boolean contains(int position) {
+        return indexed.get(position);
+    }
+
+    /**
+     * The id of the question at an indexed position.
+     */
+    synchronized long id(int position) {
+        return ids[position];
+    }
+
+    /**
+     * The position of the question with this id, or -1 if no indexed question has it.
+     */
+    synchronized int position(long id) {
+        int mask = slots.length - 1;
+        for (int slot = mix(id) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return slots[slot] - 1;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    synchronized void clear() {
+        ids = new long[16];
+        indexed.clear();
+        keys = new long[32];
+        slots = new int[32];
+        size = 0;
+    }
+
+    private void insert(long id, int position) {
+        int mask = slots.length - 1;
+        int slot = mix(id) & mask;
+        while (slots[slot] != 0) {
+            if (keys[slot] == id) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        slots[slot] = position + 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new long[capacity];
+        slots = new int[capacity];
+        for (int slot = 0; slot < oldSlots.length; slot++) {
+            if (oldSlots[slot] != 0) {
+                insert(oldKeys[slot], oldSlots[slot] - 1);
+            }
+        }
+    }
+
+    private static int mix(long id) {
+        long hash = id * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
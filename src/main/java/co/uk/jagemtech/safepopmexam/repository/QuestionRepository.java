@@ -1,8 +1,47 @@
 package co.uk.jagemtech.safepopmexam.repository;
 
 import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.random.RandomGenerator;
 
 public interface QuestionRepository {
     List<Question> getAllQuestions();
+
+    /**
+     * Deliver up to {@code count} questions, chosen using {@code random}, to the consumer as
+     * they become available. The returned future completes once no more questions will be delivered.
+     */
+    default CompletableFuture<Void> streamQuestions(int count, RandomGenerator random, Consumer<Question> consumer) {
+        getQuestions(sampleIds(count, Set.of(), id -> false, random)).forEach(consumer);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * The question with this id, or null if the repository does not have it.
+     */
+    default Question getQuestion(long id) {
+        return QuestionSampling.find(getAllQuestions(), id);
+    }
+
+    /**
+     * The ids of up to {@code count} questions chosen uniformly at random from the given topics
+     * (every question when {@code topics} is empty), skipping those whose ids are excluded. Only
+     * questions already available are sampled; nothing is generated.
+     */
+    default long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+        return QuestionSampling.sampleIds(getAllQuestions(), count, topics, excluded, random);
+    }
+
+    /**
+     * A view of the questions with the given ids, looked up as they are read rather than copied.
+     */
+    default List<Question> getQuestions(long[] ids) {
+        return QuestionSampling.view(ids, this::getQuestion);
+    }
 }
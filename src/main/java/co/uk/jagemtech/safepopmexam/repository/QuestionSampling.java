@@ -0,0 +1,87 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Sampling and lookup by id over a list of questions, for repositories without an index.
+ * Memory is proportional to the sample, not the list.
+ */
+final class QuestionSampling {
+
+    private QuestionSampling() {
+    }
+
+    /**
+     * Up to {@code count} ids drawn uniformly from the questions in the given topics (all of them
+     * when {@code topics} is empty) that are not excluded, in random order.
+     */
+    static long[] sampleIds(List<Question> questions, int count, Set<Topic> topics, LongPredicate excluded,
+                            RandomGenerator random) {
+        if (count <= 0) {
+            return new long[0];
+        }
+        // Algorithm R, then a shuffle so that the first ids are not biased towards the list's head
+        long[] sampled = new long[count];
+        int seen = 0;
+        for (Question question : questions) {
+            if ((!topics.isEmpty() && !topics.contains(question.getTopic())) || excluded.test(question.getId())) {
+                continue;
+            }
+            if (seen < count) {
+                sampled[seen] = question.getId();
+            } else {
+                int slot = random.nextInt(seen + 1);
+                if (slot < count) {
+                    sampled[slot] = question.getId();
+                }
+            }
+            seen++;
+        }
+        int found = Math.min(seen, count);
+        for (int i = found - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long id = sampled[i];
+            sampled[i] = sampled[j];
+            sampled[j] = id;
+        }
+        return found < count ? Arrays.copyOf(sampled, found) : sampled;
+    }
+
+    /**
+     * The question with this id, or null.
+     */
+    static Question find(List<Question> questions, long id) {
+        for (Question question : questions) {
+            if (question.getId() == id) {
+                return question;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A view of the questions with the given ids, each looked up when it is read.
+     */
+    static List<Question> view(long[] ids, LongFunction<Question> lookup) {
+        return new AbstractList<>() {
+            @Override
+            public Question get(int index) {
+                return lookup.apply(ids[index]);
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+}
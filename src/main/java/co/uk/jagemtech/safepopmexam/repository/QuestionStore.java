@@ -0,0 +1,379 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only store of generated questions.
+ * <p>
+ * Questions are written to a log file as {@code [length][crc32][payload]} records and the
+ * offset of each record is appended to a companion {@code .idx} file. On startup the index
+ * is read and the log is memory-mapped, so opening a large bank does not decode any
+ * questions; they are decoded on demand. Records are forced to disk before they are
+ * indexed, and any torn record left by a crash is detected by its checksum and truncated.
+ */
+@Component
+public class QuestionStore {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionStore.class);
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private final boolean enabled;
+    private FileChannel log;
+    private FileChannel index;
+    private MappedByteBuffer mapped;
+    private volatile long[] offsets = new long[0];
+    private volatile int count = 0;
+    private long logEnd = 0;
+
+    public QuestionStore(@Value("${popm.store.enabled:false}") boolean enabled,
+                         @Value("${popm.store.path:safe-popm-exam-questions.bank}") String path) {
+        this.enabled = enabled;
+        if (enabled) {
+            open(Path.of(path));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Decode the question stored at the given position.
+     */
+    public Question get(int position) {
+        int size = count;
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Question " + position + " of " + size);
+        }
+        return decode(read(offsets[position]));
+    }
+
+    /**
+     * The topic of the question stored at the given position, read without decoding the question.
+     */
+    public Topic topic(int position) {
+        int size = count;
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Question " + position + " of " + size);
+        }
+        ByteBuffer payload = read(offsets[position]);
+        skipString(payload);
+        skipString(payload);
+        return topic(payload.get());
+    }
+
+    /**
+     * A read-only view over the stored questions that decodes each question on access.
+     */
+    public List<Question> asList() {
+        int size = count;
+        return new StoredQuestionList(size);
+    }
+
+    /**
+     * Append questions to the log and force them to disk before they are indexed. Returns the
+     * position of the first appended question, or -1 if nothing was stored.
+     */
+    public synchronized int append(List<Question> questions) {
+        if (!enabled || questions.isEmpty()) {
+            return -1;
+        }
+
+        try {
+            long[] newOffsets = new long[questions.size()];
+            long position = logEnd;
+            for (int i = 0; i < questions.size(); i++) {
+                ByteBuffer record = encode(questions.get(i));
+                newOffsets[i] = position;
+                while (record.hasRemaining()) {
+                    position += log.write(record, position);
+                }
+            }
+            log.force(false);
+            logEnd = position;
+
+            ByteBuffer indexEntries = ByteBuffer.allocate(newOffsets.length * Long.BYTES);
+            for (long offset : newOffsets) {
+                indexEntries.putLong(offset);
+            }
+            indexEntries.flip();
+            long indexPosition = index.size();
+            while (indexEntries.hasRemaining()) {
+                indexPosition += index.write(indexEntries, indexPosition);
+            }
+
+            int first = count;
+            for (long offset : newOffsets) {
+                addOffset(offset);
+            }
+            logger.debug("Appended {} questions to store, {} stored", questions.size(), count);
+            return first;
+        } catch (IOException e) {
+            logger.error("Failed to append questions to store", e);
+            return -1;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            index.force(false);
+            index.close();
+            log.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close question store: {}", e.getMessage());
+        }
+    }
+
+    private void open(Path path) {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path indexPath = path.resolveSibling(path.getFileName() + ".idx");
+            log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            long logSize = log.size();
+            if (logSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Question store " + path + " exceeds 2GB");
+            }
+            mapped = log.map(FileChannel.MapMode.READ_ONLY, 0, logSize);
+
+            loadIndex(logSize);
+            recover(logSize);
+            logger.info("Opened question store {} with {} questions", path, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open question store " + path, e);
+        }
+    }
+
+    private void loadIndex(long logSize) throws IOException {
+        long entries = index.size() / Long.BYTES;
+        MappedByteBuffer indexBuffer = index.map(FileChannel.MapMode.READ_ONLY, 0, entries * Long.BYTES);
+        offsets = new long[(int) Math.max(16, entries)];
+        for (int i = 0; i < entries; i++) {
+            long offset = indexBuffer.getLong(i * Long.BYTES);
+            if (offset + HEADER_SIZE > logSize || offset + HEADER_SIZE + mapped.getInt((int) offset) > logSize) {
+                break;
+            }
+            offsets[count++] = offset;
+        }
+        if (count < entries) {
+            logger.warn("Question store index has {} entries beyond the log, dropping them", entries - count);
+        }
+        index.truncate((long) count * Long.BYTES);
+    }
+
+    /**
+     * Scan any records written after the last indexed one, indexing those that are intact
+     * and truncating the log at the first torn record.
+     */
+    private void recover(long logSize) throws IOException {
+        long position = 0;
+        if (count > 0) {
+            long last = offsets[count - 1];
+            position = last + HEADER_SIZE + mapped.getInt((int) last);
+        }
+
+        List<Long> unindexedOffsets = new ArrayList<>();
+        while (position + HEADER_SIZE <= logSize) {
+            int length = mapped.getInt((int) position);
+            int checksum = mapped.getInt((int) position + Integer.BYTES);
+            if (length < 0 || position + HEADER_SIZE + length > logSize
+                    || checksum != checksum(mapped.slice((int) position + HEADER_SIZE, length))) {
+                break;
+            }
+            unindexedOffsets.add(position);
+            position += HEADER_SIZE + length;
+        }
+
+        if (position < logSize) {
+            logger.warn("Truncating {} bytes of incomplete data from question store", logSize - position);
+            log.truncate(position);
+            mapped = log.map(FileChannel.MapMode.READ_ONLY, 0, position);
+        }
+        logEnd = position;
+
+        if (!unindexedOffsets.isEmpty()) {
+            logger.info("Recovered {} unindexed questions from store", unindexedOffsets.size());
+            ByteBuffer indexEntries = ByteBuffer.allocate(unindexedOffsets.size() * Long.BYTES);
+            unindexedOffsets.forEach(indexEntries::putLong);
+            indexEntries.flip();
+            index.write(indexEntries, index.size());
+            unindexedOffsets.forEach(this::addOffset);
+        }
+    }
+
+    private void addOffset(long offset) {
+        long[] current = offsets;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, Math.max(16, current.length * 2));
+            offsets = current;
+        }
+        current[count] = offset;
+        count = count + 1;
+    }
+
+    private ByteBuffer read(long offset) {
+        try {
+            if (offset + HEADER_SIZE <= mapped.capacity()) {
+                int length = mapped.getInt((int) offset);
+                if (offset + HEADER_SIZE + length <= mapped.capacity()) {
+                    return mapped.slice((int) offset + HEADER_SIZE, length);
+                }
+            }
+            // Appended after the log was mapped
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            log.read(header, offset);
+            ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+            log.read(payload, offset + HEADER_SIZE);
+            return payload.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read question at offset " + offset, e);
+        }
+    }
+
+    private static ByteBuffer encode(Question question) {
+        byte[] text = bytes(question.getText());
+        byte[] explanation = bytes(question.getExplanation());
+        List<Choice> choices = question.getChoices();
+        if (choices.size() > 0x0F) {
+            throw new IllegalArgumentException("A stored question can have at most 15 choices");
+        }
+        byte[][] choiceTexts = new byte[choices.size()][];
+        int length = stringSize(text) + stringSize(explanation) + 1;
+        for (int i = 0; i < choices.size(); i++) {
+            choiceTexts[i] = bytes(choices.get(i).getText());
+            length += 1 + stringSize(choiceTexts[i]);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+        record.position(HEADER_SIZE);
+        putString(record, text);
+        putString(record, explanation);
+        // The topic shares the choice-count byte, so records written before topics were added still decode
+        int topicCode = question.getTopic() != null ? question.getTopic().ordinal() + 1 : 0;
+        record.put((byte) (topicCode << 4 | choices.size()));
+        for (int i = 0; i < choices.size(); i++) {
+            record.put((byte) (choices.get(i).isCorrect() ? 1 : 0));
+            putString(record, choiceTexts[i]);
+        }
+        record.putInt(0, length);
+        record.putInt(Integer.BYTES, checksum(record.slice(HEADER_SIZE, length)));
+        return record.flip();
+    }
+
+    private static Question decode(ByteBuffer payload) {
+        String text = getString(payload);
+        String explanation = getString(payload);
+        byte countAndTopic = payload.get();
+        int choiceCount = countAndTopic & 0x0F;
+        List<Choice> choices = new ArrayList<>(choiceCount);
+        for (int i = 0; i < choiceCount; i++) {
+            boolean correct = payload.get() == 1;
+            choices.add(new Choice(getString(payload), correct));
+        }
+        return new Question(text, choices, explanation, topic(countAndTopic));
+    }
+
+    private static Topic topic(byte countAndTopic) {
+        int topicCode = (countAndTopic >> 4) & 0x0F;
+        Topic[] topics = Topic.values();
+        return topicCode > 0 && topicCode <= topics.length ? topics[topicCode - 1] : null;
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringSize(byte[] value) {
+        return Integer.BYTES + (value != null ? value.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private class StoredQuestionList extends AbstractList<Question> implements RandomAccess {
+        private final int size;
+
+        StoredQuestionList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Question get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Question " + index + " of " + size);
+            }
+            return QuestionStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
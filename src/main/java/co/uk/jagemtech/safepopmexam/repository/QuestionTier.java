@@ -0,0 +1,60 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * One level of a {@link TieredQuestionRepository}: a source of questions that can top up what
+ * faster tiers have already served, and can take in questions produced by slower tiers.
+ */
+public interface QuestionTier {
+
+    /**
+     * Whether the tier has nothing to serve right now, so the chain can skip it without asking.
+     */
+    default boolean isEmpty() {
+        return false;
+    }
+
+    /**
+     * Every question the tier can serve, or an empty list if it has none.
+     */
+    List<Question> getAllQuestions();
+
+    /**
+     * Deliver up to {@code count} questions, other than those in {@code alreadySelected}, to the
+     * consumer as they become available. The returned future completes once no more questions
+     * will be delivered.
+     */
+    CompletableFuture<Void> streamQuestions(int count, List<Question> alreadySelected, RandomGenerator random,
+                                            Consumer<Question> consumer);
+
+    /**
+     * The question with this id if the tier already holds it, without generating anything.
+     */
+    default Question getQuestion(long id) {
+        return null;
+    }
+
+    /**
+     * The ids of up to {@code count} questions the tier already holds, as for
+     * {@link QuestionRepository#sampleIds}. Tiers that only generate questions have none.
+     */
+    default long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+        return new long[0];
+    }
+
+    /**
+     * Take in questions produced by a slower tier. {@code served} says whether they have already
+     * been handed to an exam.
+     */
+    default void promote(List<Question> questions, boolean served) {
+    }
+}
@@ -0,0 +1,10 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+/**
+ * Published when questions have been handed out to an exam.
+ *
+ * @param served          the number of questions served
+ * @param unseenRemaining the number of generated questions still waiting to be served
+ */
+public record QuestionsServedEvent(int served, int unseenRemaining) {
+}
@@ -0,0 +1,16 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+/**
+ * The outcome of a question refresh: how many new questions were cached and how many
+ * generated questions were rejected as near-duplicates of ones already in the bank.
+ */
+public record RefreshResult(int added, int duplicates) {
+
+    /**
+     * The share of generated questions that were near-duplicates, from 0 to 1.
+     */
+    public double duplicateRate() {
+        int generated = added + duplicates;
+        return generated == 0 ? 0.0 : (double) duplicates / generated;
+    }
+}
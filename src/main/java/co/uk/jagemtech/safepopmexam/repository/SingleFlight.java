@@ -0,0 +1,60 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs each piece of work, identified by a key, at most once at a time: the first caller for a
+ * key runs it on its own thread, and callers asking for the same key meanwhile wait for, and
+ * share, its result rather than starting it again. Work for different keys runs independently,
+ * and a caller arriving after the work for its key has finished starts it afresh.
+ */
+final class SingleFlight<K, T> {
+    private final ConcurrentMap<K, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+    private final Counter shared;
+
+    /**
+     * @param shared counts the callers that shared a result instead of running the work
+     */
+    SingleFlight(Counter shared) {
+        this.shared = shared;
+    }
+
+    T run(K key, Supplier<T> work) {
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> current = inFlight.putIfAbsent(key, flight);
+        if (current != null) {
+            shared.increment();
+            return await(current);
+        }
+        try {
+            T result = work.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.SourceChunk;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only store of ingested course material, indexed by syllabus topic.
+ * <p>
+ * Chunks are written as {@code [length][crc32][topic][source][text]} records. On open only the
+ * record headers are read, to rebuild the offset and topic index, so a large store opens without
+ * reading its text; chunks are read on demand. A torn final record is detected by its checksum
+ * and truncated. The file is not created until something is ingested.
+ */
+@Component
+public class SourceChunkStore {
+    private static final Logger logger = LoggerFactory.getLogger(SourceChunkStore.class);
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final byte NO_TOPIC = -1;
+
+    private final boolean enabled;
+    private final Path path;
+    private final TopicIndex topics = new TopicIndex();
+    private FileChannel log;
+    private volatile long[] offsets = new long[16];
+    private volatile int count = 0;
+    private long logEnd = 0;
+
+    public SourceChunkStore(@Value("${popm.sources.enabled:false}") boolean enabled,
+                            @Value("${popm.sources.path:safe-popm-exam-sources.bank}") String path) {
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        if (enabled && Files.exists(this.path)) {
+            open();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Read the chunk stored at the given position.
+     */
+    public SourceChunk get(int position) {
+        int size = count;
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Chunk " + position + " of " + size);
+        }
+        ByteBuffer payload = read(offsets[position]);
+        Topic topic = topic(payload.get());
+        String source = getString(payload);
+        return new SourceChunk(source, topic, getString(payload));
+    }
+
+    /**
+     * Pick up to {@code count} distinct chunks in proportion to the exam blueprint's topic weights.
+     */
+    public List<SourceChunk> sample(int count, RandomGenerator random) {
+        List<SourceChunk> chunks = new ArrayList<>(count);
+        if (count > 0 && !isEmpty()) {
+            for (int position : topics.sample(count, List.of(), random)) {
+                chunks.add(get(position));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Append chunks and force them to disk before they are indexed.
+     */
+    public synchronized void append(List<SourceChunk> chunks) {
+        if (!enabled || chunks.isEmpty()) {
+            return;
+        }
+        try {
+            if (log == null) {
+                open();
+            }
+            long[] newOffsets = new long[chunks.size()];
+            long position = logEnd;
+            for (int i = 0; i < chunks.size(); i++) {
+                ByteBuffer record = encode(chunks.get(i));
+                newOffsets[i] = position;
+                while (record.hasRemaining()) {
+                    position += log.write(record, position);
+                }
+            }
+            log.force(false);
+            logEnd = position;
+            for (int i = 0; i < chunks.size(); i++) {
+                index(newOffsets[i], chunks.get(i).topic());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to source store " + path, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close source store: {}", e.getMessage());
+        }
+    }
+
+    private void open() {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover(log.size());
+            logger.info("Opened source store {} with {} chunks", path, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open source store " + path, e);
+        }
+    }
+
+    /**
+     * Index every complete record from its header, checking the final record's checksum, and
+     * truncate anything after the last good record.
+     */
+    private void recover(long logSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 1);
+        long[] found = new long[16];
+        byte[] foundTopics = new byte[16];
+        int records = 0;
+        long position = 0;
+        while (position + header.capacity() <= logSize) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            if (length < 1 || position + HEADER_SIZE + length > logSize) {
+                break;
+            }
+            if (records == found.length) {
+                found = Arrays.copyOf(found, records * 2);
+                foundTopics = Arrays.copyOf(foundTopics, records * 2);
+            }
+            found[records] = position;
+            foundTopics[records++] = header.get(HEADER_SIZE);
+            position += HEADER_SIZE + length;
+        }
+
+        // Only the last record can have been torn by a crash
+        if (records > 0) {
+            long last = found[records - 1];
+            header.clear();
+            readFully(header, last);
+            if (header.getInt(Integer.BYTES) != checksum(read(last))) {
+                records--;
+                position = last;
+            }
+        }
+        if (position < logSize) {
+            logger.warn("Truncating {} bytes of incomplete data from source store", logSize - position);
+            log.truncate(position);
+        }
+        logEnd = position;
+        for (int i = 0; i < records; i++) {
+            index(found[i], topic(foundTopics[i]));
+        }
+    }
+
+    private void index(long offset, Topic topic) {
+        long[] current = offsets;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            offsets = current;
+        }
+        current[count] = offset;
+        topics.add(count, topic);
+        count = count + 1;
+    }
+
+    private ByteBuffer read(long offset) {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, offset);
+            ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+            readFully(payload, offset + HEADER_SIZE);
+            return payload.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read chunk at offset " + offset, e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of source store at " + position);
+            }
+        }
+    }
+
+    private static ByteBuffer encode(SourceChunk chunk) {
+        byte[] source = chunk.source() != null ? chunk.source().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] text = chunk.text().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + Integer.BYTES + source.length + Integer.BYTES + text.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+        record.position(HEADER_SIZE);
+        record.put(chunk.topic() != null ? (byte) chunk.topic().ordinal() : NO_TOPIC);
+        record.putInt(source.length).put(source);
+        record.putInt(text.length).put(text);
+        record.putInt(0, length);
+        record.putInt(Integer.BYTES, checksum(record.slice(HEADER_SIZE, length)));
+        return record.flip();
+    }
+
+    private static Topic topic(byte code) {
+        Topic[] topics = Topic.values();
+        return code >= 0 && code < topics.length ? topics[code] : null;
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getInt()];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
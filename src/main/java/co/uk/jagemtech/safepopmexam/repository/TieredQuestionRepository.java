@@ -0,0 +1,430 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * A chain of question sources, fastest first: typically memory, the on-disk question bank,
+ * Claude and finally the built-in mock questions. A request is offered to each tier in turn,
+ * skipping empty ones, so the fastest tier that can satisfy it answers; a tier that comes up
+ * short is topped up from the next.
+ * <p>
+ * Each tier has a latency budget. A request waits on a tier only while it keeps delivering, for
+ * at most the budget between questions (or for its whole answer in {@link #getAllQuestions()}),
+ * then moves on to the next tier. The slow tier is left to finish in the background and, if the
+ * tier is marked for promotion, everything it produced is promoted into the tiers above it, so
+ * later requests find it there. Tiers that always answer immediately have a budget of zero.
+ */
+public class TieredQuestionRepository implements QuestionRepository {
+    private static final Logger logger = LoggerFactory.getLogger(TieredQuestionRepository.class);
+
+    public static final String SERVED_COUNTER = "popm.questions.tier.served";
+    public static final String BUDGET_EXCEEDED_COUNTER = "popm.questions.tier.budget-exceeded";
+
+    private static final int WAITING = 0;
+    private static final int ABANDONED = 1;
+    private static final int PROMOTED = 2;
+
+    /**
+     * @param name    the tier's name in logs and metrics
+     * @param source  where the tier's questions come from
+     * @param budget  how long a request may wait on the tier between questions
+     * @param promote whether questions from this tier are copied into the tiers above it
+     */
+    public record Tier(String name, QuestionTier source, Duration budget, boolean promote) {
+    }
+
+    private final List<Tier> tiers;
+    private final Executor executor;
+    private final Counter[] served;
+    private final Counter[] budgetExceeded;
+
+    public TieredQuestionRepository(List<Tier> tiers, Executor executor, MeterRegistry meterRegistry) {
+        this.tiers = List.copyOf(tiers);
+        this.executor = executor;
+        this.served = new Counter[tiers.size()];
+        this.budgetExceeded = new Counter[tiers.size()];
+        for (int i = 0; i < tiers.size(); i++) {
+            served[i] = Counter.builder(SERVED_COUNTER).tag("tier", tiers.get(i).name())
+                    .description("Questions handed to exams from each tier of the question source chain").register(meterRegistry);
+            budgetExceeded[i] = Counter.builder(BUDGET_EXCEEDED_COUNTER).tag("tier", tiers.get(i).name())
+                    .description("Requests that moved past a tier because it exceeded its latency budget").register(meterRegistry);
+        }
+    }
+
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    @Override
+    public List<Question> getAllQuestions() {
+        for (int i = 0; i < tiers.size(); i++) {
+            Tier tier = tiers.get(i);
+            if (tier.source().isEmpty()) {
+                continue;
+            }
+            List<Question> questions = tier.budget().isZero() ? fetch(tier) : fetchWithinBudget(i);
+            // Not counted as served: this is a view of the bank, not questions handed to an exam
+            if (!questions.isEmpty()) {
+                return questions;
+            }
+        }
+        return List.of();
+    }
+
+    @Override
+    public CompletableFuture<Void> streamQuestions(int count, RandomGenerator random, Consumer<Question> consumer) {
+        Request request = new Request(count, consumer);
+        return serve(request, 0, random).thenRun(request::awaitDelivered);
+    }
+
+    /**
+     * The question from the first tier that already holds it. Tiers are not asked to generate it.
+     */
+    @Override
+    public Question getQuestion(long id) {
+        for (Tier tier : tiers) {
+            try {
+                Question question = tier.source().getQuestion(id);
+                if (question != null) {
+                    return question;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("The {} question tier failed: {}", tier.name(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sample from the fastest tier, topping up from the next tiers, excluding ids already chosen.
+     */
+    @Override
+    public long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+        long[] sampled = new long[Math.max(count, 0)];
+        Set<Long> chosen = new HashSet<>();
+        int found = 0;
+        for (int i = 0; i < tiers.size() && found < sampled.length; i++) {
+            Tier tier = tiers.get(i);
+            if (tier.source().isEmpty()) {
+                continue;
+            }
+            long[] ids;
+            try {
+                ids = tier.source().sampleIds(sampled.length - found, topics,
+                        id -> chosen.contains(id) || excluded.test(id), random);
+            } catch (RuntimeException e) {
+                logger.warn("The {} question tier failed: {}", tier.name(), e.getMessage());
+                continue;
+            }
+            for (long id : ids) {
+                if (found < sampled.length && chosen.add(id)) {
+                    sampled[found++] = id;
+                }
+            }
+        }
+        return found < sampled.length ? Arrays.copyOf(sampled, found) : sampled;
+    }
+
+    private static List<Question> fetch(Tier tier) {
+        try {
+            List<Question> questions = tier.source().getAllQuestions();
+            return questions != null ? questions : List.of();
+        } catch (RuntimeException e) {
+            logger.warn("The {} question tier failed: {}", tier.name(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Fetch from a tier on the executor, giving up after its budget. Questions that arrive later
+     * are promoted when they do.
+     */
+    private List<Question> fetchWithinBudget(int index) {
+        Tier tier = tiers.get(index);
+        AtomicInteger state = new AtomicInteger(WAITING);
+        CompletableFuture<List<Question>> answer = CompletableFuture.supplyAsync(() -> fetch(tier), executor);
+        answer.thenAccept(questions -> {
+            if (state.compareAndSet(ABANDONED, PROMOTED)) {
+                promote(index, List.of(), questions);
+            }
+        });
+        try {
+            List<Question> questions = answer.get(tier.budget().toNanos(), TimeUnit.NANOSECONDS);
+            promote(index, List.of(), questions);
+            return questions;
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            } else {
+                exceededBudget(index);
+            }
+            state.set(ABANDONED);
+            // It may have finished before it was abandoned, when the callback above had nothing to do
+            if (answer.isDone() && state.compareAndSet(ABANDONED, PROMOTED)) {
+                promote(index, List.of(), answer.join());
+            }
+            return List.of();
+        } catch (ExecutionException e) {
+            logger.warn("The {} question tier failed: {}", tier.name(), e.getCause().getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Offer what is left of the request to each tier from {@code from} on. Returns as soon as a
+     * tier has to be waited for, continuing on the executor.
+     */
+    private CompletableFuture<Void> serve(Request request, int from, RandomGenerator random) {
+        for (int i = from; i < tiers.size() && !request.isFull(); i++) {
+            Tier tier = tiers.get(i);
+            if (tier.source().isEmpty()) {
+                continue;
+            }
+            Attempt attempt = new Attempt(i);
+            CompletableFuture<Void> finished = start(request, attempt, random);
+            if (!finished.isDone() && !request.isFull() && !tier.budget().isZero()) {
+                int next = i + 1;
+                return CompletableFuture.runAsync(() -> request.await(attempt, finished, tier.budget()), executor)
+                        .thenCompose(ignored -> serve(request, next, random));
+            }
+            request.await(attempt, finished, Duration.ZERO);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Ask a tier for the rest of the request. The returned future completes once the tier has
+     * finished and its questions have been promoted.
+     */
+    private CompletableFuture<Void> start(Request request, Attempt attempt, RandomGenerator random) {
+        Tier tier = tiers.get(attempt.tier);
+        CompletableFuture<Void> produced;
+        try {
+            produced = tier.source().streamQuestions(request.remaining(), request.selected(), random,
+                    question -> request.deliver(attempt, question));
+        } catch (RuntimeException e) {
+            produced = CompletableFuture.failedFuture(e);
+        }
+        return produced.handle((result, error) -> {
+            if (error != null) {
+                logger.warn("The {} question tier failed: {}", tier.name(), error.getMessage());
+            }
+            List<Question> servedQuestions;
+            List<Question> spareQuestions;
+            request.lock.lock();
+            try {
+                servedQuestions = List.copyOf(attempt.served);
+                spareQuestions = List.copyOf(attempt.spare);
+            } finally {
+                request.lock.unlock();
+            }
+            promote(attempt.tier, servedQuestions, spareQuestions);
+            request.signal();
+            return null;
+        });
+    }
+
+    private void promote(int index, List<Question> servedQuestions, List<Question> spareQuestions) {
+        if (!tiers.get(index).promote() || (servedQuestions.isEmpty() && spareQuestions.isEmpty())) {
+            return;
+        }
+        for (int above = index - 1; above >= 0; above--) {
+            Tier tier = tiers.get(above);
+            try {
+                if (!servedQuestions.isEmpty()) {
+                    tier.source().promote(servedQuestions, true);
+                }
+                if (!spareQuestions.isEmpty()) {
+                    tier.source().promote(spareQuestions, false);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to promote questions into the {} tier: {}", tier.name(), e.getMessage());
+            }
+        }
+        logger.debug("Promoted {} questions from the {} tier", servedQuestions.size() + spareQuestions.size(),
+                tiers.get(index).name());
+    }
+
+    private void exceededBudget(int index) {
+        Tier tier = tiers.get(index);
+        budgetExceeded[index].increment();
+        logger.info("The {} question tier exceeded its {}ms budget, moving on; its questions will be promoted when they arrive",
+                tier.name(), tier.budget().toMillis());
+    }
+
+    /**
+     * One request's progress through the chain. Guarded by its own lock, whose condition is also
+     * used to wait for a tier's next question. A lock rather than a monitor, so that a request
+     * waiting out a tier's budget on a virtual thread does not pin its carrier; questions are
+     * handed to the consumer after the lock is released.
+     */
+    private final class Request {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition progressed = lock.newCondition();
+        private final int count;
+        private final Consumer<Question> consumer;
+        private final List<Question> selected;
+        private final Set<Long> selectedIds = new HashSet<>();
+        // Questions accepted but not yet handed to the consumer
+        private int delivering = 0;
+
+        Request(int count, Consumer<Question> consumer) {
+            this.count = count;
+            this.consumer = consumer;
+            this.selected = new ArrayList<>(count);
+        }
+
+        boolean isFull() {
+            lock.lock();
+            try {
+                return selected.size() >= count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int remaining() {
+            lock.lock();
+            try {
+                return count - selected.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Question> selected() {
+            lock.lock();
+            try {
+                return List.copyOf(selected);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Hand a question to the consumer unless the request is full or has stopped waiting for
+         * this tier, in which case it is kept for promotion.
+         */
+        void deliver(Attempt attempt, Question question) {
+            lock.lock();
+            try {
+                if (selectedIds.contains(question.getId())) {
+                    return;
+                }
+                if (attempt.detached || selected.size() >= count) {
+                    attempt.spare.add(question);
+                    return;
+                }
+                selectedIds.add(question.getId());
+                selected.add(question);
+                attempt.served.add(question);
+                delivering++;
+                progressed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                served[attempt.tier].increment();
+                consumer.accept(question);
+            } finally {
+                lock.lock();
+                try {
+                    delivering--;
+                    progressed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        void signal() {
+            lock.lock();
+            try {
+                progressed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Wait while the tier is still running, the request is not yet full and the tier has
+         * delivered a question within the last {@code budget}, then stop taking its questions.
+         */
+        void await(Attempt attempt, CompletableFuture<Void> finished, Duration budget) {
+            long budgetNanos = budget.toNanos();
+            long remaining = budgetNanos;
+            lock.lock();
+            try {
+                int delivered = selected.size();
+                while (!finished.isDone() && selected.size() < count) {
+                    if (remaining <= 0) {
+                        exceededBudget(attempt.tier);
+                        break;
+                    }
+                    remaining = progressed.awaitNanos(remaining);
+                    if (selected.size() != delivered) {
+                        delivered = selected.size();
+                        remaining = budgetNanos;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                attempt.detached = true;
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Wait until every accepted question has been handed to the consumer, so the request is
+         * not reported complete while the last one is still on its way.
+         */
+        void awaitDelivered() {
+            lock.lock();
+            try {
+                while (delivering > 0) {
+                    progressed.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * What one tier has delivered for a request, guarded by the request's lock.
+     */
+    private static final class Attempt {
+        private final int tier;
+        private final List<Question> served = new ArrayList<>();
+        private final List<Question> spare = new ArrayList<>();
+        private boolean detached = false;
+
+        Attempt(int tier) {
+            this.tier = tier;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Positions of questions in a bank grouped by syllabus topic, so an exam can be drawn in
+ * proportion to the exam blueprint. Drawing k questions costs O(k) however large the bank is.
+ * Untagged questions are kept in their own group and only used when the tagged groups run short.
+ */
+class TopicIndex {
+    private static final Topic[] TOPICS = Topic.values();
+    private static final int UNTAGGED = TOPICS.length;
+
+    private final int[][] positions = new int[TOPICS.length + 1][];
+    private final int[] counts = new int[TOPICS.length + 1];
+    private int size = 0;
+
+    TopicIndex() {
+        clear();
+    }
+
+    synchronized void add(int position, Topic topic) {
+        int group = topic != null ? topic.ordinal() : UNTAGGED;
+        if (counts[group] == positions[group].length) {
+            positions[group] = Arrays.copyOf(positions[group], positions[group].length * 2);
+        }
+        positions[group][counts[group]++] = position;
+        size++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void clear() {
+        for (int group = 0; group <= UNTAGGED; group++) {
+            positions[group] = new int[16];
+            counts[group] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * Draw up to {@code count} distinct positions so that, together with the questions already
+     * selected, the exam follows the blueprint weights as closely as the bank allows. The
+     * positions are in random order, not grouped by topic.
+     */
+    synchronized int[] sample(int count, List<Question> alreadySelected, RandomGenerator random) {
+        int[] taken = new int[UNTAGGED + 1];
+        for (Question question : alreadySelected) {
+            taken[question.getTopic() != null ? question.getTopic().ordinal() : UNTAGGED]++;
+        }
+        int[] allocation = allocate(alreadySelected.size() + count, counts, taken);
+
+        int[] sampled = new int[Arrays.stream(allocation).sum()];
+        int next = 0;
+        for (int group = 0; group <= UNTAGGED; group++) {
+            next = sampleGroup(group, allocation[group], random, sampled, next);
+        }
+        shuffle(sampled, sampled.length, random);
+        return sampled;
+    }
+
+    /**
+     * Draw up to {@code count} distinct positions uniformly from the given topics (every topic and
+     * untagged questions when {@code topics} is empty), skipping excluded positions. Uses O(count)
+     * memory: positions are drawn at random and rejected while exclusions are rare, and if too
+     * many are rejected one reservoir-sampling pass is made over the topics instead.
+     */
+    synchronized int[] sample(int count, Set<Topic> topics, IntPredicate excluded, RandomGenerator random) {
+        boolean[] included = new boolean[UNTAGGED + 1];
+        int eligible = 0;
+        for (int group = 0; group <= UNTAGGED; group++) {
+            included[group] = topics.isEmpty() || (group < UNTAGGED && topics.contains(TOPICS[group]));
+            eligible += included[group] ? counts[group] : 0;
+        }
+        if (count <= 0 || eligible == 0) {
+            return new int[0];
+        }
+
+        int[] sampled = new int[Math.min(count, eligible)];
+        Set<Integer> chosen = new HashSet<>(sampled.length * 2);
+        int found = 0;
+        for (int attempt = 0; attempt < 4 * sampled.length + 16 && found < sampled.length; attempt++) {
+            int position = positionAt(random.nextInt(eligible), included);
+            if (!excluded.test(position) && chosen.add(position)) {
+                sampled[found++] = position;
+            }
+        }
+        if (found < sampled.length) {
+            found = reservoir(sampled, included, excluded, random);
+            shuffle(sampled, found, random);
+        }
+        return found < sampled.length ? Arrays.copyOf(sampled, found) : sampled;
+    }
+
+    /**
+     * The position at the given offset into the concatenation of the included groups.
+     */
+    private int positionAt(int offset, boolean[] included) {
+        for (int group = 0; group <= UNTAGGED; group++) {
+            if (included[group]) {
+                if (offset < counts[group]) {
+                    return positions[group][offset];
+                }
+                offset -= counts[group];
+            }
+        }
+        throw new IllegalStateException("Offset beyond the included topics");
+    }
+
+    /**
+     * Algorithm R over every included, non-excluded position. Returns how many were kept.
+     */
+    private int reservoir(int[] sampled, boolean[] included, IntPredicate excluded, RandomGenerator random) {
+        int seen = 0;
+        for (int group = 0; group <= UNTAGGED; group++) {
+            if (!included[group]) {
+                continue;
+            }
+            for (int i = 0; i < counts[group]; i++) {
+                int position = positions[group][i];
+                if (excluded.test(position)) {
+                    continue;
+                }
+                if (seen < sampled.length) {
+                    sampled[seen] = position;
+                } else {
+                    int slot = random.nextInt(seen + 1);
+                    if (slot < sampled.length) {
+                        sampled[slot] = position;
+                    }
+                }
+                seen++;
+            }
+        }
+        return Math.min(seen, sampled.length);
+    }
+
+    /**
+     * How many questions to draw from each group so that {@code total} questions, including those
+     * already taken, are split by blueprint weight. Shortfalls in one group are made up from the
+     * other topics, heaviest first, and then from untagged questions.
+     */
+    static int[] allocate(int total, int[] available, int[] taken) {
+        int[] allocation = new int[UNTAGGED + 1];
+        int totalWeight = Arrays.stream(TOPICS).mapToInt(Topic::getWeight).sum();
+        int remaining = total - Arrays.stream(taken).sum();
+
+        // Largest-remainder apportionment of the total across topics
+        int[] quota = new int[TOPICS.length];
+        double[] fractions = new double[TOPICS.length];
+        int apportioned = 0;
+        for (Topic topic : TOPICS) {
+            double exact = (double) total * topic.getWeight() / totalWeight;
+            quota[topic.ordinal()] = (int) exact;
+            fractions[topic.ordinal()] = exact - quota[topic.ordinal()];
+            apportioned += quota[topic.ordinal()];
+        }
+        while (apportioned < total) {
+            int largest = 0;
+            for (int i = 1; i < TOPICS.length; i++) {
+                if (fractions[i] > fractions[largest]) {
+                    largest = i;
+                }
+            }
+            quota[largest]++;
+            fractions[largest] = -1;
+            apportioned++;
+        }
+
+        for (int i = 0; i < TOPICS.length && remaining > 0; i++) {
+            int wanted = Math.min(Math.max(0, quota[i] - taken[i]), available[i]);
+            allocation[i] = Math.min(wanted, remaining);
+            remaining -= allocation[i];
+        }
+
+        // Fill any shortfall one question at a time from topics with spare questions
+        Integer[] byWeight = new Integer[TOPICS.length];
+        for (int i = 0; i < TOPICS.length; i++) {
+            byWeight[i] = i;
+        }
+        Arrays.sort(byWeight, (a, b) -> TOPICS[b].getWeight() - TOPICS[a].getWeight());
+        boolean allocated = true;
+        while (remaining > 0 && allocated) {
+            allocated = false;
+            for (int i : byWeight) {
+                if (remaining > 0 && allocation[i] < available[i]) {
+                    allocation[i]++;
+                    remaining--;
+                    allocated = true;
+                }
+            }
+        }
+        allocation[UNTAGGED] = Math.min(remaining, available[UNTAGGED]);
+        return allocation;
+    }
+
+    /**
+     * Fisher-Yates shuffle of the first {@code length} entries.
+     */
+    private static void shuffle(int[] values, int length, RandomGenerator random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /**
+     * Floyd's algorithm: choose {@code count} distinct entries of the group in O(count).
+     */
+    private int sampleGroup(int group, int count, RandomGenerator random, int[] sampled, int next) {
+        int size = counts[group];
+        Set<Integer> chosen = new HashSet<>(count * 2);
+        for (int j = size - count; j < size; j++) {
+            int candidate = random.nextInt(j + 1);
+            int index = chosen.add(candidate) ? candidate : j;
+            chosen.add(index);
+            sampled[next++] = positions[group][index];
+        }
+        return next;
+    }
+}
@@ -0,0 +1,40 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+/**
+ * A candidate's estimated ability on the 2PL scale (0 is average, roughly -3 to 3) and the
+ * standard error of the estimate, which shrinks as informative questions are answered.
+ */
+public record AbilityEstimate(double ability, double standardError) {
+    private static final int MAX_ITERATIONS = 20;
+    private static final double TOLERANCE = 1e-4;
+
+    /**
+     * The estimate before any answers: the standard normal prior.
+     */
+    public static final AbilityEstimate PRIOR = new AbilityEstimate(0.0, 1.0);
+
+    /**
+     * The maximum a posteriori ability given the first {@code responses} answers to questions with
+     * the given discriminations and difficulties, under a standard normal prior, found by Newton's
+     * method. The prior keeps the estimate finite when every answer so far is right, or wrong.
+     */
+    static AbilityEstimate estimate(double[] discriminations, double[] difficulties, boolean[] correct, int responses) {
+        double ability = 0.0;
+        double curvature = -1.0;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double slope = -ability;
+            curvature = -1.0;
+            for (int i = 0; i < responses; i++) {
+                double p = DifficultyCalibration.probabilityCorrect(ability, discriminations[i], difficulties[i]);
+                slope += discriminations[i] * ((correct[i] ? 1 : 0) - p);
+                curvature -= discriminations[i] * discriminations[i] * p * (1 - p);
+            }
+            double step = slope / curvature;
+            ability -= step;
+            if (Math.abs(step) < TOLERANCE) {
+                break;
+            }
+        }
+        return new AbilityEstimate(ability, 1 / Math.sqrt(-curvature));
+    }
+}
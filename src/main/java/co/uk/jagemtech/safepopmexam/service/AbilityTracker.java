@@ -0,0 +1,47 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import java.util.Arrays;
+
+/**
+ * One candidate's responses, with the discrimination and difficulty each question had when it
+ * was answered, and the ability estimated from them. Not thread-safe.
+ */
+final class AbilityTracker {
+    private double[] discriminations;
+    private double[] difficulties;
+    private boolean[] responses;
+    private int count = 0;
+    private AbilityEstimate estimate = AbilityEstimate.PRIOR;
+
+    AbilityTracker(int expectedResponses) {
+        int capacity = Math.max(1, expectedResponses);
+        this.discriminations = new double[capacity];
+        this.difficulties = new double[capacity];
+        this.responses = new boolean[capacity];
+    }
+
+    /**
+     * Add a response and re-estimate the ability. When {@code calibrate} is set the response is
+     * also reported to the calibration, using the ability estimated before it.
+     */
+    void record(DifficultyCalibration calibration, long questionId, boolean correct, boolean calibrate) {
+        DifficultyCalibration.ItemStatistics statistics = calibration.statistics(questionId);
+        if (count == responses.length) {
+            discriminations = Arrays.copyOf(discriminations, count * 2);
+            difficulties = Arrays.copyOf(difficulties, count * 2);
+            responses = Arrays.copyOf(responses, count * 2);
+        }
+        discriminations[count] = statistics.getDiscrimination();
+        difficulties[count] = statistics.getDifficulty();
+        responses[count] = correct;
+        count++;
+        if (calibrate) {
+            calibration.record(questionId, correct, estimate.ability());
+        }
+        estimate = AbilityEstimate.estimate(discriminations, difficulties, responses, count);
+    }
+
+    AbilityEstimate estimate() {
+        return estimate;
+    }
+}
@@ -0,0 +1,118 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Generates questions by sending several Claude batches at once on virtual threads.
+ * At most {@code popm.generation.max-concurrency} calls are in flight at any time and
+ * results are merged in completion order, so the total wait is bounded by the slowest
+ * calls rather than their sum.
+ */
+@Service
+public class BatchGenerationEngine {
+    private static final Logger logger = LoggerFactory.getLogger(BatchGenerationEngine.class);
+
+    private final ClaudeService claudeService;
+    private final int maxConcurrency;
+
+    @Autowired
+    public BatchGenerationEngine(ClaudeService claudeService,
+                                 @Value("${popm.generation.max-concurrency:4}") int maxConcurrency) {
+        this.claudeService = claudeService;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    /**
+     * Generate up to {@code requestedCount} questions in batches of {@code batchSize}.
+     * Failed or empty batches are logged and skipped, so whatever the other batches
+     * produced is still returned. Outstanding batches are cancelled as soon as enough
+     * questions have been collected.
+     */
+    public List<Question> generate(int requestedCount, int batchSize) {
+        return generate(requestedCount, batchSize, batch -> { });
+    }
+
+    /**
+     * As {@link #generate(int, int)}, also handing each successful batch to
+     * {@code onBatch} as soon as it arrives.
+     */
+    public List<Question> generate(int requestedCount, int batchSize, Consumer<List<Question>> onBatch) {
+        List<Question> questions = new ArrayList<>();
+        if (requestedCount <= 0) {
+            return questions;
+        }
+
+        int batchesNeeded = (int) Math.ceil((double) requestedCount / batchSize);
+        logger.info("Fetching questions in {} batches of up to {} questions each ({} in flight)",
+                batchesNeeded, batchSize, Math.min(batchesNeeded, maxConcurrency));
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CompletionService<List<Question>> completionService = new ExecutorCompletionService<>(executor);
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<Future<List<Question>>> futures = new ArrayList<>(batchesNeeded);
+
+        try {
+            for (int i = 0; i < batchesNeeded; i++) {
+                int batchCount = Math.min(batchSize, requestedCount - i * batchSize);
+                futures.add(completionService.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return claudeService.generateQuestions(batchCount);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            int failedBatches = 0;
+            for (int completed = 0; completed < batchesNeeded && questions.size() < requestedCount; completed++) {
+                Future<List<Question>> future = completionService.take();
+                try {
+                    List<Question> batchQuestions = future.get();
+                    if (batchQuestions != null && !batchQuestions.isEmpty()) {
+                        questions.addAll(batchQuestions);
+                        onBatch.accept(batchQuestions);
+                        logger.info("Batch {} of {} complete, now have {} total questions",
+                                completed + 1, batchesNeeded, questions.size());
+                    } else {
+                        failedBatches++;
+                        logger.warn("Batch {} of {} returned no questions", completed + 1, batchesNeeded);
+                    }
+                } catch (ExecutionException e) {
+                    failedBatches++;
+                    logger.warn("Batch {} of {} failed: {}", completed + 1, batchesNeeded, e.getCause().getMessage());
+                }
+            }
+
+            if (failedBatches > 0) {
+                logger.warn("{} of {} batches failed, keeping {} questions from the rest",
+                        failedBatches, batchesNeeded, questions.size());
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Batch generation interrupted, keeping {} questions", questions.size());
+            Thread.currentThread().interrupt();
+        } finally {
+            // Stop any batches that are still queued or in flight once we have enough questions
+            futures.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+        }
+
+        return questions.size() > requestedCount ? new ArrayList<>(questions.subList(0, requestedCount)) : questions;
+    }
+}
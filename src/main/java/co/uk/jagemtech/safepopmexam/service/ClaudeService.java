@@ -2,317 +2,330 @@ package co.uk.jagemtech.safepopmexam.service;
 
 import co.uk.jagemtech.safepopmexam.model.Choice;
 import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.SourceChunk;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import co.uk.jagemtech.safepopmexam.repository.SourceChunkStore;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.anthropic.AnthropicChatModel;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class ClaudeService {
     private static final Logger logger = LoggerFactory.getLogger(ClaudeService.class);
+    private static final String MAX_TOKENS_FINISH_REASON = "max_tokens";
 
-    private final AnthropicChatModel chatModel;
+    public static final String CALLS_TIMER = "popm.claude.calls";
+    public static final String TOKENS_COUNTER = "popm.claude.tokens";
+    public static final String QUESTIONS_REQUESTED_COUNTER = "popm.claude.questions.requested";
+    public static final String QUESTIONS_PARSED_COUNTER = "popm.claude.questions.parsed";
+
+    private final ChatModel chatModel;
+    private final GenerationController generationController;
+    private final GenerationProgress progress;
+    private final ResilientChatCaller resilientCaller;
     private final ObjectMapper objectMapper;
+    private final QuestionJsonExtractor jsonExtractor;
+    private final SourceChunkStore sourceStore;
+    private final int sourcesPerPrompt;
+    private final SplittableRandom sourceRandom = new SplittableRandom();
+    // Recorded responses are keyed by the prompt, so recorded and replayed runs must send the same
+    // prompt for the same batch: the same extracts and a fixed token limit
+    private final boolean repeatablePrompts;
+    private final TokenUsage tokenUsage = new TokenUsage();
+    private final Timer successfulCalls;
+    private final Timer failedCalls;
+    private final Counter inputTokens;
+    private final Counter outputTokens;
+    private final Counter questionsRequested;
+    private final Counter questionsParsed;
 
     @Autowired
-    public ClaudeService(AnthropicChatModel chatModel) {
+    public ClaudeService(ChatModel chatModel, GenerationController generationController,
+                         ResilientChatCaller resilientCaller, MeterRegistry meterRegistry,
+                         SourceChunkStore sourceStore, GenerationProgress progress,
+                         @Value("${popm.ingest.chunks-per-prompt:2}") int sourcesPerPrompt) {
         this.chatModel = chatModel;
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.configure(JsonParser.Feature.ALLOW_BACKSLASH_ESCAPING_ANY_CHARACTER, true);
-        this.objectMapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-        this.objectMapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-        this.objectMapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+        this.generationController = generationController;
+        this.progress = progress;
+        this.resilientCaller = resilientCaller;
+        this.sourceStore = sourceStore;
+        this.sourcesPerPrompt = sourcesPerPrompt;
+        this.repeatablePrompts = chatModel instanceof RecordingChatModel recording
+                && recording.getMode() != RecordingChatModel.Mode.PASSTHROUGH;
+        this.objectMapper = createObjectMapper();
+        this.jsonExtractor = new QuestionJsonExtractor(objectMapper);
+        this.successfulCalls = callTimer(meterRegistry, "success");
+        this.failedCalls = callTimer(meterRegistry, "failure");
+        this.inputTokens = Counter.builder(TOKENS_COUNTER).tag("type", "input")
+                .description("Input tokens sent to Claude for question generation").register(meterRegistry);
+        this.outputTokens = Counter.builder(TOKENS_COUNTER).tag("type", "output")
+                .description("Output tokens received from Claude for question generation").register(meterRegistry);
+        this.questionsRequested = Counter.builder(QUESTIONS_REQUESTED_COUNTER)
+                .description("Questions asked of Claude").register(meterRegistry);
+        this.questionsParsed = Counter.builder(QUESTIONS_PARSED_COUNTER)
+                .description("Usable questions parsed from Claude's responses").register(meterRegistry);
+    }
+
+    private static Timer callTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder(CALLS_TIMER)
+                .tag("outcome", outcome)
+                .description("Latency of Claude question generation calls, including retries")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
     }
 
+    /**
+     * An ObjectMapper that tolerates the loosely formatted JSON Claude sometimes returns.
+     */
+    static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(JsonParser.Feature.ALLOW_BACKSLASH_ESCAPING_ANY_CHARACTER, true);
+        objectMapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
+        objectMapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+        objectMapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return objectMapper;
+    }
+
+    /**
+     * Generate a batch of questions. Returns an empty list if Claude's response could not be
+     * parsed into any questions.
+     *
+     * @throws ClaudeUnavailableException if Claude did not respond in time or is failing
+     */
     public List<Question> generateQuestions(int numberOfQuestions) {
         logger.debug("Generating {} questions with Claude AI", numberOfQuestions);
-        String prompt = buildPrompt(numberOfQuestions);
-        logger.debug("Prompt sent to Claude: {}", prompt);
+        // Limit questions per request to avoid token limitations
+        int batchSize = Math.min(numberOfQuestions, generationController.getMaxBatchSize());
+        int maxTokens = maxTokensFor(batchSize);
+        Prompt prompt = QuestionPrompt.forBatch(batchSize, maxTokens, pickSources(batchSize));
+        logger.debug("Prompt sent to Claude: {} (max {} tokens)", QuestionPrompt.instruction(batchSize), maxTokens);
         
+        GenerationProgress.Batch batch = progress.batchStarted();
+        long started = System.nanoTime();
+        ChatResponse response;
         try {
-            ChatResponse response = this.chatModel.call(new Prompt(prompt));
-            logger.debug("Received response from Claude");
-            
-            List<Generation> generations = response.getResults();
-            if (generations == null || generations.isEmpty()) {
-                logger.error("Claude returned no generations in response");
-                return Arrays.asList(createErrorQuestion());
-            }
-
-            // Extract the first generation
-            Generation generation = generations.get(0);
-            String content = generation.getOutput().getText();
-            logger.debug("Claude response content: {}", content);
-
-            return parseQuestionsFromResponse(content, numberOfQuestions);
-        } catch (Exception e) {
-            logger.error("Error calling Claude API", e);
-            return Arrays.asList(createErrorQuestion("Error calling Claude API: " + e.getMessage()));
+            response = resilientCaller.call(() -> this.chatModel.call(prompt));
+        } catch (RuntimeException e) {
+            failedCalls.record(Duration.ofNanos(System.nanoTime() - started));
+            batch.finish(false);
+            throw e;
         }
-    }
-    
-    private String buildPrompt(int numberOfQuestions) {
-        // Limit to 5 questions per request to avoid token limitations
-        int batchSize = Math.min(numberOfQuestions, 5);
+        Duration latency = Duration.ofNanos(System.nanoTime() - started);
+        successfulCalls.record(latency);
+        questionsRequested.increment(batchSize);
+        logger.debug("Received response from Claude");
         
-        return """
-            Generate exactly %d multiple-choice questions for the SAFe POPM (SAFe Product Owner / Product Manager) certification exam.
-
-            Requirements:
-            1. Each question must be concise and clear
-            2. Each question must have exactly 4 answer choices
-            3. Only one answer choice should be marked as correct
-            4. Keep explanations brief (max 100 characters)
-            5. Focus on core POPM concepts:
-                5.1. Product Owner/Product Management Roles and Responsibilities 
-                    5.1.1. SAFe for Product Owner/Product Management
-                    5.1.2. The Lean-Agile mindset 
-                    5.1.3. Value Streams
-                    5.1.4. Product Owner/Product Management Responsibilities
-                5.2. PI Planning Preparation
-                    5.2.1. PI Planning
-                    5.2.2. The Solution Vision
-                    5.2.3. Solution and PI Roadmaps
-                    5.2.4. Customer Centricity
-                    5.2.5. ART Backlog abd Kanban
-                5.3. Leadership for PI Planning 
-                    5.3.1. The Vision and PI Planning 
-                    5.3.2. PI Objectives 
-                    5.3.3. ART Planning Boad and Dependencies
-                    5.3.4. Risks and the End of PI Planning
-                5.4. Iteration Execution
-                    5.4.1. Iteration Planning
-                    5.4.2. Stories and Story Maps
-                    5.4.3. The Team Kanban
-                    5.4.4. Backlog Refinement
-                    5.4.5. Iteration Review and Retrospective
-                    5.4.6. DevOps and Release on Demand
-                5.5. PI Execution
-                    5.5.1. PO Sync
-                    5.5.2. Inspect and Adapt
-                    5.5.3. The Innovation and Planning Iteration
-                    5.5.4. The System Demo
+        List<Generation> generations = response.getResults();
+        if (generations == null || generations.isEmpty()) {
+            logger.error("Claude returned no generations in response");
+            batch.finish(false);
+            return new ArrayList<>();
+        }
 
-            Format as a JSON array with the following structure:
-            [
-              {
-                "text": "Brief question text",
-                "choices": [
-                  {"text": "First option", "correct": false},
-                  {"text": "Second option", "correct": true},
-                  {"text": "Third option", "correct": false},
-                  {"text": "Fourth option", "correct": false}
-                ],
-                "explanation": "Short explanation"
-              }
-            ]
+        // Extract the first generation
+        Generation generation = generations.get(0);
+        String content = generation.getOutput().getText();
+        logger.debug("Claude response content: {}", content);
 
-            IMPORTANT: You must provide exactly %d questions. Return ONLY the JSON array.
-            """.formatted(batchSize, batchSize);
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        batch.tokens(usage != null ? TokenUsage.tokens(usage.getCompletionTokens()) : 0);
+        batch.parsing();
+        List<Question> questions = parseQuestionsFromResponse(content, batchSize);
+        batch.parsed(questions.size());
+        batch.finish(!questions.isEmpty());
+        questionsParsed.increment(questions.size());
+        recordUsage(questions.size(), usage);
+        generationController.record(batchSize, questions.size(), usage != null ? TokenUsage.tokens(usage.getCompletionTokens()) : 0,
+                latency, hitTokenLimit(generation));
+        return questions;
     }
     
-    private List<Question> parseQuestionsFromResponse(String content, int expectedCount) {
-        List<Question> questions = new ArrayList<>();
+    /**
+     * Stream questions from Claude, handing each one to the consumer as soon as its JSON
+     * object has been received. Blocks until the response is complete and returns the
+     * number of questions delivered. The stream is abandoned if no data arrives for
+     * {@code popm.claude.call-timeout}.
+     *
+     * @throws ClaudeUnavailableException if recent calls have failed and Claude is being skipped
+     */
+    public int streamQuestions(int numberOfQuestions, Consumer<Question> consumer) {
+        logger.debug("Streaming {} questions with Claude AI", numberOfQuestions);
+        int batchSize = Math.min(numberOfQuestions, generationController.getMaxBatchSize());
+        int maxTokens = maxTokensFor(batchSize);
+        logger.debug("Prompt sent to Claude: {} (max {} tokens)", QuestionPrompt.instruction(batchSize), maxTokens);
         
-        try {
-            // First, try to clean up the JSON
-            String jsonContent = sanitizeJson(extractJsonFromResponse(content));
-            logger.debug("Sanitized JSON: {}", jsonContent);
-            
-            // Try stream-parsing individual questions to handle partial/corrupt JSON
-            questions = parseQuestionsStreaming(jsonContent);
-            logger.info("Parsed {} questions using streaming parser", questions.size());
-            
-            // If streaming parser didn't work, fall back to standard parsing
-            if (questions.isEmpty()) {
-                try {
-                    List<QuestionDTO> questionDTOs = objectMapper.readValue(jsonContent, 
-                            new TypeReference<List<QuestionDTO>>() {});
-                    for (QuestionDTO dto : questionDTOs) {
-                        questions.add(convertDtoToQuestion(dto));
-                    }
-                    logger.info("Parsed {} questions using standard parser", questions.size());
-                } catch (Exception e) {
-                    logger.error("Failed to parse with standard parser: {}", e.getMessage());
-                }
-            }
-            
-            // Log warning if we didn't get the expected number of questions
-            if (!questions.isEmpty() && questions.size() < expectedCount) {
-                logger.warn("Expected {} questions but parsed only {}. This may be due to token limitations or parsing issues.", 
-                    expectedCount, questions.size());
+        // Input tokens arrive with the first event and output tokens with the last
+        AtomicInteger promptTokens = new AtomicInteger();
+        AtomicInteger completionTokens = new AtomicInteger();
+        AtomicBoolean hitTokenLimit = new AtomicBoolean();
+        AtomicInteger delivered = new AtomicInteger();
+        GenerationProgress.Batch[] batch = new GenerationProgress.Batch[1];
+        StreamingQuestionParser parser = new StreamingQuestionParser(objectMapper, dto -> {
+            if (delivered.get() < numberOfQuestions) {
+                consumer.accept(convertDtoToQuestion(dto));
+                delivered.incrementAndGet();
+                batch[0].parsed(1);
             }
-        } catch (Exception e) {
-            logger.error("Failed to parse Claude response: {}", e.getMessage());
-            questions.add(createErrorQuestion("Failed to parse response: " + e.getMessage()));
-        }
+        });
         
-        // Ensure we return something even if parsing fails
-        if (questions.isEmpty()) {
-            logger.warn("No questions could be parsed, returning error question");
-            questions.add(createErrorQuestion());
+        resilientCaller.acquire();
+        batch[0] = progress.batchStarted();
+        long started = System.nanoTime();
+        Timer outcome = failedCalls;
+        try {
+            this.chatModel.stream(QuestionPrompt.forBatch(batchSize, maxTokens, pickSources(batchSize)))
+                    .doOnNext(response -> {
+                        if (response.getResult() != null && hitTokenLimit(response.getResult())) {
+                            hitTokenLimit.set(true);
+                        }
+                        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+                        if (usage != null) {
+                            promptTokens.accumulateAndGet((int) TokenUsage.tokens(usage.getPromptTokens()), Math::max);
+                            int previous = completionTokens.getAndAccumulate((int) TokenUsage.tokens(usage.getCompletionTokens()), Math::max);
+                            batch[0].tokens(completionTokens.get() - previous);
+                        }
+                    })
+                    .mapNotNull(this::extractText)
+                    .doOnNext(text -> {
+                        batch[0].received();
+                        parser.accept(text);
+                    })
+                    .timeout(resilientCaller.getCallTimeout())
+                    .blockLast();
+            resilientCaller.recordSuccess();
+            outcome = successfulCalls;
+            logger.debug("Claude stream complete, delivered {} questions", delivered.get());
+        } catch (Exception e) {
+            resilientCaller.recordFailure();
+            logger.error("Error streaming from Claude API", e);
+        } finally {
+            batch[0].finish(outcome == successfulCalls && delivered.get() > 0);
         }
-        
-        return questions;
+        Duration latency = Duration.ofNanos(System.nanoTime() - started);
+        outcome.record(latency);
+        questionsRequested.increment(batchSize);
+        questionsParsed.increment(delivered.get());
+        recordUsage(delivered.get(), new DefaultUsage(promptTokens.get(), completionTokens.get()));
+        generationController.record(batchSize, delivered.get(), completionTokens.get(), latency, hitTokenLimit.get());
+        return delivered.get();
     }
     
-    private List<Question> parseQuestionsStreaming(String json) {
-        List<Question> questions = new ArrayList<>();
-        
-        // Extract individual question objects from the array
-        Pattern pattern = Pattern.compile("\\{\\s*\"text\".*?\"explanation\".*?\\}", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(json);
-        
-        while (matcher.find()) {
-            String questionJson = matcher.group();
-            try {
-                QuestionDTO dto = objectMapper.readValue(questionJson, QuestionDTO.class);
-                questions.add(convertDtoToQuestion(dto));
-            } catch (Exception e) {
-                logger.debug("Failed to parse individual question: {}", e.getMessage());
-            }
-        }
-        
-        return questions;
+    /**
+     * Tokens used for question generation since startup.
+     */
+    public TokenUsage getTokenUsage() {
+        return tokenUsage;
     }
     
-    private Question convertDtoToQuestion(QuestionDTO dto) {
-        List<Choice> choices = new ArrayList<>();
-        if (dto.getChoices() != null) {
-            for (ChoiceDTO choiceDto : dto.getChoices()) {
-                choices.add(new Choice(choiceDto.getText(), choiceDto.isCorrect()));
-            }
-        }
-        return new Question(dto.getText(), choices, dto.getExplanation());
+    /**
+     * The token limit for a batch. It adapts to earlier calls, and so to the order in which
+     * concurrent batches finish, unless responses are recorded or replayed, when it is pinned to
+     * {@code popm.generation.max-tokens-ceiling}.
+     */
+    private int maxTokensFor(int batchSize) {
+        return repeatablePrompts ? generationController.getMaxTokensCeiling() : generationController.maxTokensFor(batchSize);
     }
     
-    private String sanitizeJson(String json) {
-        if (json == null || json.isEmpty()) {
-            return "[]";
+    /**
+     * Extracts of ingested course material to ground the next batch in, weighted by the exam
+     * blueprint, or none if nothing has been ingested. When responses are recorded or replayed
+     * they are drawn from a seed derived from the batch, so the same batch gets the same prompt.
+     */
+    private List<SourceChunk> pickSources(int batchSize) {
+        if (sourcesPerPrompt <= 0 || sourceStore.isEmpty()) {
+            return List.of();
         }
-        
-        // Remove any trailing commas before closing brackets or braces
-        json = json.replaceAll(",\\s*\\}", "}");
-        json = json.replaceAll(",\\s*\\]", "]");
-        
-        // Ensure all string values are properly quoted
-        json = fixMissingQuotes(json);
-        
-        // Check if JSON starts with [ and ends with ]
-        if (!json.trim().startsWith("[")) {
-            json = "[" + json;
+        if (repeatablePrompts) {
+            return sourceStore.sample(sourcesPerPrompt, new SplittableRandom(batchSize));
         }
-        if (!json.trim().endsWith("]")) {
-            json = json + "]";
+        synchronized (sourceRandom) {
+            return sourceStore.sample(sourcesPerPrompt, sourceRandom);
         }
-        
-        return json;
     }
     
-    private String fixMissingQuotes(String json) {
-        // This is a simple approach - a more robust solution might use a JSON parser
-        StringBuilder result = new StringBuilder();
-        boolean inString = false;
-        boolean escaped = false;
-        
-        for (int i = 0; i < json.length(); i++) {
-            char c = json.charAt(i);
-            
-            if (escaped) {
-                result.append(c);
-                escaped = false;
-            } else if (c == '\\') {
-                result.append(c);
-                escaped = true;
-            } else if (c == '"') {
-                result.append(c);
-                inString = !inString;
-            } else if (c == '\n' || c == '\r') {
-                if (inString) {
-                    // Replace newlines in strings with spaces
-                    result.append(' ');
-                } else {
-                    result.append(c);
-                }
-            } else {
-                result.append(c);
-            }
+    private void recordUsage(int questions, Usage usage) {
+        tokenUsage.record(questions, usage);
+        if (usage != null) {
+            inputTokens.increment(TokenUsage.tokens(usage.getPromptTokens()));
+            outputTokens.increment(TokenUsage.tokens(usage.getCompletionTokens()));
         }
-        
-        // If string is still open at the end, close it
-        if (inString) {
-            result.append('"');
+        if (usage != null && questions > 0) {
+            logger.info("Claude call used {} input tokens for {} questions ({} per question)",
+                    usage.getPromptTokens(), questions, TokenUsage.tokens(usage.getPromptTokens()) / questions);
         }
-        
-        return result.toString();
     }
     
-    private String extractJsonFromResponse(String content) {
-        // Look for content between triple backticks
-        if (content.contains("```json")) {
-            int start = content.indexOf("```json") + 7;
-            int end = content.indexOf("```", start);
-            if (end > start) {
-                logger.debug("Found JSON within code block");
-                return content.substring(start, end).trim();
-            }
-        }
-        
-        // Look for JSON array directly
-        if (content.trim().startsWith("[") && content.trim().endsWith("]")) {
-            logger.debug("Found raw JSON array");
-            return content.trim();
+    private static boolean hitTokenLimit(Generation generation) {
+        return generation.getMetadata() != null
+                && MAX_TOKENS_FINISH_REASON.equalsIgnoreCase(generation.getMetadata().getFinishReason());
+    }
+    
+    private String extractText(ChatResponse response) {
+        Generation generation = response.getResult();
+        if (generation == null || generation.getOutput() == null) {
+            return null;
         }
+        return generation.getOutput().getText();
+    }
+    
+    private List<Question> parseQuestionsFromResponse(String content, int expectedCount) {
+        List<Question> questions = new ArrayList<>();
         
-        // Look for any JSON-like structure
-        Pattern jsonPattern = Pattern.compile("\\[\\s*\\{.*\\}\\s*\\]", Pattern.DOTALL);
-        Matcher matcher = jsonPattern.matcher(content);
-        if (matcher.find()) {
-            logger.debug("Found JSON-like structure using regex");
-            return matcher.group();
+        try {
+            // Single pass over the response: locate and repair the JSON while binding each question
+            jsonExtractor.extract(content, dto -> questions.add(convertDtoToQuestion(dto)));
+            logger.info("Parsed {} questions from response", questions.size());
+            
+            // Log warning if we didn't get the expected number of questions
+            if (!questions.isEmpty() && questions.size() < expectedCount) {
+                logger.warn("Expected {} questions but parsed only {}. This may be due to token limitations or parsing issues.", 
+                    expectedCount, questions.size());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to parse Claude response: {}", e.getMessage());
         }
         
-        logger.debug("Could not identify JSON format, returning raw content");
-        return content;
-    }
-    
-    private Question createErrorQuestion() {
-        return createErrorQuestion("There was an error in question generation. Please contact the administrator.");
+        return questions;
     }
     
-    private Question createErrorQuestion(String explanation) {
-        List<Choice> choices = Arrays.asList(
-            new Choice("Contact administrator", true),
-            new Choice("Try again later", false),
-            new Choice("Restart the application", false),
-            new Choice("Use mock questions instead", false)
-        );
-        
-        return new Question(
-            "Unable to generate questions. What should you do?",
-            choices,
-            explanation
-        );
+    static Question convertDtoToQuestion(QuestionDTO dto) {
+        List<Choice> choices = new ArrayList<>();
+        if (dto.getChoices() != null) {
+            for (ChoiceDTO choiceDto : dto.getChoices()) {
+                choices.add(new Choice(choiceDto.getText(), choiceDto.isCorrect()));
+            }
+        }
+        return new Question(dto.getText(), choices, dto.getExplanation(), Topic.fromSection(dto.getTopic()));
     }
     
-    // DTOs for JSON parsing
-    private static class QuestionDTO {
+    static class QuestionDTO {
         private String text;
         private List<ChoiceDTO> choices;
         private String explanation;
+        private String topic;
         
         public String getText() { return text; }
         public void setText(String text) { this.text = text; }
@@ -322,9 +335,12 @@ public class ClaudeService {
         
         public String getExplanation() { return explanation; }
         public void setExplanation(String explanation) { this.explanation = explanation; }
+        
+        public String getTopic() { return topic; }
+        public void setTopic(String topic) { this.topic = topic; }
     }
     
-    private static class ChoiceDTO {
+    static class ChoiceDTO {
         private String text;
         private boolean correct;
         
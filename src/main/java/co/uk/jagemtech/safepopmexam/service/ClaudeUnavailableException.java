@@ -0,0 +1,16 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+/**
+ * Thrown when Claude could not be reached in time, or is being skipped because recent calls
+ * have failed. Callers fall back to cached or mock questions.
+ */
+public class ClaudeUnavailableException extends RuntimeException {
+
+    public ClaudeUnavailableException(String message) {
+        super(message);
+    }
+
+    public ClaudeUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,133 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-question response statistics and two-parameter item response theory (2PL) estimates,
+ * learned from every answer submitted in any exam.
+ * <p>
+ * Under the 2PL model a candidate of ability θ answers a question of difficulty b and
+ * discrimination a correctly with probability 1 / (1 + e^(-a(θ - b))). Each answer moves a and
+ * b one stochastic gradient step up the likelihood, given the candidate's ability estimate
+ * before the answer, with a step size that shrinks as the question is answered more often.
+ * Counts and steps go to {@link LongAdder}s and {@link DoubleAdder}s, so sessions answering the
+ * same question at once do not contend.
+ */
+@Component
+public class DifficultyCalibration {
+    static final double DEFAULT_DIFFICULTY = 0.0;
+    static final double DEFAULT_DISCRIMINATION = 1.0;
+    private static final double MIN_DISCRIMINATION = 0.2;
+    private static final double MAX_DISCRIMINATION = 3.0;
+    private static final double MAX_DIFFICULTY = 4.0;
+    // The first step is LEARNING_RATE / PRIOR_ANSWERS; after n answers it is LEARNING_RATE / (PRIOR_ANSWERS + n)
+    private static final double LEARNING_RATE = 4.0;
+    private static final double PRIOR_ANSWERS = 10.0;
+    // Read for every question that has not been answered; it is never recorded to
+    private static final ItemStatistics DEFAULT = new ItemStatistics();
+
+    private final Map<Long, ItemStatistics> items = new ConcurrentHashMap<>();
+
+    /**
+     * The statistics for a question, or the defaults if it has not been answered.
+     */
+    public ItemStatistics statistics(Question question) {
+        return statistics(question.getId());
+    }
+
+    /**
+     * The statistics for the question with the given {@link Question#getId() id}. Looking up a
+     * question that has not been answered does not add it.
+     */
+    public ItemStatistics statistics(long questionId) {
+        return items.getOrDefault(questionId, DEFAULT);
+    }
+
+    /**
+     * Record an answer by a candidate whose ability was estimated at {@code ability} before it.
+     */
+    public void record(Question question, boolean correct, double ability) {
+        record(question.getId(), correct, ability);
+    }
+
+    /**
+     * Record an answer to the question with the given {@link Question#getId() id}.
+     */
+    public void record(long questionId, boolean correct, double ability) {
+        items.computeIfAbsent(questionId, id -> new ItemStatistics()).record(correct, ability);
+    }
+
+    /**
+     * The number of questions that have been answered at least once.
+     */
+    public int size() {
+        return items.size();
+    }
+
+    public static final class ItemStatistics {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder correct = new LongAdder();
+        private final DoubleAdder difficultyShift = new DoubleAdder();
+        private final DoubleAdder discriminationShift = new DoubleAdder();
+
+        public long getAttempts() {
+            return attempts.sum();
+        }
+
+        public long getCorrect() {
+            return correct.sum();
+        }
+
+        public double getDifficulty() {
+            return clamp(DEFAULT_DIFFICULTY + difficultyShift.sum(), -MAX_DIFFICULTY, MAX_DIFFICULTY);
+        }
+
+        public double getDiscrimination() {
+            return clamp(DEFAULT_DISCRIMINATION + discriminationShift.sum(), MIN_DISCRIMINATION, MAX_DISCRIMINATION);
+        }
+
+        /**
+         * The probability that a candidate of the given ability answers correctly.
+         */
+        public double probabilityCorrect(double ability) {
+            return DifficultyCalibration.probabilityCorrect(ability, getDiscrimination(), getDifficulty());
+        }
+
+        /**
+         * Fisher information about ability that an answer to this question gives, a²P(1 - P).
+         * It is greatest for candidates whose ability is close to the question's difficulty.
+         */
+        public double information(double ability) {
+            double discrimination = getDiscrimination();
+            double p = DifficultyCalibration.probabilityCorrect(ability, discrimination, getDifficulty());
+            return discrimination * discrimination * p * (1 - p);
+        }
+
+        void record(boolean answeredCorrectly, double ability) {
+            double step = LEARNING_RATE / (PRIOR_ANSWERS + attempts.sum());
+            double discrimination = getDiscrimination();
+            double difficulty = getDifficulty();
+            double residual = (answeredCorrectly ? 1 : 0) - DifficultyCalibration.probabilityCorrect(ability, discrimination, difficulty);
+            difficultyShift.add(-step * discrimination * residual);
+            discriminationShift.add(step * (ability - difficulty) * residual);
+            attempts.increment();
+            if (answeredCorrectly) {
+                correct.increment();
+            }
+        }
+    }
+
+    static double probabilityCorrect(double ability, double discrimination, double difficulty) {
+        return 1 / (1 + Math.exp(-discrimination * (ability - difficulty)));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
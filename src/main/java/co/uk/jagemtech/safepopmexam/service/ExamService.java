@@ -1,97 +1,287 @@
 package co.uk.jagemtech.safepopmexam.service;
 
+import co.uk.jagemtech.safepopmexam.model.AttemptEvent;
 import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.repository.AttemptJournal;
 import co.uk.jagemtech.safepopmexam.repository.QuestionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Hosts any number of concurrent exams, each keyed by a session id. Session state lives in
+ * {@link ExamSession}, so answering in one session never blocks another. Sessions that have
+ * not been used for {@code popm.exam.session-idle-timeout} are expired.
+ * <p>
+ * Answers from every session feed one {@link DifficultyCalibration}, which adaptive exams use
+ * to pick the most informative question for each candidate.
+ * <p>
+ * Every exam is written to the {@link AttemptJournal}. On startup the journal is replayed to
+ * rebuild the calibration, and exams that were still in progress, and used within the idle
+ * timeout, can be {@link #resumeExam resumed}.
+ */
 @Service
 public class ExamService {
-    
+    private static final Logger logger = LoggerFactory.getLogger(ExamService.class);
+
+    public static final String EXAMS_STARTED_COUNTER = "popm.exam.started";
+    public static final String ANSWERS_COUNTER = "popm.exam.answers";
+    public static final String ACTIVE_SESSIONS_GAUGE = "popm.exam.sessions.active";
+
     private final QuestionRepository questionRepository;
-    private List<Question> examQuestions;
-    private int currentQuestionIndex = 0;
-    private int correctAnswers = 0;
-    private boolean examInProgress = false;
-    
+    private final DifficultyCalibration calibration;
+    private final AttemptJournal journal;
+    private final ExamSession.AdaptivePolicy adaptivePolicy;
+    private final Map<String, ExamSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, SessionHistory> resumable = new ConcurrentHashMap<>();
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService expiryScheduler;
+    private final Counter examsStarted;
+    private final Counter answers;
+
     @Autowired
-    public ExamService(QuestionRepository questionRepository) {
+    public ExamService(QuestionRepository questionRepository,
+                       DifficultyCalibration calibration,
+                       AttemptJournal journal,
+                       @Value("${popm.exam.session-idle-timeout:30m}") Duration idleTimeout,
+                       @Value("${popm.exam.adaptive-pool-factor:3}") int adaptivePoolFactor,
+                       @Value("${popm.exam.adaptive-min-questions:5}") int adaptiveMinQuestions,
+                       @Value("${popm.exam.adaptive-target-error:0.4}") double adaptiveTargetError,
+                       MeterRegistry meterRegistry) {
         this.questionRepository = questionRepository;
+        this.calibration = calibration;
+        this.journal = journal;
+        this.adaptivePolicy = new ExamSession.AdaptivePolicy(adaptivePoolFactor, adaptiveMinQuestions, adaptiveTargetError);
+        this.examsStarted = Counter.builder(EXAMS_STARTED_COUNTER)
+                .description("Exams started").register(meterRegistry);
+        this.answers = Counter.builder(ANSWERS_COUNTER)
+                .description("Answers submitted across all exam sessions").register(meterRegistry);
+        Gauge.builder(ACTIVE_SESSIONS_GAUGE, sessions, Map::size)
+                .description("Exam sessions not yet expired").register(meterRegistry);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.expiryScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("exam-session-expiry").daemon().factory());
+        long sweepMillis = Math.max(1000, idleTimeout.toMillis() / 4);
+        this.expiryScheduler.scheduleWithFixedDelay(this::expireIdleSessions, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
     }
-    
-    public void startExam(int numberOfQuestions) {
-        List<Question> allQuestions = questionRepository.getAllQuestions();
-        
-        if (numberOfQuestions > allQuestions.size()) {
-            numberOfQuestions = allQuestions.size();
+
+    /**
+     * A new, unique session id.
+     */
+    public String createSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Start a new exam for the session, replacing any exam it already had. Returns as soon
+     * as the first question is ready.
+     */
+    public ExamSession startExam(String sessionId, int numberOfQuestions) {
+        ExamSession session = new ExamSession(sessionId, calibration, journal);
+        replace(sessionId, session);
+        session.start(questionRepository, numberOfQuestions);
+        examsStarted.increment();
+        return session;
+    }
+
+    /**
+     * Start a new adaptive exam for the session, replacing any exam it already had. It asks
+     * at most {@code maxQuestions} questions and stops early once the candidate's ability is
+     * known to within {@code popm.exam.adaptive-target-error}.
+     */
+    public ExamSession startAdaptiveExam(String sessionId, int maxQuestions) {
+        ExamSession session = new ExamSession(sessionId, calibration, journal);
+        replace(sessionId, session);
+        session.startAdaptive(questionRepository, maxQuestions, adaptivePolicy);
+        examsStarted.increment();
+        return session;
+    }
+
+    /**
+     * Continue an exam that was in progress when the application last stopped, from its journalled
+     * questions and answers. Returns the live session if there already is one, or null if the
+     * session is unknown, finished, expired or asked questions that are no longer available.
+     */
+    public ExamSession resumeExam(String sessionId) {
+        ExamSession live = sessions.get(sessionId);
+        if (live != null) {
+            return live;
         }
-        
-        // Shuffle and select the specified number of questions
-        Collections.shuffle(allQuestions);
-        examQuestions = allQuestions.subList(0, numberOfQuestions);
-        
-        currentQuestionIndex = 0;
-        correctAnswers = 0;
-        examInProgress = true;
-    }
-    
-    public Question getCurrentQuestion() {
-        if (!examInProgress || currentQuestionIndex >= examQuestions.size()) {
+        SessionHistory history = resumable.remove(sessionId);
+        if (history == null) {
             return null;
         }
-        return examQuestions.get(currentQuestionIndex);
+
+        List<Question> asked = new ArrayList<>(history.getAskedQuestionIds().size());
+        for (long questionId : history.getAskedQuestionIds()) {
+            Question question = questionRepository.getQuestion(questionId);
+            if (question == null) {
+                logger.warn("Cannot resume exam session {}: question {} is no longer available", sessionId, questionId);
+                return null;
+            }
+            asked.add(question);
+        }
+
+        ExamSession session = new ExamSession(sessionId, calibration, journal);
+        sessions.put(sessionId, session);
+        session.resume(questionRepository, history.getNumberOfQuestions(), history.isAdaptive() ? adaptivePolicy : null,
+                asked, history.getAnswers());
+        logger.info("Resumed exam session {} at question {}", sessionId, history.getAnswers().size() + 1);
+        return session;
     }
-    
-    public boolean submitAnswer(int choiceIndex) {
-        if (!examInProgress || currentQuestionIndex >= examQuestions.size()) {
-            return false;
+
+    /**
+     * The ids of sessions that were in progress when the application last stopped and can be resumed.
+     */
+    public List<String> getResumableSessionIds() {
+        return List.copyOf(resumable.keySet());
+    }
+
+    /**
+     * Replay the attempt journal: report every journalled answer to the calibration and remember
+     * the exams that never ended so they can be resumed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        Map<String, SessionHistory> histories = new HashMap<>();
+        int events = journal.replay(event -> {
+            if (event.type() == AttemptEvent.Type.STARTED) {
+                SessionHistory previous = histories.put(event.sessionId(), new SessionHistory(event));
+                if (previous != null) {
+                    previous.calibrate(calibration);
+                }
+            } else {
+                SessionHistory history = histories.get(event.sessionId());
+                if (history != null) {
+                    history.apply(event);
+                }
+            }
+        });
+
+        long cutoff = System.currentTimeMillis() - idleTimeoutNanos / 1_000_000;
+        for (SessionHistory history : histories.values()) {
+            history.calibrate(calibration);
+            if (!history.isEnded() && history.getLastTimestamp() >= cutoff && !sessions.containsKey(history.getSessionId())) {
+                resumable.put(history.getSessionId(), history);
+            }
         }
-        
-        Question currentQuestion = examQuestions.get(currentQuestionIndex);
-        if (choiceIndex < 0 || choiceIndex >= currentQuestion.getChoices().size()) {
-            return false;
+        if (events > 0) {
+            logger.info("Replayed {} attempt events: {} questions calibrated, {} exams can be resumed",
+                    events, calibration.size(), resumable.size());
         }
-        
-        boolean isCorrect = currentQuestion.getChoices().get(choiceIndex).isCorrect();
-        if (isCorrect) {
-            correctAnswers++;
+    }
+
+    public ExamSession getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public Question getCurrentQuestion(String sessionId) {
+        ExamSession session = sessions.get(sessionId);
+        return session != null ? session.getCurrentQuestion() : null;
+    }
+
+    public boolean submitAnswer(String sessionId, int choiceIndex) {
+        ExamSession.Answer answer = answer(sessionId, choiceIndex);
+        return answer != null && answer.correct();
+    }
+
+    /**
+     * Answer the session's current question, as {@link ExamSession#answer(int)}. Returns null if
+     * the session is unknown or has no exam in progress. Only accepted answers are counted.
+     */
+    public ExamSession.Answer answer(String sessionId, int choiceIndex) {
+        ExamSession session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
         }
-        
-        currentQuestionIndex++;
-        if (currentQuestionIndex >= examQuestions.size()) {
-            examInProgress = false;
+        ExamSession.Answer answer = session.answer(choiceIndex);
+        if (answer != null && answer.accepted()) {
+            answers.increment();
         }
-        
-        return isCorrect;
+        return answer;
     }
-    
-    public boolean isExamInProgress() {
-        return examInProgress;
+
+    public boolean isExamInProgress(String sessionId) {
+        ExamSession session = sessions.get(sessionId);
+        return session != null && session.isExamInProgress();
     }
-    
-    public int getTotalQuestions() {
-        return examQuestions != null ? examQuestions.size() : 0;
+
+    public int getTotalQuestions(String sessionId) {
+        ExamSession session = sessions.get(sessionId);
+        return session != null ? session.getTotalQuestions() : 0;
     }
-    
-    public int getCurrentQuestionNumber() {
-        return currentQuestionIndex + 1;
+
+    public int getCurrentQuestionNumber(String sessionId) {
+        ExamSession session = sessions.get(sessionId);
+        return session != null ? session.getCurrentQuestionNumber() : 1;
     }
-    
-    public int getCorrectAnswers() {
-        return correctAnswers;
+
+    public int getCorrectAnswers(String sessionId) {
+        ExamSession session = sessions.get(sessionId);
+        return session != null ? session.getCorrectAnswers() : 0;
+    }
+
+    public double getScore(String sessionId) {
+        ExamSession session = sessions.get(sessionId);
+        return session != null ? session.getScore() : 0.0;
     }
-    
-    public double getScore() {
-        if (examQuestions == null || examQuestions.isEmpty()) {
-            return 0.0;
+
+    public void endExam(String sessionId) {
+        ExamSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.end();
+        }
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    void expireIdleSessions() {
+        long now = System.nanoTime();
+        int before = sessions.size();
+        sessions.values().removeIf(session -> {
+            if (now - session.getLastAccessNanos() <= idleTimeoutNanos) {
+                return false;
+            }
+            session.end();
+            return true;
+        });
+        int expired = before - sessions.size();
+        if (expired > 0) {
+            logger.debug("Expired {} idle exam sessions", expired);
         }
-        return (double) correctAnswers / examQuestions.size() * 100;
     }
-    
-    public void endExam() {
-        examInProgress = false;
+
+    private void replace(String sessionId, ExamSession session) {
+        resumable.remove(sessionId);
+        ExamSession previous = sessions.put(sessionId, session);
+        if (previous != null) {
+            previous.end();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiryScheduler.shutdownNow();
     }
 }
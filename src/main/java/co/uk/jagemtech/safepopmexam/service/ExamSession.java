@@ -0,0 +1,459 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.AttemptEvent;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.repository.AttemptJournal;
+import co.uk.jagemtech.safepopmexam.repository.QuestionRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.random.RandomGenerator;
+
+/**
+ * The state of one candidate's exam. Each session has its own lock and random source, so
+ * sessions never contend with each other. A {@link ReentrantLock} is used rather than
+ * {@code synchronized} so that waiting for a question does not pin a virtual thread.
+ * <p>
+ * Every answer is reported to the shared {@link DifficultyCalibration} and updates the
+ * candidate's {@link AbilityEstimate}. An adaptive exam draws a pool of candidate questions
+ * and, at each step, asks the one giving the most information at the current ability
+ * estimate, stopping as soon as the estimate is precise enough.
+ * <p>
+ * The start, each question asked, each answer and the end are appended to the
+ * {@link AttemptJournal}, from which a session can be {@link #resume resumed} after a crash.
+ */
+public class ExamSession {
+
+    /**
+     * How an adaptive exam chooses and stops.
+     *
+     * @param poolFactor   candidate questions drawn per question that may be asked
+     * @param minQuestions questions always asked before the exam may stop early
+     * @param targetError  the ability standard error at which the exam stops
+     */
+    public record AdaptivePolicy(int poolFactor, int minQuestions, double targetError) {
+    }
+
+    /**
+     * An answer to one question.
+     *
+     * @param question the question that was answered
+     * @param accepted whether the choice was valid for the question and scored
+     * @param correct  whether the choice was the correct one
+     */
+    public record Answer(Question question, boolean accepted, boolean correct) {
+    }
+
+    private final String id;
+    private final RandomGenerator random;
+    private final DifficultyCalibration calibration;
+    private final AttemptJournal journal;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition questionArrived = lock.newCondition();
+    private List<Question> examQuestions = new ArrayList<>();
+    private List<Question> candidates = new ArrayList<>();
+    private int expectedQuestions = 0;
+    private AdaptivePolicy adaptivePolicy;
+    private AbilityTracker abilityTracker = new AbilityTracker(0);
+    private CompletableFuture<Void> generation = CompletableFuture.completedFuture(null);
+    private int currentQuestionIndex = 0;
+    private int correctAnswers = 0;
+    private boolean examInProgress = false;
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    public ExamSession(String id, DifficultyCalibration calibration, AttemptJournal journal) {
+        this(id, new SplittableRandom(), calibration, journal);
+    }
+
+    public ExamSession(String id, RandomGenerator random, DifficultyCalibration calibration, AttemptJournal journal) {
+        this.id = id;
+        this.random = random;
+        this.calibration = calibration;
+        this.journal = journal;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Start the exam. Questions are delivered by the repository as they become available,
+     * so this returns as soon as the first question is ready rather than when all are.
+     */
+    void start(QuestionRepository questionRepository, int numberOfQuestions) {
+        journal.append(AttemptEvent.started(id, numberOfQuestions, false));
+        begin(questionRepository, numberOfQuestions, null, List.of(), List.of());
+    }
+
+    /**
+     * Start an adaptive exam of at most {@code maxQuestions} questions, chosen one at a time
+     * from a pool of {@code maxQuestions * poolFactor} drawn from the repository.
+     */
+    void startAdaptive(QuestionRepository questionRepository, int maxQuestions, AdaptivePolicy policy) {
+        journal.append(AttemptEvent.started(id, maxQuestions, true));
+        begin(questionRepository, maxQuestions, policy, List.of(), List.of());
+    }
+
+    /**
+     * Continue an exam from its journalled history: the questions already asked, in order, and the
+     * answers already given. The answers are not reported to the calibration again. The rest of
+     * the exam is drawn from the repository, skipping the questions already asked.
+     */
+    void resume(QuestionRepository questionRepository, int numberOfQuestions, AdaptivePolicy policy,
+                List<Question> asked, List<SessionHistory.Answer> answers) {
+        begin(questionRepository, numberOfQuestions, policy, asked, answers);
+    }
+
+    private void begin(QuestionRepository questionRepository, int numberOfQuestions, AdaptivePolicy policy,
+                       List<Question> asked, List<SessionHistory.Answer> answers) {
+        touch();
+        Set<Long> askedIds = new HashSet<>();
+        asked.forEach(question -> askedIds.add(question.getId()));
+        int remaining = Math.max(0, numberOfQuestions - asked.size());
+        int wanted = policy != null ? remaining * Math.max(1, policy.poolFactor()) : remaining;
+        List<Question> questions = new ArrayList<>(asked);
+        List<Question> pool = policy != null ? new ArrayList<>(wanted) : questions;
+        // Installed with examInProgress, so no caller sees the previous generation done before the stream attaches
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        lock.lock();
+        try {
+            examQuestions = questions;
+            candidates = pool;
+            expectedQuestions = numberOfQuestions;
+            adaptivePolicy = policy;
+            abilityTracker = new AbilityTracker(numberOfQuestions);
+            correctAnswers = 0;
+            for (SessionHistory.Answer answer : answers) {
+                abilityTracker.record(calibration, answer.questionId(), answer.correct(), false);
+                if (answer.correct()) {
+                    correctAnswers++;
+                }
+            }
+            currentQuestionIndex = answers.size();
+            examInProgress = true;
+            if (currentQuestionIndex >= numberOfQuestions || (policy != null && isPreciseEnough())) {
+                finish();
+                return;
+            }
+            generation = pending;
+        } finally {
+            lock.unlock();
+        }
+
+        // Ask for extra questions when resuming, since some drawn may have been asked already
+        int drawn = wanted + (wanted > 0 ? asked.size() : 0);
+        int[] accepted = {0};
+        CompletableFuture<Void> streamed;
+        try {
+            streamed = questionRepository.streamQuestions(drawn, random, question -> {
+                lock.lock();
+                try {
+                    if (accepted[0] < wanted && askedIds.add(question.getId())) {
+                        accepted[0]++;
+                        pool.add(question);
+                        if (policy == null) {
+                            journal.append(AttemptEvent.asked(id, questions.size() - 1, question.getId()));
+                        }
+                    }
+                    questionArrived.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            });
+        } catch (RuntimeException e) {
+            generationFinished(pending);
+            throw e;
+        }
+        streamed.whenComplete((result, error) -> generationFinished(pending));
+
+        lock.lock();
+        try {
+            awaitQuestion(currentQuestionIndex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void generationFinished(CompletableFuture<Void> pending) {
+        lock.lock();
+        try {
+            pending.complete(null);
+            questionArrived.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Question getCurrentQuestion() {
+        touch();
+        lock.lock();
+        try {
+            if (!examInProgress || !awaitQuestion(currentQuestionIndex)) {
+                return null;
+            }
+            return examQuestions.get(currentQuestionIndex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The question at the given position, waiting for it if it is still being generated.
+     * Returns null once generation has finished without producing it. An adaptive exam only
+     * returns questions that have already been asked, since later ones depend on the answers.
+     */
+    public Question getQuestion(int index) {
+        touch();
+        lock.lock();
+        try {
+            if (adaptivePolicy != null) {
+                return index < examQuestions.size() ? examQuestions.get(index) : null;
+            }
+            while (index >= examQuestions.size() && !generation.isDone()) {
+                questionArrived.await();
+            }
+            return index < examQuestions.size() ? examQuestions.get(index) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean submitAnswer(int choiceIndex) {
+        touch();
+        lock.lock();
+        try {
+            if (!examInProgress || currentQuestionIndex >= examQuestions.size()) {
+                return false;
+            }
+            return score(choiceIndex).correct();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Answer the current question, waiting for it if it is still being generated, and return it
+     * with the result in one step, so concurrent answers cannot score one question and report
+     * another. Returns null if no exam is in progress; a choice out of range is not accepted.
+     */
+    public Answer answer(int choiceIndex) {
+        touch();
+        lock.lock();
+        try {
+            if (!examInProgress || !awaitQuestion(currentQuestionIndex)) {
+                return null;
+            }
+            return score(choiceIndex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Score a choice for the current question, which must have arrived. Must hold the lock.
+     */
+    private Answer score(int choiceIndex) {
+        Question currentQuestion = examQuestions.get(currentQuestionIndex);
+        if (choiceIndex < 0 || choiceIndex >= currentQuestion.getChoices().size()) {
+            return new Answer(currentQuestion, false, false);
+        }
+
+        boolean isCorrect = currentQuestion.getChoices().get(choiceIndex).isCorrect();
+        if (isCorrect) {
+            correctAnswers++;
+        }
+        abilityTracker.record(calibration, currentQuestion.getId(), isCorrect, true);
+        journal.append(AttemptEvent.answered(id, currentQuestionIndex, currentQuestion.getId(), choiceIndex, isCorrect));
+
+        currentQuestionIndex++;
+        if (currentQuestionIndex >= getTotalQuestions() || (adaptivePolicy != null && isPreciseEnough())) {
+            finish();
+        }
+
+        return new Answer(currentQuestion, true, isCorrect);
+    }
+
+    public boolean isExamInProgress() {
+        lock.lock();
+        try {
+            return examInProgress;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isAdaptive() {
+        lock.lock();
+        try {
+            return adaptivePolicy != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The candidate's ability estimated from the answers so far.
+     */
+    public AbilityEstimate getAbilityEstimate() {
+        lock.lock();
+        try {
+            return abilityTracker.estimate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of questions in the exam. While questions are still being generated this is
+     * the number requested; once generation has finished it is the number actually received.
+     * An adaptive exam reports its maximum while in progress and the number asked once finished.
+     */
+    public int getTotalQuestions() {
+        lock.lock();
+        try {
+            if (adaptivePolicy != null) {
+                if (!examInProgress) {
+                    return examQuestions.size();
+                }
+                return generation.isDone()
+                        ? Math.min(expectedQuestions, examQuestions.size() + candidates.size())
+                        : expectedQuestions;
+            }
+            return generation.isDone() ? examQuestions.size() : expectedQuestions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCurrentQuestionNumber() {
+        lock.lock();
+        try {
+            return currentQuestionIndex + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCorrectAnswers() {
+        lock.lock();
+        try {
+            return correctAnswers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getScore() {
+        lock.lock();
+        try {
+            int totalQuestions = getTotalQuestions();
+            if (totalQuestions == 0) {
+                return 0.0;
+            }
+            return (double) correctAnswers / totalQuestions * 100;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void end() {
+        touch();
+        lock.lock();
+        try {
+            finish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    private void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * Stop the exam, journalling its end unless it had already stopped. Must hold the lock.
+     */
+    private void finish() {
+        if (examInProgress) {
+            examInProgress = false;
+            journal.append(AttemptEvent.ended(id));
+        }
+    }
+
+    private boolean isPreciseEnough() {
+        return currentQuestionIndex >= adaptivePolicy.minQuestions()
+                && abilityTracker.estimate().standardError() <= adaptivePolicy.targetError();
+    }
+
+    /**
+     * Wait until the question at the given index has arrived or generation has finished.
+     * Ends the exam if generation finished without producing it. Must hold the lock.
+     */
+    private boolean awaitQuestion(int index) {
+        if (adaptivePolicy != null && index >= examQuestions.size()) {
+            return awaitNextAdaptiveQuestion();
+        }
+        while (index >= examQuestions.size() && !generation.isDone()) {
+            try {
+                questionArrived.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        if (index >= examQuestions.size()) {
+            finish();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ask the candidate question that is most informative at the current ability estimate,
+     * choosing from those that have arrived so far. Must hold the lock.
+     */
+    private boolean awaitNextAdaptiveQuestion() {
+        while (candidates.isEmpty() && !generation.isDone()) {
+            try {
+                questionArrived.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        if (candidates.isEmpty() || examQuestions.size() >= expectedQuestions) {
+            finish();
+            return false;
+        }
+        double ability = abilityTracker.estimate().ability();
+        int best = 0;
+        double bestInformation = -1;
+        for (int i = 0; i < candidates.size(); i++) {
+            double information = calibration.statistics(candidates.get(i)).information(ability);
+            if (information > bestInformation) {
+                best = i;
+                bestInformation = information;
+            }
+        }
+        // Swap with the last candidate so removal does not shift the pool
+        Question chosen = candidates.get(best);
+        candidates.set(best, candidates.get(candidates.size() - 1));
+        candidates.remove(candidates.size() - 1);
+        examQuestions.add(chosen);
+        journal.append(AttemptEvent.asked(id, examQuestions.size() - 1, chosen.getId()));
+        return true;
+    }
+}
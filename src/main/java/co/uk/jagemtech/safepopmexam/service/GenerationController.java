@@ -0,0 +1,113 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tunes how many questions to ask Claude for per call, and the {@code max-tokens} limit for
+ * each call, from what previous calls produced.
+ * <p>
+ * The batch size follows AIMD: it grows by one after each call that returned every requested
+ * question within {@code popm.generation.target-latency}, and halves after a call that was
+ * truncated (fewer questions parsed than requested, or the token limit reached) or slow.
+ * The token limit for a call is the batch size times a moving average of output tokens per
+ * question, with headroom, so a batch is not cut short as it grows.
+ */
+@Component
+public class GenerationController {
+    private static final Logger logger = LoggerFactory.getLogger(GenerationController.class);
+    private static final double HEADROOM = 1.5;
+    private static final double SMOOTHING = 0.3;
+    private static final int MIN_MAX_TOKENS = 512;
+
+    private final int maxBatchSize;
+    private final int maxTokensCeiling;
+    private final long targetLatencyNanos;
+    private int batchSize;
+    private double tokensPerQuestion;
+
+    public GenerationController(@Value("${popm.generation.initial-batch-size:5}") int initialBatchSize,
+                                @Value("${popm.generation.max-batch-size:10}") int maxBatchSize,
+                                @Value("${popm.generation.initial-tokens-per-question:400}") int initialTokensPerQuestion,
+                                @Value("${popm.generation.max-tokens-ceiling:8192}") int maxTokensCeiling,
+                                @Value("${popm.generation.target-latency:30s}") Duration targetLatency) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSize = Math.max(1, Math.min(initialBatchSize, this.maxBatchSize));
+        this.tokensPerQuestion = initialTokensPerQuestion;
+        this.maxTokensCeiling = Math.max(MIN_MAX_TOKENS, maxTokensCeiling);
+        this.targetLatencyNanos = targetLatency.toNanos();
+    }
+
+    /**
+     * The number of questions to request in the next call.
+     */
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * The most questions that may be requested in one call.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * The highest {@code max-tokens} limit any call is given.
+     */
+    public int getMaxTokensCeiling() {
+        return maxTokensCeiling;
+    }
+
+    /**
+     * The {@code max-tokens} limit for a call requesting the given number of questions.
+     */
+    public synchronized int maxTokensFor(int questions) {
+        long tokens = (long) Math.ceil(questions * tokensPerQuestion * HEADROOM);
+        return (int) Math.max(MIN_MAX_TOKENS, Math.min(maxTokensCeiling, tokens));
+    }
+
+    synchronized double getTokensPerQuestion() {
+        return tokensPerQuestion;
+    }
+
+    /**
+     * Record the outcome of a call and adjust the batch size and token estimate.
+     *
+     * @param requested       questions asked for
+     * @param parsed          usable questions parsed from the response
+     * @param outputTokens    output tokens reported for the call, or 0 if unknown
+     * @param latency         time taken by the call
+     * @param hitTokenLimit   whether the response stopped at the token limit
+     */
+    public synchronized void record(int requested, int parsed, long outputTokens, Duration latency,
+                                    boolean hitTokenLimit) {
+        if (parsed > 0 && outputTokens > 0) {
+            double observed = (double) outputTokens / parsed;
+            tokensPerQuestion = hitTokenLimit
+                    // Tokens spent on the partial question are not counted, so allow for it
+                    ? Math.max(tokensPerQuestion, observed) * HEADROOM
+                    : tokensPerQuestion + SMOOTHING * (observed - tokensPerQuestion);
+        } else if (hitTokenLimit) {
+            tokensPerQuestion *= HEADROOM;
+        }
+
+        int previous = batchSize;
+        boolean truncated = hitTokenLimit || parsed < requested;
+        boolean slow = latency.toNanos() > targetLatencyNanos;
+        if (truncated || slow) {
+            batchSize = Math.max(1, batchSize / 2);
+        } else if (requested >= batchSize) {
+            batchSize = Math.min(maxBatchSize, batchSize + 1);
+        }
+
+        if (batchSize != previous) {
+            logger.info("Generation batch size {} -> {} ({}; {} output tokens per question)", previous, batchSize,
+                    truncated ? "truncated" : slow ? "slow" : "complete", Math.round(tokensPerQuestion));
+        }
+    }
+}
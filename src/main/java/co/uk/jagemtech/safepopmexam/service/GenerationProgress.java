@@ -0,0 +1,150 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live view of question generation, fed by the pipeline as it works: batches in flight and
+ * what each is waiting on, tokens received and questions parsed. Everything is a running
+ * total or a current count, so any number of readers (the CLI progress line, {@code stats})
+ * can sample it without coordinating with the writers or with each other.
+ */
+@Component
+public class GenerationProgress {
+
+    public static final String BATCHES_GAUGE = "popm.generation.batches";
+
+    /**
+     * What an in-flight batch is doing: waiting for Claude's first byte, receiving a streamed
+     * response, or parsing a complete one.
+     */
+    public enum Stage { WAITING, RECEIVING, PARSING }
+
+    private final AtomicInteger[] inStage = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+    private final LongAdder batchesStarted = new LongAdder();
+    private final LongAdder batchesFailed = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder questions = new LongAdder();
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    public GenerationProgress(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            Gauge.builder(BATCHES_GAUGE, inStage[stage.ordinal()], AtomicInteger::get)
+                    .tag("stage", stage.name().toLowerCase())
+                    .description("Claude generation batches in flight, by what they are waiting on")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Record that a batch has been sent to Claude. The returned handle reports the batch's
+     * progress and must be finished exactly once.
+     */
+    public Batch batchStarted() {
+        batchesStarted.increment();
+        inStage[Stage.WAITING.ordinal()].incrementAndGet();
+        touch();
+        return new Batch();
+    }
+
+    public int getBatchesInFlight() {
+        return inStage[0].get() + inStage[1].get() + inStage[2].get();
+    }
+
+    public int getBatches(Stage stage) {
+        return inStage[stage.ordinal()].get();
+    }
+
+    public long getBatchesStarted() {
+        return batchesStarted.sum();
+    }
+
+    public long getBatchesFailed() {
+        return batchesFailed.sum();
+    }
+
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    public long getQuestions() {
+        return questions.sum();
+    }
+
+    /**
+     * {@link System#nanoTime()} when the pipeline last reported anything, for spotting stalled calls.
+     */
+    public long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    private void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    /**
+     * One batch's progress through the pipeline. Not thread-safe: a batch is driven by one
+     * thread at a time, such as the caller or the stream delivering its response.
+     */
+    public final class Batch {
+        private Stage stage = Stage.WAITING;
+        private boolean finished = false;
+
+        /**
+         * Part of a streamed response has arrived.
+         */
+        public void received() {
+            moveTo(Stage.RECEIVING);
+            touch();
+        }
+
+        /**
+         * Claude has reported more output tokens for this batch.
+         */
+        public void tokens(long count) {
+            if (count > 0) {
+                tokens.add(count);
+                touch();
+            }
+        }
+
+        /**
+         * The response is complete and is being parsed.
+         */
+        public void parsing() {
+            moveTo(Stage.PARSING);
+            touch();
+        }
+
+        public void parsed(int count) {
+            if (count > 0) {
+                questions.add(count);
+                touch();
+            }
+        }
+
+        public void finish(boolean succeeded) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            inStage[stage.ordinal()].decrementAndGet();
+            if (!succeeded) {
+                batchesFailed.increment();
+            }
+            touch();
+        }
+
+        private void moveTo(Stage next) {
+            if (!finished && stage != next) {
+                inStage[stage.ordinal()].decrementAndGet();
+                inStage[next.ordinal()].incrementAndGet();
+                stage = next;
+            }
+        }
+    }
+}
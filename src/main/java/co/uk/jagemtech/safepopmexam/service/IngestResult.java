@@ -0,0 +1,23 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Topic;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The outcome of ingesting course material: files read, bytes read, chunks stored per topic
+ * (untagged chunks are counted separately) and how long it took.
+ */
+public record IngestResult(int files, int failedFiles, long bytes, Map<Topic, Integer> chunksByTopic,
+                           int untaggedChunks, Duration elapsed) {
+
+    public int chunks() {
+        return untaggedChunks + chunksByTopic.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public double megabytesPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? bytes / (1024.0 * 1024.0) / seconds : 0.0;
+    }
+}
@@ -0,0 +1,86 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the application's metrics in the Prometheus text format to {@code popm.metrics.prometheus-file}
+ * every {@code popm.metrics.prometheus-interval}. The application has no HTTP server, so this file is
+ * what a local Prometheus (via the node exporter's textfile collector) or any other tool scrapes.
+ * Nothing is written while the file is not configured.
+ */
+@Service
+public class PrometheusScrapeFile {
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusScrapeFile.class);
+
+    private final ObjectProvider<PrometheusMeterRegistry> registry;
+    private final String file;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public PrometheusScrapeFile(ObjectProvider<PrometheusMeterRegistry> registry,
+                                @Value("${popm.metrics.prometheus-file:}") String file,
+                                @Value("${popm.metrics.prometheus-interval:15s}") Duration interval) {
+        this.registry = registry;
+        this.file = file;
+        this.interval = interval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (file.isBlank() || scheduler != null) {
+            return;
+        }
+        PrometheusMeterRegistry prometheus = registry.getIfAvailable();
+        if (prometheus == null) {
+            logger.warn("Prometheus registry is disabled, not writing {}", file);
+            return;
+        }
+        Path path = Path.of(file);
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("prometheus-scrape-file").daemon().factory());
+        scheduler.scheduleWithFixedDelay(() -> write(prometheus, path), 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Writing Prometheus metrics to {} every {}s", path, interval.toSeconds());
+    }
+
+    /**
+     * Write a scrape to the file, via a temporary file so a reader never sees a partial scrape.
+     */
+    static void write(PrometheusMeterRegistry prometheus, Path path) {
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            Files.writeString(temporary, prometheus.scrape(), StandardCharsets.UTF_8);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to write Prometheus metrics to {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
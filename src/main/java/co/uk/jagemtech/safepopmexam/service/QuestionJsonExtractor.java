@@ -0,0 +1,222 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Extracts questions from a Claude response in a single linear pass.
+ * <p>
+ * The response is read through a {@link RepairingReader}, which skips any prose or code
+ * fences around the JSON, drops trailing commas, replaces raw newlines inside strings and
+ * closes unterminated strings and containers at the end of a truncated response. Jackson's
+ * streaming parser then binds each question object as it is reached, so every complete
+ * question before a corrupt or truncated one is still returned.
+ */
+class QuestionJsonExtractor {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionJsonExtractor.class);
+
+    private final ObjectMapper objectMapper;
+
+    QuestionJsonExtractor(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Hand each question found in the response to the consumer and return how many were found.
+     */
+    int extract(String content, Consumer<ClaudeService.QuestionDTO> consumer) {
+        int extracted = 0;
+        try (JsonParser parser = objectMapper.createParser(new RepairingReader(content))) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token == JsonToken.START_OBJECT) {
+                ClaudeService.QuestionDTO dto = objectMapper.readValue(parser, ClaudeService.QuestionDTO.class);
+                if (isUsable(dto)) {
+                    consumer.accept(dto);
+                    extracted++;
+                }
+                token = parser.nextToken();
+            }
+        } catch (IOException e) {
+            logger.debug("Stopped extracting questions after {}: {}", extracted, e.getMessage());
+        }
+        return extracted;
+    }
+
+    /**
+     * Whether a parsed question is complete enough to show: it needs its text, at least two
+     * choices and a correct answer. Questions cut short by a truncated response usually fail this.
+     */
+    static boolean isUsable(ClaudeService.QuestionDTO dto) {
+        return dto.getText() != null
+                && dto.getChoices() != null
+                && dto.getChoices().size() >= 2
+                && dto.getChoices().stream().anyMatch(ClaudeService.ChoiceDTO::isCorrect);
+    }
+
+    /**
+     * Rewrites the response into parseable JSON one character at a time, without regular
+     * expressions or intermediate copies of the response.
+     */
+    static class RepairingReader extends Reader {
+        private final String content;
+        private int position = 0;
+
+        private boolean started = false;
+        private boolean finished = false;
+        private char candidate = 0;
+        private char[] containers = new char[8];
+        private int depth = 0;
+        private boolean inString = false;
+        private char quote = 0;
+        private boolean escaped = false;
+        private boolean pendingComma = false;
+
+        // Repaired characters waiting to be read
+        private char[] out = new char[16];
+        private int outStart = 0;
+        private int outEnd = 0;
+
+        RepairingReader(String content) {
+            this.content = content != null ? content : "";
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            int read = 0;
+            while (read < length) {
+                if (outStart < outEnd) {
+                    int count = Math.min(length - read, outEnd - outStart);
+                    System.arraycopy(out, outStart, buffer, offset + read, count);
+                    outStart += count;
+                    read += count;
+                } else if (finished) {
+                    break;
+                } else {
+                    outStart = 0;
+                    outEnd = 0;
+                    if (position < content.length()) {
+                        accept(content.charAt(position++));
+                    } else {
+                        finish();
+                    }
+                }
+            }
+            return read == 0 && length > 0 ? -1 : read;
+        }
+
+        @Override
+        public void close() {
+            finished = true;
+        }
+
+        private void accept(char c) {
+            if (!started) {
+                scan(c);
+            } else if (inString) {
+                acceptInString(c);
+            } else {
+                acceptStructural(c);
+            }
+        }
+
+        /**
+         * Skip prose until an array of objects or an object with a quoted field name begins.
+         */
+        private void scan(char c) {
+            if (Character.isWhitespace(c)) {
+                return;
+            }
+            if (candidate == '[' && c == '{' || candidate == '{' && (c == '"' || c == '\'')) {
+                started = true;
+                acceptStructural(candidate);
+                acceptStructural(c);
+                return;
+            }
+            candidate = c == '[' || c == '{' ? c : 0;
+        }
+
+        private void acceptInString(char c) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == quote) {
+                inString = false;
+            } else if (c < ' ') {
+                // Raw newlines and other control characters are not allowed inside JSON strings
+                c = ' ';
+            }
+            emit(c);
+        }
+
+        private void acceptStructural(char c) {
+            if (Character.isWhitespace(c)) {
+                if (!pendingComma) {
+                    emit(c);
+                }
+                return;
+            }
+            if (c == ',') {
+                pendingComma = true;
+                return;
+            }
+            if (c == '}' || c == ']') {
+                // A comma directly before a closing bracket is dropped
+                pendingComma = false;
+                emit(c);
+                if (depth > 0 && --depth == 0) {
+                    finished = true;
+                }
+                return;
+            }
+            if (pendingComma) {
+                emit(',');
+                pendingComma = false;
+            }
+            if (c == '"' || c == '\'') {
+                inString = true;
+                quote = c;
+            } else if (c == '{' || c == '[') {
+                if (depth == containers.length) {
+                    containers = Arrays.copyOf(containers, depth * 2);
+                }
+                containers[depth++] = c;
+            }
+            emit(c);
+        }
+
+        /**
+         * Close whatever a truncated response left open.
+         */
+        private void finish() {
+            if (started && inString) {
+                if (escaped) {
+                    emit('\\');
+                }
+                emit(quote);
+            }
+            while (started && depth > 0) {
+                emit(containers[--depth] == '{' ? '}' : ']');
+            }
+            finished = true;
+        }
+
+        private void emit(char c) {
+            if (outEnd == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            out[outEnd++] = c;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.SourceChunk;
+import org.springframework.ai.anthropic.AnthropicChatOptions;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+/**
+ * Assembles question-generation prompts from a static system prefix, holding the syllabus and
+ * the output contract, and a short per-call instruction. Extracts of ingested course material,
+ * which vary per call, go in the instruction after the prefix.
+ * <p>
+ * The prefix is identical on every call and always comes first, but it is not served from the
+ * provider's prompt cache: it is not marked with {@code cache_control}, which this version of
+ * Spring AI does not expose, and at a few hundred tokens it is shorter than the minimum prompt
+ * length the provider will cache.
+ */
+final class QuestionPrompt {
+
+    static final String SYSTEM_PREFIX = """
+            You write multiple-choice questions for the SAFe POPM (SAFe Product Owner / Product Manager) certification exam.
+
+            Rules: each question is concise and clear, has exactly 4 choices with exactly one correct, \
+            has an explanation of at most 100 characters, and is tagged with the syllabus section it covers (5.1 to 5.5).
+
+            Syllabus:
+            5.1 Product Owner/Product Management Roles and Responsibilities: SAFe for Product Owner/Product Management; \
+            The Lean-Agile mindset; Value Streams; Product Owner/Product Management Responsibilities
+            5.2 PI Planning Preparation: PI Planning; The Solution Vision; Solution and PI Roadmaps; Customer Centricity; \
+            ART Backlog and Kanban
+            5.3 Leadership for PI Planning: The Vision and PI Planning; PI Objectives; ART Planning Board and Dependencies; \
+            Risks and the End of PI Planning
+            5.4 Iteration Execution: Iteration Planning; Stories and Story Maps; The Team Kanban; Backlog Refinement; \
+            Iteration Review and Retrospective; DevOps and Release on Demand
+            5.5 PI Execution: PO Sync; Inspect and Adapt; The Innovation and Planning Iteration; The System Demo
+
+            Reply with ONLY a JSON array of questions in this form:
+            [{"text":"Question","choices":[{"text":"A","correct":false},{"text":"B","correct":true},\
+            {"text":"C","correct":false},{"text":"D","correct":false}],"explanation":"Why","topic":"5.2"}]
+            """;
+
+    private QuestionPrompt() {
+    }
+
+    static Prompt forBatch(int numberOfQuestions, int maxTokens) {
+        return forBatch(numberOfQuestions, maxTokens, List.of());
+    }
+
+    static Prompt forBatch(int numberOfQuestions, int maxTokens, List<SourceChunk> sources) {
+        return new Prompt(List.of(new SystemMessage(SYSTEM_PREFIX), new UserMessage(instruction(numberOfQuestions, sources))),
+                AnthropicChatOptions.builder().maxTokens(maxTokens).build());
+    }
+
+    static String instruction(int numberOfQuestions) {
+        return "Generate exactly " + numberOfQuestions + " questions.";
+    }
+
+    static String instruction(int numberOfQuestions, List<SourceChunk> sources) {
+        if (sources.isEmpty()) {
+            return instruction(numberOfQuestions);
+        }
+        StringBuilder instruction = new StringBuilder(instruction(numberOfQuestions))
+                .append(" Base them on these extracts from the course material:\n");
+        for (SourceChunk source : sources) {
+            instruction.append("\n[")
+                    .append(source.topic() != null ? source.topic().getSection() + " " + source.topic().getTitle() : "General")
+                    .append("]\n")
+                    .append(source.text())
+                    .append('\n');
+        }
+        return instruction.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.repository.ClaudeQuestionRepository;
+import co.uk.jagemtech.safepopmexam.repository.QuestionsServedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a pool of unseen questions between a low and a high watermark in the background,
+ * so exams are served from the cache instead of waiting on Claude. Filling starts once the
+ * application is ready and resumes whenever serving an exam drops the pool below the low
+ * watermark.
+ */
+@Service
+public class QuestionReplenisher {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionReplenisher.class);
+
+    private final ClaudeQuestionRepository questionRepository;
+    private final boolean enabled;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("replenisher").factory());
+    private final AtomicBoolean filling = new AtomicBoolean(false);
+
+    @Autowired
+    public QuestionReplenisher(ClaudeQuestionRepository questionRepository,
+                               @Value("${popm.replenish.enabled:false}") boolean enabled,
+                               @Value("${popm.replenish.low-watermark:10}") int lowWatermark,
+                               @Value("${popm.replenish.high-watermark:30}") int highWatermark) {
+        this.questionRepository = questionRepository;
+        this.enabled = enabled;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = Math.max(lowWatermark, highWatermark);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            logger.info("Warming up question pool to {} unseen questions", highWatermark);
+            replenishAsync();
+        }
+    }
+
+    @EventListener
+    public void onQuestionsServed(QuestionsServedEvent event) {
+        if (enabled && event.unseenRemaining() < lowWatermark) {
+            logger.debug("Unseen question pool at {} is below low watermark {}", event.unseenRemaining(), lowWatermark);
+            replenishAsync();
+        }
+    }
+
+    /**
+     * Top the pool up to the high watermark unless a fill is already running.
+     */
+    void replenishAsync() {
+        if (!filling.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                int unseen = questionRepository.getUnseenCount();
+                if (unseen < highWatermark) {
+                    questionRepository.replenish(highWatermark - unseen);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to replenish question pool", e);
+            } finally {
+                filling.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
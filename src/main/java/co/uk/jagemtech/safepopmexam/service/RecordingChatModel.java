@@ -0,0 +1,232 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link ChatModel} decorator that records responses to disk, keyed by a fingerprint of the
+ * prompt messages and the effective options, and can replay them without calling the model.
+ * <ul>
+ *   <li>{@link Mode#PASSTHROUGH} calls the model and records nothing.</li>
+ *   <li>{@link Mode#RECORD} calls the model and stores each response, replacing any earlier one.</li>
+ *   <li>{@link Mode#REPLAY} answers from recorded responses only, so the generation pipeline can
+ *       run deterministically offline. A prompt with no recording fails.</li>
+ * </ul>
+ * Recordings are loaded into memory on first use, so replayed calls do not touch the disk again.
+ * The model itself can be supplied lazily, with its default options given separately, so it is
+ * not built until a call needs it and never built in replay mode.
+ */
+public class RecordingChatModel implements ChatModel {
+    private static final Logger logger = LoggerFactory.getLogger(RecordingChatModel.class);
+
+    public enum Mode { PASSTHROUGH, RECORD, REPLAY }
+
+    private final Supplier<ChatModel> delegate;
+    private final ChatOptions defaultOptions;
+    private final Mode mode;
+    private final Path directory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, RecordedResponse> recordings = new ConcurrentHashMap<>();
+
+    public RecordingChatModel(ChatModel delegate, Mode mode, Path directory) {
+        this(() -> delegate, delegate.getDefaultOptions(), mode, directory);
+    }
+
+    /**
+     * @param delegate       supplies the model on each call that needs it; it should cache the model
+     * @param defaultOptions the options the model is configured with, or null if none
+     */
+    public RecordingChatModel(Supplier<ChatModel> delegate, ChatOptions defaultOptions, Mode mode, Path directory) {
+        this.delegate = delegate;
+        this.defaultOptions = defaultOptions;
+        this.mode = mode;
+        this.directory = directory;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (mode == Mode.PASSTHROUGH) {
+            return delegate.get().call(prompt);
+        }
+        String fingerprint = fingerprint(prompt);
+        if (mode == Mode.REPLAY) {
+            return replay(fingerprint).toChatResponse();
+        }
+
+        ChatResponse response = delegate.get().call(prompt);
+        Generation generation = response.getResult();
+        record(fingerprint, new RecordedResponse(
+                generation != null ? generation.getOutput().getText() : "",
+                generation != null && generation.getMetadata() != null ? generation.getMetadata().getFinishReason() : null,
+                usage(response).getPromptTokens(),
+                usage(response).getCompletionTokens()));
+        return response;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        if (mode == Mode.PASSTHROUGH) {
+            return delegate.get().stream(prompt);
+        }
+        String fingerprint = fingerprint(prompt);
+        if (mode == Mode.REPLAY) {
+            return Flux.defer(() -> Flux.just(replay(fingerprint).toChatResponse()));
+        }
+
+        StringBuilder text = new StringBuilder();
+        AtomicReference<String> finishReason = new AtomicReference<>();
+        AtomicReference<Integer> promptTokens = new AtomicReference<>(0);
+        AtomicReference<Integer> completionTokens = new AtomicReference<>(0);
+        return delegate.get().stream(prompt)
+                .doOnNext(response -> {
+                    Generation generation = response.getResult();
+                    if (generation != null && generation.getOutput() != null && generation.getOutput().getText() != null) {
+                        text.append(generation.getOutput().getText());
+                    }
+                    if (generation != null && generation.getMetadata() != null
+                            && generation.getMetadata().getFinishReason() != null) {
+                        finishReason.set(generation.getMetadata().getFinishReason());
+                    }
+                    Usage usage = usage(response);
+                    promptTokens.accumulateAndGet(usage.getPromptTokens(), RecordingChatModel::max);
+                    completionTokens.accumulateAndGet(usage.getCompletionTokens(), RecordingChatModel::max);
+                })
+                .doOnComplete(() -> record(fingerprint, new RecordedResponse(
+                        text.toString(), finishReason.get(), promptTokens.get(), completionTokens.get())));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return defaultOptions;
+    }
+
+    /**
+     * SHA-256 over each message's type and text and the options the model will actually use,
+     * taking any option the prompt leaves unset from the configured defaults.
+     */
+    String fingerprint(Prompt prompt) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (Message message : prompt.getInstructions()) {
+            update(digest, message.getMessageType().name());
+            update(digest, message.getText());
+        }
+        ChatOptions options = prompt.getOptions();
+        update(digest, "model=" + option(options, defaultOptions, ChatOptions::getModel));
+        update(digest, "maxTokens=" + option(options, defaultOptions, ChatOptions::getMaxTokens));
+        update(digest, "temperature=" + option(options, defaultOptions, ChatOptions::getTemperature));
+        update(digest, "topP=" + option(options, defaultOptions, ChatOptions::getTopP));
+        update(digest, "topK=" + option(options, defaultOptions, ChatOptions::getTopK));
+        update(digest, "stop=" + option(options, defaultOptions, ChatOptions::getStopSequences));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private RecordedResponse replay(String fingerprint) {
+        RecordedResponse recorded = recordings.computeIfAbsent(fingerprint, this::load);
+        if (recorded == null) {
+            throw new ClaudeUnavailableException("No recorded response for prompt " + fingerprint + " in " + directory);
+        }
+        return recorded;
+    }
+
+    private RecordedResponse load(String fingerprint) {
+        Path file = file(fingerprint);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), RecordedResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read recorded response " + file, e);
+        }
+    }
+
+    private void record(String fingerprint, RecordedResponse response) {
+        recordings.put(fingerprint, response);
+        Path file = file(fingerprint);
+        try {
+            Files.createDirectories(directory);
+            // Write then move, so a replay never sees a partly written file
+            Path temporary = Files.createTempFile(directory, fingerprint, ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temporary.toFile(), response);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Recorded response {}", file);
+        } catch (IOException e) {
+            logger.error("Failed to record response {}", file, e);
+        }
+    }
+
+    private Path file(String fingerprint) {
+        return directory.resolve(fingerprint + ".json");
+    }
+
+    private static <T> T option(ChatOptions options, ChatOptions defaults, Function<ChatOptions, T> getter) {
+        T value = options != null ? getter.apply(options) : null;
+        return value != null || defaults == null ? value : getter.apply(defaults);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(Objects.toString(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static Usage usage(ChatResponse response) {
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        return usage != null ? usage : new DefaultUsage(0, 0);
+    }
+
+    private static Integer max(Integer a, Integer b) {
+        return Math.max(a != null ? a : 0, b != null ? b : 0);
+    }
+
+    record RecordedResponse(String text, String finishReason, Integer promptTokens, Integer completionTokens) {
+
+        ChatResponse toChatResponse() {
+            ChatGenerationMetadata generationMetadata = ChatGenerationMetadata.builder()
+                    .finishReason(finishReason)
+                    .build();
+            ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                    .usage(new DefaultUsage(promptTokens, completionTokens))
+                    .build();
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(text), generationMetadata)), metadata);
+        }
+    }
+}
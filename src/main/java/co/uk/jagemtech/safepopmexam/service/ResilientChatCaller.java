@@ -0,0 +1,250 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Protects callers from slow or failing Claude calls.
+ * <ul>
+ *   <li>Each attempt has a deadline of {@code popm.claude.call-timeout}.</li>
+ *   <li>If an attempt has not answered by the 95th percentile of recent call latencies, a
+ *       duplicate request is sent and whichever answers first is used.</li>
+ *   <li>Failed attempts are retried with exponential backoff and full jitter.</li>
+ *   <li>After {@code popm.claude.failure-threshold} consecutive failures the circuit opens and
+ *       calls fail at once for {@code popm.claude.open-duration}, so callers fall back to cached
+ *       or mock questions instead of waiting. A single trial call then decides whether it closes.</li>
+ * </ul>
+ */
+@Component
+public class ResilientChatCaller {
+    private static final Logger logger = LoggerFactory.getLogger(ResilientChatCaller.class);
+    private static final int LATENCY_WINDOW = 100;
+    private static final int MIN_LATENCY_SAMPLES = 10;
+
+    private final Duration callTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final boolean hedgingEnabled;
+    private final Duration defaultHedgeDelay;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount = 0;
+    private int latencyNext = 0;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    public ResilientChatCaller(@Value("${popm.claude.call-timeout:90s}") Duration callTimeout,
+                               @Value("${popm.claude.max-attempts:3}") int maxAttempts,
+                               @Value("${popm.claude.initial-backoff:500ms}") Duration initialBackoff,
+                               @Value("${popm.claude.max-backoff:8s}") Duration maxBackoff,
+                               @Value("${popm.claude.hedging-enabled:true}") boolean hedgingEnabled,
+                               @Value("${popm.claude.hedge-delay:20s}") Duration defaultHedgeDelay,
+                               @Value("${popm.claude.failure-threshold:5}") int failureThreshold,
+                               @Value("${popm.claude.open-duration:30s}") Duration openDuration) {
+        this.callTimeout = callTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.hedgingEnabled = hedgingEnabled;
+        this.defaultHedgeDelay = defaultHedgeDelay;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Run the call with deadlines, hedging and retries.
+     *
+     * @throws ClaudeUnavailableException if the circuit is open or every attempt failed
+     */
+    public <T> T call(Callable<T> call) {
+        Exception lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            acquire();
+            try {
+                T result = attemptWithHedge(call);
+                recordSuccess();
+                return result;
+            } catch (InterruptedException e) {
+                releaseTrial();
+                Thread.currentThread().interrupt();
+                throw new ClaudeUnavailableException("Interrupted while calling Claude", e);
+            } catch (Exception e) {
+                lastFailure = e;
+                recordFailure();
+                logger.warn("Claude call attempt {} of {} failed: {}", attempt, maxAttempts, describe(e));
+            }
+            if (attempt < maxAttempts && !sleepBeforeRetry(attempt)) {
+                break;
+            }
+        }
+        throw new ClaudeUnavailableException("Claude call failed after retries: " + describe(lastFailure), lastFailure);
+    }
+
+    /**
+     * Check that the circuit allows a call, for callers such as streams that manage their own
+     * attempt. They must report the outcome with {@link #recordSuccess()} or {@link #recordFailure()}.
+     *
+     * @throws ClaudeUnavailableException if the circuit is open
+     */
+    public synchronized void acquire() {
+        if (state == CircuitState.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            state = CircuitState.HALF_OPEN;
+        }
+        if (state == CircuitState.OPEN || (state == CircuitState.HALF_OPEN && trialInFlight)) {
+            throw new ClaudeUnavailableException("Claude circuit breaker is open after repeated failures");
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            trialInFlight = true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != CircuitState.CLOSED) {
+            logger.info("Claude circuit breaker closed");
+        }
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != CircuitState.OPEN) {
+                logger.warn("Claude circuit breaker opened after {} consecutive failures", consecutiveFailures);
+            }
+            state = CircuitState.OPEN;
+            openedAt = System.nanoTime();
+        }
+        trialInFlight = false;
+    }
+
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    public Duration getCallTimeout() {
+        return callTimeout;
+    }
+
+    /**
+     * How long to wait for an attempt before sending a hedged duplicate: the 95th percentile
+     * of recent successful call latencies, or {@code popm.claude.hedge-delay} until enough
+     * calls have been seen.
+     */
+    synchronized Duration hedgeDelay() {
+        if (latencyCount < MIN_LATENCY_SAMPLES) {
+            return defaultHedgeDelay;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return Duration.ofNanos(sorted[(int) Math.ceil(latencyCount * 0.95) - 1]);
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[latencyNext] = nanos;
+        latencyNext = (latencyNext + 1) % LATENCY_WINDOW;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+    }
+
+    private synchronized void releaseTrial() {
+        trialInFlight = false;
+    }
+
+    private <T> T attemptWithHedge(Callable<T> call) throws Exception {
+        CompletionService<Timed<T>> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Timed<T>>> futures = new ArrayList<>(2);
+        long deadline = System.nanoTime() + callTimeout.toNanos();
+        try {
+            futures.add(completionService.submit(() -> timed(call)));
+            Future<Timed<T>> done = completionService.poll(
+                    Math.min(hedgeDelay().toNanos(), remaining(deadline)), TimeUnit.NANOSECONDS);
+            if (done == null && hedgingEnabled && remaining(deadline) > 0) {
+                logger.info("Claude call slower than {}ms, sending a hedged request", hedgeDelay().toMillis());
+                futures.add(completionService.submit(() -> timed(call)));
+            }
+
+            Exception failure = null;
+            for (int outstanding = futures.size(); outstanding > 0; outstanding--) {
+                if (done == null) {
+                    done = completionService.poll(remaining(deadline), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        throw new TimeoutException("No response from Claude within " + callTimeout.toSeconds() + "s");
+                    }
+                }
+                try {
+                    Timed<T> result = done.get();
+                    recordLatency(result.nanos());
+                    return result.value();
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof Exception cause ? cause : e;
+                    done = null;
+                }
+            }
+            throw failure;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private boolean sleepBeforeRetry(int attempt) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private static <T> Timed<T> timed(Callable<T> call) throws Exception {
+        long started = System.nanoTime();
+        T value = call.call();
+        return new Timed<>(value, System.nanoTime() - started);
+    }
+
+    private static String describe(Exception e) {
+        return e == null ? "unknown error" : e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record Timed<T>(T value, long nanos) {
+    }
+}
@@ -0,0 +1,88 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.AttemptEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One exam attempt rebuilt from the attempt journal: how it was started, the questions asked
+ * and the answers given, in order.
+ */
+final class SessionHistory {
+
+    record Answer(long questionId, int choice, boolean correct) {
+    }
+
+    private final String sessionId;
+    private final int numberOfQuestions;
+    private final boolean adaptive;
+    private final List<Long> askedQuestionIds = new ArrayList<>();
+    private final List<Answer> answers = new ArrayList<>();
+    private boolean ended = false;
+    private long lastTimestamp;
+
+    SessionHistory(AttemptEvent started) {
+        this.sessionId = started.sessionId();
+        this.numberOfQuestions = started.numberOfQuestions();
+        this.adaptive = started.adaptive();
+        this.lastTimestamp = started.timestamp();
+    }
+
+    void apply(AttemptEvent event) {
+        lastTimestamp = event.timestamp();
+        switch (event.type()) {
+            case ASKED -> {
+                if (event.position() == askedQuestionIds.size()) {
+                    askedQuestionIds.add(event.questionId());
+                }
+            }
+            case ANSWERED -> {
+                if (event.position() == answers.size()) {
+                    answers.add(new Answer(event.questionId(), event.choice(), event.correct()));
+                }
+            }
+            case ENDED -> ended = true;
+            case STARTED -> {
+            }
+        }
+    }
+
+    /**
+     * Report every answer to the calibration, as the session did when it was live.
+     */
+    void calibrate(DifficultyCalibration calibration) {
+        AbilityTracker tracker = new AbilityTracker(answers.size());
+        for (Answer answer : answers) {
+            tracker.record(calibration, answer.questionId(), answer.correct(), true);
+        }
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    int getNumberOfQuestions() {
+        return numberOfQuestions;
+    }
+
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    List<Long> getAskedQuestionIds() {
+        return askedQuestionIds;
+    }
+
+    List<Answer> getAnswers() {
+        return answers;
+    }
+
+    boolean isEnded() {
+        return ended;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+}
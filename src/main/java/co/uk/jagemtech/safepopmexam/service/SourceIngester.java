@@ -0,0 +1,151 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.SourceChunk;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import co.uk.jagemtech.safepopmexam.repository.SourceChunkStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Ingests the text files written by {@code scripts/pdf_text_extractor.py} into the
+ * {@link SourceChunkStore}, so generation can be grounded in the course material.
+ * <p>
+ * Files are read through a fixed buffer and chunked as they stream, a line longer than the
+ * buffer in buffer-sized parts, and chunks are stored in small batches, so memory use depends
+ * on neither file size nor line length. Up to {@code popm.ingest.max-concurrency}
+ * files are processed at once on virtual threads.
+ */
+@Service
+public class SourceIngester {
+    private static final Logger logger = LoggerFactory.getLogger(SourceIngester.class);
+    private static final int STORE_BATCH_SIZE = 256;
+    // Far longer than any heading, so headings always reach the chunker whole
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final SourceChunkStore chunkStore;
+    private final int chunkSize;
+    private final int maxConcurrency;
+
+    @Autowired
+    public SourceIngester(SourceChunkStore chunkStore,
+                          @Value("${popm.ingest.chunk-size:2000}") int chunkSize,
+                          @Value("${popm.ingest.max-concurrency:4}") int maxConcurrency) {
+        this.chunkStore = chunkStore;
+        this.chunkSize = chunkSize;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    /**
+     * Ingest a text file, or every {@code .txt} file under a directory.
+     *
+     * @throws UncheckedIOException if the path cannot be listed
+     */
+    public IngestResult ingest(Path path) {
+        long started = System.nanoTime();
+        Topic[] topics = Topic.values();
+        AtomicLongArray chunkCounts = new AtomicLongArray(topics.length + 1);
+        AtomicInteger files = new AtomicInteger();
+        AtomicInteger failedFiles = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        Semaphore permits = new Semaphore(maxConcurrency);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             Stream<Path> textFiles = Files.isDirectory(path) ? Files.walk(path) : Stream.of(path)) {
+            textFiles.filter(Files::isRegularFile)
+                    .filter(file -> file.equals(path) || file.getFileName().toString().endsWith(".txt"))
+                    .forEach(file -> {
+                        permits.acquireUninterruptibly();
+                        executor.execute(() -> {
+                            try {
+                                bytes.addAndGet(ingestFile(file, chunkCounts));
+                                files.incrementAndGet();
+                            } catch (IOException | UncheckedIOException e) {
+                                failedFiles.incrementAndGet();
+                                logger.error("Failed to ingest {}: {}", file, e.getMessage());
+                            } finally {
+                                permits.release();
+                            }
+                        });
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + path, e);
+        }
+
+        Map<Topic, Integer> chunksByTopic = new EnumMap<>(Topic.class);
+        for (Topic topic : topics) {
+            chunksByTopic.put(topic, (int) chunkCounts.get(topic.ordinal()));
+        }
+        IngestResult result = new IngestResult(files.get(), failedFiles.get(), bytes.get(), chunksByTopic,
+                (int) chunkCounts.get(topics.length), Duration.ofNanos(System.nanoTime() - started));
+        logger.info("Ingested {} files ({} bytes) into {} chunks at {} MB/s", result.files(), result.bytes(),
+                result.chunks(), String.format("%.1f", result.megabytesPerSecond()));
+        return result;
+    }
+
+    /**
+     * Stream one file through the chunker into the store. Returns the number of bytes read.
+     */
+    private long ingestFile(Path file, AtomicLongArray chunkCounts) throws IOException {
+        List<SourceChunk> batch = new ArrayList<>(STORE_BATCH_SIZE);
+        SyllabusChunker chunker = new SyllabusChunker(file.getFileName().toString(), chunkSize, chunk -> {
+            batch.add(chunk);
+            chunkCounts.incrementAndGet(chunk.topic() != null ? chunk.topic().ordinal() : Topic.values().length);
+            if (batch.size() == STORE_BATCH_SIZE) {
+                chunkStore.append(batch);
+                batch.clear();
+            }
+        });
+        // Invalid UTF-8, which PDF extraction sometimes produces, is replaced rather than rejected
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[READ_BUFFER_SIZE];
+            int filled = 0;
+            int read;
+            while ((read = reader.read(buffer, filled, buffer.length - filled)) != -1) {
+                int lineStart = 0;
+                for (int i = filled; i < filled + read; i++) {
+                    if (buffer[i] == '\n') {
+                        chunker.accept(new String(buffer, lineStart, i - lineStart), true);
+                        lineStart = i + 1;
+                    }
+                }
+                filled += read;
+                if (lineStart == 0 && filled == buffer.length) {
+                    chunker.accept(new String(buffer, 0, filled), false);
+                    filled = 0;
+                } else {
+                    // Keep the unfinished line at the start of the buffer
+                    System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                    filled -= lineStart;
+                }
+            }
+            chunker.accept(new String(buffer, 0, filled), true);
+        }
+        chunker.finish();
+        chunkStore.append(batch);
+        logger.debug("Ingested {}", file);
+        return Files.size(file);
+    }
+}
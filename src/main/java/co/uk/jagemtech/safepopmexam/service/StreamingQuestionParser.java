@@ -0,0 +1,77 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for a streamed Claude response. Text is fed in as it arrives and
+ * each top-level question object is handed to the consumer as soon as its closing
+ * brace is seen, without waiting for the rest of the array.
+ */
+class StreamingQuestionParser {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingQuestionParser.class);
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<ClaudeService.QuestionDTO> consumer;
+    private final StringBuilder current = new StringBuilder();
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+
+    StreamingQuestionParser(ObjectMapper objectMapper, Consumer<ClaudeService.QuestionDTO> consumer) {
+        this.objectMapper = objectMapper;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Feed the next chunk of response text.
+     */
+    void accept(String chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+
+            // Anything outside a question object (code fences, brackets, commas) is skipped
+            if (depth == 0 && c != '{') {
+                continue;
+            }
+
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\' && inString) {
+                escaped = true;
+            } else if (c == '"') {
+                inString = !inString;
+            } else if (c == '\n' || c == '\r') {
+                if (inString) {
+                    // Replace newlines in strings with spaces
+                    c = ' ';
+                }
+            } else if (!inString && c == '{') {
+                depth++;
+            } else if (!inString && c == '}') {
+                depth--;
+            }
+
+            current.append(c);
+
+            if (depth == 0) {
+                emit(current.toString());
+                current.setLength(0);
+            }
+        }
+    }
+
+    private void emit(String questionJson) {
+        try {
+            ClaudeService.QuestionDTO dto = objectMapper.readValue(questionJson, ClaudeService.QuestionDTO.class);
+            if (QuestionJsonExtractor.isUsable(dto)) {
+                consumer.accept(dto);
+            }
+        } catch (Exception e) {
+            logger.debug("Failed to parse streamed question: {}", e.getMessage());
+        }
+    }
+}
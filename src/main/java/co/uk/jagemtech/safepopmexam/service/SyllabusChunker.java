@@ -0,0 +1,145 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.SourceChunk;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a stream of lines of course text into chunks of roughly {@code chunkSize} characters,
+ * each tagged with the syllabus topic of the last heading seen. Chunks end at a heading, or at
+ * the first paragraph break once the target size is reached, or at a line break once twice the
+ * target size is reached. A long line may be passed in parts, so only the current chunk and the
+ * current part are held in memory.
+ */
+final class SyllabusChunker {
+    private static final int MAX_HEADING_LENGTH = 100;
+    private static final int MIN_CHUNK_LENGTH = 40;
+    private static final Pattern SECTION_HEADING = Pattern.compile("^(?:section\\s+)?(5\\.[1-5])(?:\\.\\d+)*(?:\\s|$)");
+    private static final Pattern LESSON_HEADING = Pattern.compile("^lesson\\s+([1-5])\\b");
+    // Lesson titles of the POPM course, which follows the order of the exam syllabus
+    private static final Map<String, Topic> HEADING_PHRASES = Map.of(
+            "product owner/product manager roles", Topic.ROLES_AND_RESPONSIBILITIES,
+            "roles and responsibilities", Topic.ROLES_AND_RESPONSIBILITIES,
+            "preparing for pi planning", Topic.PI_PLANNING_PREPARATION,
+            "pi planning preparation", Topic.PI_PLANNING_PREPARATION,
+            "leading pi planning", Topic.LEADERSHIP_FOR_PI_PLANNING,
+            "leadership for pi planning", Topic.LEADERSHIP_FOR_PI_PLANNING,
+            "executing iterations", Topic.ITERATION_EXECUTION,
+            "iteration execution", Topic.ITERATION_EXECUTION,
+            "executing the pi", Topic.PI_EXECUTION,
+            "pi execution", Topic.PI_EXECUTION);
+
+    private final String source;
+    private final int chunkSize;
+    private final Consumer<SourceChunk> sink;
+    private final StringBuilder chunk;
+    private Topic topic = null;
+    private boolean inLine = false;
+
+    SyllabusChunker(String source, int chunkSize, Consumer<SourceChunk> sink) {
+        this.source = source;
+        this.chunkSize = Math.max(MIN_CHUNK_LENGTH, chunkSize);
+        this.sink = sink;
+        this.chunk = new StringBuilder(this.chunkSize * 2 + 1);
+    }
+
+    void accept(String line) {
+        accept(line, true);
+    }
+
+    /**
+     * Accept part of a line; {@code endOfLine} is set on its last part. Only a line that arrives
+     * whole is checked for a heading, which is fine as long as parts are longer than a heading.
+     */
+    void accept(String part, boolean endOfLine) {
+        String text = inLine ? part : part.stripLeading();
+        if (endOfLine) {
+            text = text.stripTrailing();
+        }
+        if (!inLine && text.isEmpty()) {
+            if (endOfLine) {
+                endParagraph();
+            }
+            return;
+        }
+
+        if (!inLine && endOfLine) {
+            Topic heading = headingTopic(text);
+            if (heading != null) {
+                flush();
+                topic = heading;
+            }
+        }
+        // Text with no line breaks is cut at the hard limit
+        for (int start = 0; start < text.length(); ) {
+            int end = Math.min(text.length(), start + chunkSize * 2 - chunk.length());
+            chunk.append(text, start, end);
+            if (end < text.length()) {
+                chunk.append(' ');
+            } else if (endOfLine) {
+                chunk.append('\n');
+            }
+            start = end;
+            if (chunk.length() >= chunkSize * 2) {
+                flush();
+            }
+        }
+        if (endOfLine && text.isEmpty() && !chunk.isEmpty() && chunk.charAt(chunk.length() - 1) != '\n') {
+            chunk.append('\n');
+        }
+        inLine = !endOfLine;
+    }
+
+    /**
+     * Emit whatever is left once the input has ended.
+     */
+    void finish() {
+        flush();
+        inLine = false;
+    }
+
+    /**
+     * The topic a line introduces if it looks like a syllabus or lesson heading, or null.
+     */
+    static Topic headingTopic(String line) {
+        if (line.length() > MAX_HEADING_LENGTH) {
+            return null;
+        }
+        String lower = line.toLowerCase(Locale.ROOT);
+        Matcher section = SECTION_HEADING.matcher(lower);
+        if (section.find()) {
+            return Topic.fromSection(section.group(1));
+        }
+        Matcher lesson = LESSON_HEADING.matcher(lower);
+        if (lesson.find()) {
+            return Topic.values()[Integer.parseInt(lesson.group(1)) - 1];
+        }
+        for (Map.Entry<String, Topic> phrase : HEADING_PHRASES.entrySet()) {
+            if (lower.contains(phrase.getKey())) {
+                return phrase.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void endParagraph() {
+        if (chunk.length() >= chunkSize) {
+            flush();
+        } else if (!chunk.isEmpty() && chunk.charAt(chunk.length() - 1) != '\n') {
+            chunk.append('\n');
+        }
+    }
+
+    private void flush() {
+        String text = chunk.toString().strip();
+        chunk.setLength(0);
+        if (text.length() >= MIN_CHUNK_LENGTH) {
+            sink.accept(new SourceChunk(source, topic, text));
+        }
+    }
+}
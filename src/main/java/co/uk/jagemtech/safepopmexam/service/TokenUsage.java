@@ -0,0 +1,55 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import org.springframework.ai.chat.metadata.Usage;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of the tokens Claude reports for question generation, so the cost of a
+ * generated question can be tracked as prompts change.
+ */
+public class TokenUsage {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder questions = new LongAdder();
+    private final LongAdder inputTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+
+    void record(int generatedQuestions, Usage usage) {
+        calls.increment();
+        questions.add(generatedQuestions);
+        if (usage != null) {
+            inputTokens.add(tokens(usage.getPromptTokens()));
+            outputTokens.add(tokens(usage.getCompletionTokens()));
+        }
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getQuestions() {
+        return questions.sum();
+    }
+
+    public long getInputTokens() {
+        return inputTokens.sum();
+    }
+
+    public long getOutputTokens() {
+        return outputTokens.sum();
+    }
+
+    public double getInputTokensPerQuestion() {
+        long generated = questions.sum();
+        return generated == 0 ? 0.0 : (double) inputTokens.sum() / generated;
+    }
+
+    public double getOutputTokensPerQuestion() {
+        long generated = questions.sum();
+        return generated == 0 ? 0.0 : (double) outputTokens.sum() / generated;
+    }
+
+    static long tokens(Number count) {
+        return count != null ? count.longValue() : 0;
+    }
+}
@@ -1,28 +1,61 @@
 package co.uk.jagemtech.safepopmexam.shell;
 
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import co.uk.jagemtech.safepopmexam.repository.AttemptJournal;
 import co.uk.jagemtech.safepopmexam.repository.ClaudeQuestionRepository;
+import co.uk.jagemtech.safepopmexam.repository.SourceChunkStore;
+import co.uk.jagemtech.safepopmexam.repository.TieredQuestionRepository;
+import co.uk.jagemtech.safepopmexam.service.ClaudeService;
+import co.uk.jagemtech.safepopmexam.service.ExamService;
+import co.uk.jagemtech.safepopmexam.service.GenerationProgress;
+import co.uk.jagemtech.safepopmexam.service.IngestResult;
+import co.uk.jagemtech.safepopmexam.service.SourceIngester;
+import co.uk.jagemtech.safepopmexam.service.TokenUsage;
 import co.uk.jagemtech.safepopmexam.util.ProgressIndicator;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.search.Search;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @ShellComponent
 public class AdminCommands {
     
     private final ClaudeQuestionRepository questionRepository;
+    private final ClaudeService claudeService;
+    private final MeterRegistry meterRegistry;
+    private final SourceIngester sourceIngester;
+    private final SourceChunkStore sourceStore;
+    private final GenerationProgress generationProgress;
     private final ProgressIndicator progressIndicator;
+    private double lastAnswers = 0;
+    private long lastStatsNanos = System.nanoTime();
     
     @Autowired
-    public AdminCommands(ClaudeQuestionRepository questionRepository) {
+    public AdminCommands(ClaudeQuestionRepository questionRepository, ClaudeService claudeService,
+                         MeterRegistry meterRegistry, SourceIngester sourceIngester, SourceChunkStore sourceStore,
+                         GenerationProgress generationProgress, ProgressIndicator progressIndicator) {
         this.questionRepository = questionRepository;
-        this.progressIndicator = new ProgressIndicator(System.out);
+        this.claudeService = claudeService;
+        this.meterRegistry = meterRegistry;
+        this.sourceIngester = sourceIngester;
+        this.sourceStore = sourceStore;
+        this.generationProgress = generationProgress;
+        this.progressIndicator = progressIndicator;
     }
     
     @ShellMethod(key = "debug-claude", value = "Enable or disable debug logging for Claude service")
@@ -40,10 +73,136 @@ public class AdminCommands {
         return "Claude debug logging " + (enable ? "enabled" : "disabled");
     }
     
-    @ShellMethod(key = "clear-cache", value = "Clear the question cache")
+    @ShellMethod(key = "clear-cache", value = "Clear the in-memory question cache; the stored question bank is kept")
     public String clearCache() {
         questionRepository.clearCache();
-        return "Question cache cleared. Next request will generate new questions.";
+        return "Question cache cleared. The stored question bank is kept, so exams are served from it before new questions are generated.";
+    }
+    
+    @ShellMethod(key = "token-usage", value = "Show the tokens used to generate questions since startup")
+    public String tokenUsage() {
+        TokenUsage usage = claudeService.getTokenUsage();
+        return String.format("Claude calls: %d%nQuestions generated: %d%nInput tokens: %d (%.1f per question)%nOutput tokens: %d (%.1f per question)",
+                usage.getCalls(), usage.getQuestions(), usage.getInputTokens(), usage.getInputTokensPerQuestion(),
+                usage.getOutputTokens(), usage.getOutputTokensPerQuestion());
+    }
+    
+    @ShellMethod(key = "ingest", value = "Ingest course text extracted by scripts/pdf_text_extractor.py (a .txt file or a directory of them)")
+    public String ingest(String path) {
+        if (!sourceStore.isEnabled()) {
+            return "Source material store is disabled. Set popm.sources.enabled=true to ingest course text.";
+        }
+        if (!Files.exists(Path.of(path))) {
+            return "No such file or directory: " + path;
+        }
+        
+        progressIndicator.start("Ingesting course material...");
+        IngestResult result;
+        try {
+            result = sourceIngester.ingest(Path.of(path));
+        } finally {
+            progressIndicator.stop();
+        }
+        
+        StringBuilder report = new StringBuilder(String.format("Ingested %d files (%.1f MB) into %d chunks in %.1fs (%.1f MB/s)%n",
+                result.files(), result.bytes() / (1024.0 * 1024.0), result.chunks(),
+                result.elapsed().toMillis() / 1000.0, result.megabytesPerSecond()));
+        for (Topic topic : Topic.values()) {
+            report.append(String.format("  %s %s: %d%n", topic.getSection(), topic.getTitle(), result.chunksByTopic().get(topic)));
+        }
+        report.append(String.format("  Untagged: %d%n", result.untaggedChunks()));
+        if (result.failedFiles() > 0) {
+            report.append(String.format("%d files could not be read, see the log for details%n", result.failedFiles()));
+        }
+        return report.append("Chunks in store: ").append(sourceStore.size()).toString();
+    }
+    
+    @ShellMethod(key = "stats", value = "Show Claude call, question cache and exam metrics since startup")
+    public synchronized String stats() {
+        Timer succeeded = meterRegistry.find(ClaudeService.CALLS_TIMER).tag("outcome", "success").timer();
+        Timer failed = meterRegistry.find(ClaudeService.CALLS_TIMER).tag("outcome", "failure").timer();
+        double requested = counter(ClaudeService.QUESTIONS_REQUESTED_COUNTER, null, null);
+        double parsed = counter(ClaudeService.QUESTIONS_PARSED_COUNTER, null, null);
+        double hits = counter(ClaudeQuestionRepository.CACHE_COUNTER, "result", "hit");
+        double misses = counter(ClaudeQuestionRepository.CACHE_COUNTER, "result", "miss");
+        Timer refresh = meterRegistry.find(ClaudeQuestionRepository.REFRESH_TIMER).timer();
+        DistributionSummary commits = meterRegistry.find(AttemptJournal.COMMIT_SIZE_SUMMARY).summary();
+        Timer fsyncs = meterRegistry.find(AttemptJournal.FSYNC_TIMER).timer();
+        
+        // Answer rate since the previous stats call, or since startup for the first
+        double answers = counter(ExamService.ANSWERS_COUNTER, null, null);
+        long now = System.nanoTime();
+        double answersPerSecond = (answers - lastAnswers) / Math.max(1e-9, (now - lastStatsNanos) / 1e9);
+        lastAnswers = answers;
+        lastStatsNanos = now;
+        
+        return String.format("Claude calls: %d succeeded, %d failed%n" +
+                        "Call latency: %s%n" +
+                        "Tokens: %.0f input, %.0f output%n" +
+                        "Questions parsed: %.0f of %.0f requested (%.1f%%)%n" +
+                        "Generation: %d batches in flight (%d waiting, %d receiving, %d parsing), last data %.1fs ago%n" +
+                        "Fallbacks to mock questions: %.0f%n" +
+                        "Questions served by tier: %s%n" +
+                        "Question cache: %.0f hits, %.0f misses (%.1f%% hit ratio)%n" +
+                        "Refreshes: %d (mean %.1fs, max %.1fs)%n" +
+                        "Exams started: %.0f%n" +
+                        "Answers: %.0f (%.2f per second)%n" +
+                        "Journal: %.0f events in %d commits, %d fsyncs (mean %.2fms)",
+                succeeded != null ? succeeded.count() : 0, failed != null ? failed.count() : 0,
+                percentiles(succeeded),
+                counter(ClaudeService.TOKENS_COUNTER, "type", "input"), counter(ClaudeService.TOKENS_COUNTER, "type", "output"),
+                parsed, requested, percent(parsed, requested),
+                generationProgress.getBatchesInFlight(), generationProgress.getBatches(GenerationProgress.Stage.WAITING),
+                generationProgress.getBatches(GenerationProgress.Stage.RECEIVING),
+                generationProgress.getBatches(GenerationProgress.Stage.PARSING),
+                (now - generationProgress.getLastActivityNanos()) / 1e9,
+                counter(ClaudeQuestionRepository.FALLBACKS_COUNTER, null, null),
+                tiers(),
+                hits, misses, percent(hits, hits + misses),
+                refresh != null ? refresh.count() : 0, refresh != null ? refresh.mean(TimeUnit.SECONDS) : 0.0,
+                refresh != null ? refresh.max(TimeUnit.SECONDS) : 0.0,
+                counter(ExamService.EXAMS_STARTED_COUNTER, null, null),
+                answers, answersPerSecond,
+                counter(AttemptJournal.EVENTS_COUNTER, null, null), commits != null ? commits.count() : 0,
+                fsyncs != null ? fsyncs.count() : 0, fsyncs != null ? fsyncs.mean(TimeUnit.MILLISECONDS) : 0.0);
+    }
+    
+    private String tiers() {
+        StringBuilder tiers = new StringBuilder();
+        for (TieredQuestionRepository.Tier tier : questionRepository.getTiers().getTiers()) {
+            tiers.append(tiers.isEmpty() ? "" : ", ").append(String.format("%s %.0f",
+                    tier.name(), counter(TieredQuestionRepository.SERVED_COUNTER, "tier", tier.name())));
+            double exceeded = counter(TieredQuestionRepository.BUDGET_EXCEEDED_COUNTER, "tier", tier.name());
+            if (exceeded > 0) {
+                tiers.append(String.format(" (over budget %.0f times)", exceeded));
+            }
+        }
+        return tiers.toString();
+    }
+    
+    private double counter(String name, String tagKey, String tagValue) {
+        Search search = meterRegistry.find(name);
+        if (tagKey != null) {
+            search = search.tag(tagKey, tagValue);
+        }
+        Counter counter = search.counter();
+        return counter != null ? counter.count() : 0;
+    }
+    
+    private static String percentiles(Timer timer) {
+        if (timer == null || timer.count() == 0) {
+            return "no calls yet";
+        }
+        StringBuilder latency = new StringBuilder();
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            latency.append(latency.isEmpty() ? "" : ", ")
+                    .append(String.format("p%.0f %.1fs", percentile.percentile() * 100, percentile.value(TimeUnit.SECONDS)));
+        }
+        return latency.toString();
+    }
+    
+    private static double percent(double part, double whole) {
+        return whole > 0 ? part * 100 / whole : 0;
     }
     
     @ShellMethod(key = "debug-request", value = "Make a debug request to Claude API and show full response")
@@ -51,7 +210,7 @@ public class AdminCommands {
         toggleClaudeDebug(true);
         questionRepository.clearCache();
         
-        progressIndicator.start("Making debug request to Claude API...");
+        progressIndicator.start("Making debug request to Claude API...", count);
         
         try {
             CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
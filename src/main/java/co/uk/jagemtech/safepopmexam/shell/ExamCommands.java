@@ -3,7 +3,10 @@ package co.uk.jagemtech.safepopmexam.shell;
 import co.uk.jagemtech.safepopmexam.model.Choice;
 import co.uk.jagemtech.safepopmexam.model.Question;
 import co.uk.jagemtech.safepopmexam.repository.ClaudeQuestionRepository;
+import co.uk.jagemtech.safepopmexam.repository.RefreshResult;
+import co.uk.jagemtech.safepopmexam.service.AbilityEstimate;
 import co.uk.jagemtech.safepopmexam.service.ExamService;
+import co.uk.jagemtech.safepopmexam.service.ExamSession;
 import co.uk.jagemtech.safepopmexam.util.ProgressIndicator;
 
 import java.util.List;
@@ -18,26 +21,35 @@ import org.springframework.shell.standard.ShellOption;
 @ShellComponent
 public class ExamCommands {
     
+    // The shell runs a single candidate's exam
+    private static final String SESSION_ID = "shell";
+    
     private final ExamService examService;
     private final ClaudeQuestionRepository questionRepository;
     private final ProgressIndicator progressIndicator;
     
     @Autowired
-    public ExamCommands(ExamService examService, ClaudeQuestionRepository questionRepository) {
+    public ExamCommands(ExamService examService, ClaudeQuestionRepository questionRepository,
+                        ProgressIndicator progressIndicator) {
         this.examService = examService;
         this.questionRepository = questionRepository;
-        this.progressIndicator = new ProgressIndicator(System.out);
+        this.progressIndicator = progressIndicator;
     }
     
     @ShellMethod(key = "start-exam", value = "Start a new POPM mock exam")
-    public String startExam(@ShellOption(defaultValue = "5") int numberOfQuestions) {
+    public String startExam(@ShellOption(defaultValue = "5") int numberOfQuestions,
+                            @ShellOption(defaultValue = "false", help = "Choose each question by your answers so far and stop once your ability is known") boolean adaptive) {
         // Start progress indicator
         progressIndicator.start("Preparing questions...");
         
         try {
             // Run exam setup in a background thread
             CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                examService.startExam(numberOfQuestions);
+                if (adaptive) {
+                    examService.startAdaptiveExam(SESSION_ID, numberOfQuestions);
+                } else {
+                    examService.startExam(SESSION_ID, numberOfQuestions);
+                }
             });
             
             // Wait for the future to complete
@@ -46,7 +58,8 @@ public class ExamCommands {
             // Stop progress indicator
             progressIndicator.stop();
             
-            return "Starting new POPM mock exam with " + numberOfQuestions + " questions.\n\n" +
+            return "Starting new " + (adaptive ? "adaptive " : "") + "POPM mock exam with "
+                    + (adaptive ? "up to " : "") + numberOfQuestions + " questions.\n\n" +
                     displayCurrentQuestion();
         } catch (InterruptedException | ExecutionException e) {
             progressIndicator.stop();
@@ -54,42 +67,55 @@ public class ExamCommands {
         }
     }
     
+    @ShellMethod(key = "resume-exam", value = "Resume the exam that was in progress when the application last stopped")
+    public String resumeExam() {
+        if (examService.isExamInProgress(SESSION_ID)) {
+            return displayCurrentQuestion();
+        }
+        if (examService.resumeExam(SESSION_ID) == null || !examService.isExamInProgress(SESSION_ID)) {
+            return "There is no unfinished exam to resume. Use 'start-exam' to begin.";
+        }
+        return "Resuming your POPM mock exam.\n\n" + displayCurrentQuestion();
+    }
+    
     @ShellMethod(key = "answer", value = "Answer the current question (provide the option number)")
     public String answerQuestion(int choiceNumber) {
-        if (!examService.isExamInProgress()) {
+        if (!examService.isExamInProgress(SESSION_ID)) {
             return "No exam is currently in progress. Use 'start-exam' to begin.";
         }
         
-        Question currentQuestion = examService.getCurrentQuestion();
-        if (currentQuestion == null) {
+        // Adjust for 0-based indexing in the service
+        ExamSession.Answer answer = examService.answer(SESSION_ID, choiceNumber - 1);
+        if (answer == null) {
             return "No current question.";
         }
-        
-        // Adjust for 0-based indexing in the service
-        int choiceIndex = choiceNumber - 1;
-        if (choiceIndex < 0 || choiceIndex >= currentQuestion.getChoices().size()) {
+        Question answeredQuestion = answer.question();
+        if (!answer.accepted()) {
             return "Invalid choice number. Please select a number between 1 and " + 
-                    currentQuestion.getChoices().size();
+                    answeredQuestion.getChoices().size();
         }
         
-        boolean isCorrect = examService.submitAnswer(choiceIndex);
-        
         StringBuilder response = new StringBuilder();
-        response.append(isCorrect ? "Correct! " : "Incorrect. ");
-        response.append("The correct answer is: ")
-                .append(currentQuestion.getCorrectChoice().getText()).append("\n\n");
+        response.append(answer.correct() ? "Correct! " : "Incorrect. ");
+        Choice correctChoice = answeredQuestion.getCorrectChoice();
+        if (correctChoice != null) {
+            response.append("The correct answer is: ").append(correctChoice.getText());
+        }
+        response.append("\n\n");
         
-        if (currentQuestion.getExplanation() != null && !currentQuestion.getExplanation().isEmpty()) {
-            response.append("Explanation: ").append(currentQuestion.getExplanation()).append("\n\n");
+        if (answeredQuestion.getExplanation() != null && !answeredQuestion.getExplanation().isEmpty()) {
+            response.append("Explanation: ").append(answeredQuestion.getExplanation()).append("\n\n");
         }
         
-        if (examService.isExamInProgress()) {
+        // Waits for the next question if it is still being generated
+        if (examService.getCurrentQuestion(SESSION_ID) != null) {
             response.append(displayCurrentQuestion());
         } else {
             response.append("Exam completed!\n")
-                    .append("Your score: ").append(String.format("%.1f%%", examService.getScore())).append("\n")
-                    .append("Correct answers: ").append(examService.getCorrectAnswers())
-                    .append(" out of ").append(examService.getTotalQuestions());
+                    .append("Your score: ").append(String.format("%.1f%%", examService.getScore(SESSION_ID))).append("\n")
+                    .append("Correct answers: ").append(examService.getCorrectAnswers(SESSION_ID))
+                    .append(" out of ").append(examService.getTotalQuestions(SESSION_ID))
+                    .append(abilitySummary());
         }
         
         return response.toString();
@@ -97,18 +123,18 @@ public class ExamCommands {
     
     @ShellMethod(key = "current-question", value = "Display the current question")
     public String displayCurrentQuestion() {
-        if (!examService.isExamInProgress()) {
+        if (!examService.isExamInProgress(SESSION_ID)) {
             return "No exam is currently in progress. Use 'start-exam' to begin.";
         }
         
-        Question question = examService.getCurrentQuestion();
+        Question question = examService.getCurrentQuestion(SESSION_ID);
         if (question == null) {
             return "No current question.";
         }
         
         StringBuilder display = new StringBuilder();
-        display.append("Question ").append(examService.getCurrentQuestionNumber())
-                .append(" of ").append(examService.getTotalQuestions()).append(":\n\n");
+        display.append("Question ").append(examService.getCurrentQuestionNumber(SESSION_ID))
+                .append(" of ").append(examService.getTotalQuestions(SESSION_ID)).append(":\n\n");
         display.append(question.getText()).append("\n\n");
         
         List<Choice> choices = question.getChoices();
@@ -123,16 +149,26 @@ public class ExamCommands {
     
     @ShellMethod(key = "end-exam", value = "End the current exam")
     public String endExam() {
-        if (!examService.isExamInProgress()) {
+        if (!examService.isExamInProgress(SESSION_ID)) {
             return "No exam is currently in progress.";
         }
         
-        examService.endExam();
+        examService.endExam(SESSION_ID);
         
         return "Exam ended.\n" +
-                "Your score: " + String.format("%.1f%%", examService.getScore()) + "\n" +
-                "Correct answers: " + examService.getCorrectAnswers() +
-                " out of " + examService.getTotalQuestions();
+                "Your score: " + String.format("%.1f%%", examService.getScore(SESSION_ID)) + "\n" +
+                "Correct answers: " + examService.getCorrectAnswers(SESSION_ID) +
+                " out of " + examService.getTotalQuestions(SESSION_ID) +
+                abilitySummary();
+    }
+    
+    private String abilitySummary() {
+        ExamSession session = examService.getSession(SESSION_ID);
+        if (session == null || !session.isAdaptive()) {
+            return "";
+        }
+        AbilityEstimate estimate = session.getAbilityEstimate();
+        return String.format("%nEstimated ability: %.2f \u00b1 %.2f (0 is average)", estimate.ability(), estimate.standardError());
     }
     
     @ShellMethod(key = "exam-help", value = "Display help information for the POPM exam")
@@ -140,33 +176,33 @@ public class ExamCommands {
         return "POPM Exam Practice CLI Help\n\n" +
                 "Available commands:\n" +
                 "- start-exam [number] : Start a new exam with [number] questions (default: 5)\n" +
+                "- start-exam [number] --adaptive : Ask up to [number] questions, each chosen by your answers so far\n" +
+                "- resume-exam         : Resume the exam that was in progress when the application last stopped\n" +
                 "- answer [number]     : Submit your answer for the current question\n" +
                 "- current-question    : Display the current question again\n" +
                 "- end-exam            : End the current exam and see your score\n" +
-                "- refresh-questions [count] : Generate new AI-powered questions (default: 10, processed in batches)\n" +
+                "- refresh-questions [count] : Generate new AI-powered questions (default: 10, in batches sized adaptively from recent calls)\n" +
                 "- exam-help           : Display this help information\n\n" +
                 "To exit the application, type 'exit'";
     }
     
-    @ShellMethod(key = "refresh-questions", value = "Generate new questions using Claude AI (processed in batches of 5)")
+    @ShellMethod(key = "refresh-questions", value = "Generate new questions using Claude AI (in batches sized adaptively from recent calls)")
     public String refreshQuestions(@ShellOption(defaultValue = "10") int count) {
-        if (examService.isExamInProgress()) {
+        if (examService.isExamInProgress(SESSION_ID)) {
             return "Cannot refresh questions while an exam is in progress. End the current exam first.";
         }
         
-        progressIndicator.start("Generating " + count + " new questions using Claude AI (in batches)...");
+        progressIndicator.start("Generating " + count + " new questions using Claude AI (in batches)...", count);
         
         try {
-            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                questionRepository.refreshQuestions(count);
-            });
+            CompletableFuture<RefreshResult> future = CompletableFuture.supplyAsync(() ->
+                questionRepository.refreshQuestions(count));
             
-            future.get();
+            RefreshResult result = future.get();
             progressIndicator.stop();
             
-            // Get actual number of questions generated
-            int actualCount = questionRepository.getAllQuestions().size();
-            return "Successfully generated " + actualCount + " new questions using Claude AI.";
+            return String.format("Successfully generated %d new questions using Claude AI (%d near-duplicates rejected, %.1f%%).",
+                    result.added(), result.duplicates(), result.duplicateRate() * 100);
         } catch (Exception e) {
             progressIndicator.stop();
             return "Failed to generate new questions: " + e.getMessage();
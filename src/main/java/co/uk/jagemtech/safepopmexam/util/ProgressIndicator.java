@@ -1,63 +1,199 @@
 package co.uk.jagemtech.safepopmexam.util;
 
+import co.uk.jagemtech.safepopmexam.service.GenerationProgress;
+
 import java.io.PrintStream;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Utility class for showing progress indicators in the CLI
+ * The CLI progress line, shared by every shell command. Frames are drawn by one scheduler
+ * thread for the life of the application. While questions are being generated the line shows
+ * what the pipeline reports through {@link GenerationProgress}: questions parsed, batches in
+ * flight and what they are waiting on, output tokens and their rate, an ETA, and how long
+ * it has been since Claude last sent anything once that exceeds the stall threshold.
+ * <p>
+ * Each frame is written as ASCII into a reused byte buffer, so drawing allocates nothing.
  */
-public class ProgressIndicator {
-    private static final String[] SPINNER_FRAMES = {"|", "/", "-", "\\"};
-    private Thread spinnerThread;
-    private final AtomicBoolean running = new AtomicBoolean(false);
+public class ProgressIndicator implements AutoCloseable {
+    private static final byte[] SPINNER_FRAMES = {'|', '/', '-', '\\'};
+    private static final int STATUS_CAPACITY = 160;
+
     private final PrintStream out;
-    private String message;
-    
-    public ProgressIndicator(PrintStream out) {
+    private final GenerationProgress progress;
+    private final long frameIntervalNanos;
+    private final long stallAfterNanos;
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> frames;
+    private byte[] frame = new byte[STATUS_CAPACITY];
+    private int messageLength;
+    private int lastFrameLength;
+    private int expectedQuestions;
+    private long startedNanos;
+    private long startQuestions;
+    private long startTokens;
+    private long startBatches;
+    private int tick;
+
+    public ProgressIndicator(PrintStream out, GenerationProgress progress, Duration frameInterval, Duration stallAfter) {
         this.out = out;
+        this.progress = progress;
+        this.frameIntervalNanos = Math.max(1, frameInterval.toNanos());
+        this.stallAfterNanos = stallAfter.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("progress").daemon().factory());
     }
-    
+
     /**
      * Start showing a progress spinner with the given message
      */
     public void start(String message) {
-        this.message = message;
-        if (running.compareAndSet(false, true)) {
-            spinnerThread = new Thread(this::showSpinner);
-            spinnerThread.setDaemon(true);
-            spinnerThread.start();
+        start(message, 0);
+    }
+
+    /**
+     * Start showing progress towards {@code expectedQuestions} new questions, with an ETA once
+     * the first have been parsed.
+     */
+    public synchronized void start(String message, int expectedQuestions) {
+        stopFrames();
+        byte[] text = message.getBytes(StandardCharsets.US_ASCII);
+        if (frame.length < text.length + STATUS_CAPACITY) {
+            frame = new byte[text.length + STATUS_CAPACITY];
         }
+        frame[0] = '\r';
+        System.arraycopy(text, 0, frame, 1, text.length);
+        messageLength = 1 + text.length;
+        this.expectedQuestions = expectedQuestions;
+        startedNanos = System.nanoTime();
+        startQuestions = progress.getQuestions();
+        startTokens = progress.getTokens();
+        startBatches = progress.getBatchesStarted();
+        tick = 0;
+        frames = scheduler.scheduleAtFixedRate(this::draw, 0, frameIntervalNanos, TimeUnit.NANOSECONDS);
     }
-    
+
     /**
      * Stop showing the progress spinner
      */
-    public void stop() {
-        running.set(false);
-        if (spinnerThread != null) {
-            try {
-                spinnerThread.join(500); // Wait for spinner to stop
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            // Clear the spinner line
-            out.print("\r" + " ".repeat(message.length() + 10) + "\r");
+    public synchronized void stop() {
+        if (stopFrames() && lastFrameLength > 0) {
+            // Clear the progress line
+            Arrays.fill(frame, 1, lastFrameLength, (byte) ' ');
+            out.write(frame, 0, lastFrameLength);
+            out.write('\r');
             out.flush();
+            lastFrameLength = 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    private boolean stopFrames() {
+        if (frames == null) {
+            return false;
+        }
+        frames.cancel(false);
+        frames = null;
+        return true;
+    }
+
+    private synchronized void draw() {
+        if (frames == null) {
+            return;
+        }
+        int length = render(System.nanoTime());
+        // Blank out whatever is left of a longer previous frame
+        int end = Math.max(length, lastFrameLength);
+        Arrays.fill(frame, length, end, (byte) ' ');
+        out.write(frame, 0, end);
+        out.flush();
+        lastFrameLength = length;
+    }
+
+    /**
+     * Write the status after the message into {@link #frame} and return the frame's length.
+     */
+    synchronized int render(long now) {
+        int at = messageLength;
+        frame[at++] = ' ';
+        frame[at++] = SPINNER_FRAMES[tick++ & 3];
+        if (progress.getBatchesStarted() == startBatches && progress.getBatchesInFlight() == 0) {
+            return at;
+        }
+
+        long questions = progress.getQuestions() - startQuestions;
+        long tokens = progress.getTokens() - startTokens;
+        long elapsedNanos = Math.max(1, now - startedNanos);
+        at = append(frame, at, "  ");
+        at = append(frame, at, questions);
+        if (expectedQuestions > 0) {
+            frame[at++] = '/';
+            at = append(frame, at, expectedQuestions);
+        }
+        at = append(frame, at, " questions | ");
+        at = append(frame, at, progress.getBatchesInFlight());
+        at = append(frame, at, " in flight (");
+        at = append(frame, at, progress.getBatches(GenerationProgress.Stage.WAITING));
+        at = append(frame, at, " waiting, ");
+        at = append(frame, at, progress.getBatches(GenerationProgress.Stage.RECEIVING));
+        at = append(frame, at, " receiving, ");
+        at = append(frame, at, progress.getBatches(GenerationProgress.Stage.PARSING));
+        at = append(frame, at, " parsing) | ");
+        at = append(frame, at, tokens);
+        at = append(frame, at, " tok, ");
+        at = append(frame, at, tokens * 1_000_000_000L / elapsedNanos);
+        at = append(frame, at, " tok/s");
+        if (expectedQuestions > questions && questions > 0) {
+            at = append(frame, at, " | ETA ");
+            at = append(frame, at, (expectedQuestions - questions) * elapsedNanos / questions / 1_000_000_000L);
+            frame[at++] = 's';
+        }
+        long quietNanos = now - progress.getLastActivityNanos();
+        if (progress.getBatchesInFlight() > 0 && stallAfterNanos > 0 && quietNanos >= stallAfterNanos) {
+            at = append(frame, at, " | no data for ");
+            at = append(frame, at, quietNanos / 1_000_000_000L);
+            frame[at++] = 's';
+        }
+        return at;
+    }
+
+    /**
+     * The current frame, for tests.
+     */
+    synchronized String frame(int length) {
+        return new String(frame, 1, length - 1, StandardCharsets.US_ASCII);
+    }
+
+    private static int append(byte[] buffer, int at, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            buffer[at++] = (byte) ascii.charAt(i);
         }
+        return at;
     }
-    
-    private void showSpinner() {
-        int i = 0;
-        try {
-            while (running.get()) {
-                String spinner = SPINNER_FRAMES[i % SPINNER_FRAMES.length];
-                out.print("\r" + message + " " + spinner);
-                out.flush();
-                Thread.sleep(100);
-                i++;
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+
+    private static int append(byte[] buffer, int at, long value) {
+        if (value < 0) {
+            buffer[at++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = at + digits - 1; i >= at; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
         }
+        return at + digits;
     }
 }
@@ -0,0 +1,164 @@
+package co.uk.jagemtech.safepopmexam.web;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.service.AbilityEstimate;
+import co.uk.jagemtech.safepopmexam.service.ExamService;
+import co.uk.jagemtech.safepopmexam.service.ExamSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front end for exams, available when the application runs as a web server
+ * ({@code --spring.profiles.active=server}). Each candidate gets their own exam session;
+ * choices are numbered from 1, as in the shell. With {@code adaptive=true} the number of
+ * questions is a maximum and each question is chosen by the answers so far. A session that
+ * was in progress when the server stopped is resumed the next time it is used.
+ */
+@RestController
+@RequestMapping("/api/exams")
+@ConditionalOnWebApplication
+public class ExamController {
+    private static final Logger logger = LoggerFactory.getLogger(ExamController.class);
+    private static final ExecutorService SSE_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ExamService examService;
+
+    @Autowired
+    public ExamController(ExamService examService) {
+        this.examService = examService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public ExamStarted startExam(@RequestParam(defaultValue = "5") int numberOfQuestions,
+                                 @RequestParam(defaultValue = "false") boolean adaptive) {
+        String sessionId = examService.createSessionId();
+        ExamSession session = adaptive
+                ? examService.startAdaptiveExam(sessionId, numberOfQuestions)
+                : examService.startExam(sessionId, numberOfQuestions);
+        return new ExamStarted(sessionId, currentQuestion(session));
+    }
+
+    @GetMapping("/{sessionId}/question")
+    public QuestionView currentQuestion(@PathVariable String sessionId) {
+        QuestionView question = currentQuestion(session(sessionId));
+        if (question == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "No exam is currently in progress");
+        }
+        return question;
+    }
+
+    @PostMapping("/{sessionId}/answers")
+    public AnswerResult answer(@PathVariable String sessionId, @RequestBody AnswerRequest request) {
+        ExamSession session = session(sessionId);
+        ExamSession.Answer answer = examService.answer(sessionId, request.choice() - 1);
+        if (answer == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "No exam is currently in progress");
+        }
+        Question question = answer.question();
+        if (!answer.accepted()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid choice number. Please select a number between 1 and " + question.getChoices().size());
+        }
+
+        Choice correctChoice = question.getCorrectChoice();
+        return new AnswerResult(answer.correct(), correctChoice != null ? correctChoice.getText() : null,
+                question.getExplanation(), currentQuestion(session), score(session));
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public Score endExam(@PathVariable String sessionId) {
+        ExamSession session = session(sessionId);
+        session.end();
+        return score(session);
+    }
+
+    /**
+     * Push every question in the exam as soon as it has been generated, then a
+     * {@code complete} event once generation has finished. An adaptive exam streams only the
+     * questions asked so far.
+     */
+    @GetMapping(path = "/{sessionId}/questions", produces = "text/event-stream")
+    public SseEmitter streamQuestions(@PathVariable String sessionId) {
+        ExamSession session = session(sessionId);
+        SseEmitter emitter = new SseEmitter(0L);
+        SSE_EXECUTOR.execute(() -> {
+            try {
+                Question question;
+                for (int i = 0; (question = session.getQuestion(i)) != null; i++) {
+                    emitter.send(SseEmitter.event()
+                            .name("question")
+                            .id(Integer.toString(i + 1))
+                            .data(view(question, i + 1, session.getTotalQuestions())));
+                }
+                emitter.send(SseEmitter.event().name("complete").data(session.getTotalQuestions()));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Question stream for session {} closed: {}", sessionId, e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    private ExamSession session(String sessionId) {
+        ExamSession session = examService.resumeExam(sessionId);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired exam session " + sessionId);
+        }
+        return session;
+    }
+
+    private static QuestionView currentQuestion(ExamSession session) {
+        Question question = session.getCurrentQuestion();
+        return question != null ? view(question, session.getCurrentQuestionNumber(), session.getTotalQuestions()) : null;
+    }
+
+    private static QuestionView view(Question question, int number, int totalQuestions) {
+        List<String> choices = question.getChoices().stream().map(Choice::getText).toList();
+        return new QuestionView(number, totalQuestions, question.getText(), choices);
+    }
+
+    private static Score score(ExamSession session) {
+        AbilityEstimate estimate = session.getAbilityEstimate();
+        return new Score(session.getCorrectAnswers(), session.getTotalQuestions(), session.getScore(),
+                session.isExamInProgress(), estimate.ability(), estimate.standardError());
+    }
+
+    public record ExamStarted(String sessionId, QuestionView question) {
+    }
+
+    public record QuestionView(int number, int totalQuestions, String text, List<String> choices) {
+    }
+
+    public record AnswerRequest(int choice) {
+    }
+
+    public record AnswerResult(boolean correct, String correctAnswer, String explanation,
+                               QuestionView nextQuestion, Score score) {
+    }
+
+    public record Score(int correctAnswers, int totalQuestions, double score, boolean examInProgress,
+                        double ability, double abilityError) {
+    }
+}
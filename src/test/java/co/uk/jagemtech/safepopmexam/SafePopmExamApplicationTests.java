@@ -1,16 +1,33 @@
 package co.uk.jagemtech.safepopmexam;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
 @SpringBootTest(properties = {
     "spring.shell.interactive.enabled=false",
-    "spring.shell.command.script.enabled=false"
+    "spring.shell.command.script.enabled=false",
+    "popm.store.enabled=false",
+    "popm.replenish.enabled=false",
+    "popm.journal.enabled=false",
+    "popm.claude.lazy-init=true"
 })
 class SafePopmExamApplicationTests {
 
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
     @Test
     void contextLoads() {
         // Just testing that the context loads successfully
     }
+
+    @Test
+    void claudeIsNotBuiltAtStartup() {
+        assertFalse(beanFactory.containsSingleton("anthropicChatModel"));
+        assertFalse(beanFactory.containsSingleton("anthropicApi"));
+    }
 }
@@ -0,0 +1,114 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.AttemptEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttemptJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private AttemptJournal journal(Path path) {
+        return new AttemptJournal(true, path.toString(), Duration.ofMillis(20), 1024, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testEventsSurviveReopenInOrder() {
+        // Arrange
+        Path path = tempDir.resolve("attempts.journal");
+        AttemptJournal journal = journal(path);
+
+        // Act
+        journal.append(AttemptEvent.started("alice", 3, true));
+        journal.append(AttemptEvent.asked("alice", 0, 42L));
+        journal.append(AttemptEvent.answered("alice", 0, 42L, 2, true));
+        journal.append(AttemptEvent.ended("alice"));
+        journal.close();
+        AttemptJournal reopened = journal(path);
+        List<AttemptEvent> events = new ArrayList<>();
+        int count = reopened.replay(events::add);
+
+        // Assert
+        assertEquals(4, count);
+        assertEquals(List.of(AttemptEvent.Type.STARTED, AttemptEvent.Type.ASKED, AttemptEvent.Type.ANSWERED,
+                AttemptEvent.Type.ENDED), events.stream().map(AttemptEvent::type).toList());
+        assertTrue(events.get(0).adaptive());
+        assertEquals(3, events.get(0).numberOfQuestions());
+        AttemptEvent answered = events.get(2);
+        assertEquals("alice", answered.sessionId());
+        assertEquals(42L, answered.questionId());
+        assertEquals(2, answered.choice());
+        assertTrue(answered.correct());
+        reopened.close();
+    }
+
+    @Test
+    void testConcurrentAppendsAreGroupCommitted() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("attempts.journal");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AttemptJournal journal = new AttemptJournal(true, path.toString(), Duration.ofMillis(20), 1024, meterRegistry);
+
+        // Act - 8 candidates answer 500 questions each at once
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int candidate = 0; candidate < 8; candidate++) {
+                String sessionId = "candidate-" + candidate;
+                executor.execute(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        journal.append(AttemptEvent.answered(sessionId, i, i, 0, i % 2 == 0));
+                    }
+                });
+            }
+        }
+        journal.flush();
+
+        // Assert - every event is durable, written in fewer commits than events
+        assertEquals(4000, journal.replay(event -> { }));
+        assertEquals(4000, meterRegistry.get(AttemptJournal.EVENTS_COUNTER).counter().count());
+        assertTrue(meterRegistry.get(AttemptJournal.COMMIT_SIZE_SUMMARY).summary().count() < 4000);
+        journal.close();
+    }
+
+    @Test
+    void testTornTailIsTruncated() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("attempts.journal");
+        AttemptJournal journal = journal(path);
+        journal.append(AttemptEvent.started("bob", 5, false));
+        journal.append(AttemptEvent.asked("bob", 0, 7L));
+        journal.close();
+        long intactSize = Files.size(path);
+
+        // Act - simulate a crash part way through writing a record
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 60, 1, 2, 3}));
+        }
+        AttemptJournal reopened = journal(path);
+        reopened.append(AttemptEvent.ended("bob"));
+        reopened.flush();
+
+        // Assert
+        List<AttemptEvent> events = new ArrayList<>();
+        reopened.replay(events::add);
+        assertEquals(3, events.size());
+        assertEquals(AttemptEvent.Type.ENDED, events.get(2).type());
+        assertTrue(Files.size(path) > intactSize);
+        reopened.close();
+    }
+}
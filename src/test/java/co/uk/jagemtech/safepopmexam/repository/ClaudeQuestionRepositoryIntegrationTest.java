@@ -3,6 +3,7 @@ package co.uk.jagemtech.safepopmexam.repository;
 import co.uk.jagemtech.safepopmexam.model.Choice;
 import co.uk.jagemtech.safepopmexam.model.Question;
 import co.uk.jagemtech.safepopmexam.service.ClaudeService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,8 +11,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.TestPropertySource;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -19,7 +25,11 @@ import static org.mockito.Mockito.*;
 
 @SpringBootTest(properties = {
     "spring.shell.interactive.enabled=false",
-    "spring.shell.command.script.enabled=false"
+    "spring.shell.command.script.enabled=false",
+    "popm.store.enabled=false",
+    "popm.replenish.enabled=false",
+    "popm.journal.enabled=false",
+    "popm.tiers.claude-budget=300ms"
 })
 @TestPropertySource(properties = {
     "spring.main.web-application-type=NONE"
@@ -35,6 +45,9 @@ public class ClaudeQuestionRepositoryIntegrationTest {
     @Autowired
     private MockQuestionRepository mockQuestionRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private List<Question> testQuestions;
 
     @BeforeEach
@@ -69,6 +82,7 @@ public class ClaudeQuestionRepositoryIntegrationTest {
             java.lang.reflect.Field cachedQuestionsField = ClaudeQuestionRepository.class.getDeclaredField("cachedQuestions");
             cachedQuestionsField.setAccessible(true);
             cachedQuestionsField.set(claudeQuestionRepository, null);
+            claudeQuestionRepository.clearCache();
         } catch (Exception e) {
             // Just log the error but continue with the test
             System.err.println("Failed to reset cached questions: " + e.getMessage());
@@ -107,6 +121,27 @@ public class ClaudeQuestionRepositoryIntegrationTest {
         verify(claudeService, times(1)).generateQuestions(anyInt());
     }
 
+    @Test
+    void testGetAllQuestions_SlowClaudeIsCachedForLater() throws InterruptedException {
+        // Arrange - Claude answers after its budget has run out
+        when(claudeService.generateQuestions(anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return testQuestions;
+        });
+
+        // Act
+        List<Question> results = claudeQuestionRepository.getAllQuestions();
+
+        // Assert - the exam is not kept waiting, and Claude's questions are cached once they arrive
+        assertEquals(mockQuestionRepository.getAllQuestions().size(), results.size());
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (claudeQuestionRepository.getUnseenCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, claudeQuestionRepository.getUnseenCount());
+        assertEquals("Test question 1?", claudeQuestionRepository.getAllQuestions().get(0).getText());
+    }
+
     @Test
     void testRefreshQuestions_Success() {
         // Arrange
@@ -123,6 +158,63 @@ public class ClaudeQuestionRepositoryIntegrationTest {
         verify(claudeService, times(1)).generateQuestions(5);
     }
 
+    @Test
+    void testRefreshQuestions_ConcurrentRefreshesShareOneGeneration() throws Exception {
+        // Arrange - Claude is held until two more refreshes have joined the first
+        double coalescedBefore = coalescedRefreshes();
+        CountDownLatch release = new CountDownLatch(1);
+        when(claudeService.generateQuestions(5)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return testQuestions;
+        });
+
+        // Act
+        List<CompletableFuture<RefreshResult>> refreshes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            refreshes.add(CompletableFuture.supplyAsync(() -> claudeQuestionRepository.refreshQuestions(5)));
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (coalescedRefreshes() - coalescedBefore < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        // Assert - one call to Claude, whose result every caller sees
+        for (CompletableFuture<RefreshResult> refresh : refreshes) {
+            assertEquals(2, refresh.get(5, TimeUnit.SECONDS).added());
+        }
+        assertEquals(2, coalescedRefreshes() - coalescedBefore);
+        verify(claudeService, times(1)).generateQuestions(5);
+        assertEquals(2, claudeQuestionRepository.getAllQuestions().size());
+    }
+
+    @Test
+    void testRefreshQuestions_DifferentCountsAreNotShared() throws Exception {
+        // Arrange - a refresh of 5 is held while a refresh of 2 is asked for
+        double coalescedBefore = coalescedRefreshes();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(claudeService.generateQuestions(5)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return testQuestions;
+        });
+        when(claudeService.generateQuestions(2)).thenReturn(topicQuestions("portfolio kanban", "lean budgets"));
+
+        // Act
+        CompletableFuture<RefreshResult> five = CompletableFuture.supplyAsync(() -> claudeQuestionRepository.refreshQuestions(5));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        RefreshResult two = claudeQuestionRepository.refreshQuestions(2);
+        release.countDown();
+
+        // Assert - each refresh asked Claude for its own questions
+        assertEquals(2, two.added());
+        assertEquals(2, five.get(5, TimeUnit.SECONDS).added());
+        assertEquals(0, coalescedRefreshes() - coalescedBefore);
+        verify(claudeService, times(1)).generateQuestions(5);
+        verify(claudeService, times(1)).generateQuestions(2);
+    }
+
     @Test
     void testRefreshQuestions_Error() {
         // Arrange
@@ -140,6 +232,68 @@ public class ClaudeQuestionRepositoryIntegrationTest {
         verify(claudeService, times(2)).generateQuestions(anyInt()); // Once for refresh, once for getAllQuestions
     }
 
+    @Test
+    void testRefreshQuestions_PartialFailure() {
+        // Arrange - four batches of 5, one of which fails
+        when(claudeService.generateQuestions(5))
+            .thenReturn(topicQuestions("Solution Trains", "Lean Portfolio Management"))
+            .thenThrow(new RuntimeException("API error"))
+            .thenReturn(topicQuestions("Inspect and Adapt", "Architectural Runway"))
+            .thenReturn(topicQuestions("Release on Demand", "Continuous Exploration"));
+
+        // Act
+        RefreshResult result = claudeQuestionRepository.refreshQuestions(20);
+        List<Question> results = claudeQuestionRepository.getAllQuestions();
+
+        // Assert - the successful batches are kept
+        assertEquals(6, results.size());
+        assertEquals(6, result.added());
+        assertEquals(0, result.duplicates());
+        verify(claudeService, times(4)).generateQuestions(5);
+    }
+
+    @Test
+    void testRefreshQuestions_RejectsNearDuplicates() {
+        // Arrange - later batches repeat the first, one of them reworded
+        List<Question> reworded = Arrays.asList(
+            new Question("Test question one?", testQuestions.get(0).getChoices(), "Reworded explanation"),
+            testQuestions.get(1)
+        );
+        when(claudeService.generateQuestions(5))
+            .thenReturn(testQuestions)
+            .thenReturn(reworded)
+            .thenReturn(topicQuestions("Inspect and Adapt", "Architectural Runway"));
+
+        // Act
+        RefreshResult result = claudeQuestionRepository.refreshQuestions(15);
+        List<Question> results = claudeQuestionRepository.getAllQuestions();
+
+        // Assert
+        assertEquals(4, results.size());
+        assertEquals(4, result.added());
+        assertEquals(2, result.duplicates());
+        assertEquals(1.0 / 3, result.duplicateRate(), 1e-9);
+    }
+
+    @Test
+    void testReplenish_ServesUnseenQuestionsFirst() {
+        // Arrange
+        when(claudeService.generateQuestions(5))
+            .thenReturn(testQuestions)
+            .thenReturn(topicQuestions("Inspect and Adapt", "Architectural Runway"));
+
+        // Act
+        int added = claudeQuestionRepository.replenish(10);
+        List<Question> served = new ArrayList<>();
+        claudeQuestionRepository.streamQuestions(3, new SplittableRandom(), served::add).join();
+
+        // Assert
+        assertEquals(4, added);
+        assertEquals(3, served.size());
+        assertEquals(1, claudeQuestionRepository.getUnseenCount());
+        verify(claudeService, times(2)).generateQuestions(5);
+    }
+
     @Test
     void testCachedQuestions() {
         // Arrange
@@ -164,4 +318,25 @@ public class ClaudeQuestionRepositoryIntegrationTest {
         // Verify the service wasn't called again on second request
         verify(claudeService, never()).generateQuestions(anyInt());
     }
+
+    private static List<Question> topicQuestions(String... topics) {
+        List<Question> questions = new ArrayList<>();
+        for (String topic : topics) {
+            questions.add(new Question(
+                "What is " + topic + "?",
+                Arrays.asList(
+                    new Choice(topic, true),
+                    new Choice(topic + " backlog", false),
+                    new Choice(topic + " roadmap", false),
+                    new Choice(topic + " budget", false)
+                ),
+                "Explanation for " + topic
+            ));
+        }
+        return questions;
+    }
+
+    private double coalescedRefreshes() {
+        return meterRegistry.get(ClaudeQuestionRepository.COALESCED_COUNTER).tag("work", "refresh").counter().count();
+    }
 }
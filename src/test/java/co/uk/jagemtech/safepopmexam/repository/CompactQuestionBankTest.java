@@ -0,0 +1,78 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactQuestionBankTest {
+
+    private static Question question(String text, int correct, Topic topic) {
+        List<Choice> choices = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            choices.add(new Choice("Option " + i + " – “" + text + "”", i == correct));
+        }
+        return new Question(text, choices, "Explanation for " + text, topic);
+    }
+
+    @Test
+    void roundTripsQuestionsOnAndOffHeap() {
+        for (boolean offHeap : new boolean[] {false, true}) {
+            // Arrange
+            CompactQuestionBank bank = new CompactQuestionBank(offHeap, 1);
+            Question tagged = question("What is PI Planning?", 2, Topic.PI_PLANNING_PREPARATION);
+            Question untagged = new Question("Who owns the backlog?", List.of(new Choice("PO", true)), null);
+
+            // Act - the second append grows every array and the arena
+            bank.append(tagged);
+            bank.append(untagged);
+
+            // Assert
+            assertEquals(2, bank.size());
+            Question decoded = bank.get(0);
+            assertEquals(tagged.getText(), decoded.getText());
+            assertEquals(tagged.getExplanation(), decoded.getExplanation());
+            assertEquals(Topic.PI_PLANNING_PREPARATION, decoded.getTopic());
+            assertEquals(4, decoded.getChoices().size());
+            assertEquals(tagged.getChoices().get(3).getText(), decoded.getChoices().get(3).getText());
+            assertEquals(2, decoded.getCorrectIndex());
+            assertTrue(decoded.getChoices().get(2).isCorrect());
+            assertFalse(decoded.getChoices().get(0).isCorrect());
+
+            assertNull(bank.explanation(1));
+            assertNull(bank.topic(1));
+            assertEquals(1, bank.choiceCount(1));
+            assertEquals("PO", bank.choiceText(1, bank.correctIndex(1)));
+        }
+    }
+
+    @Test
+    void keepsQuestionsAppendedAfterTrimming() {
+        // Arrange
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            questions.add(question("Question " + i + "?", i % 4, Topic.values()[i % Topic.values().length]));
+        }
+        CompactQuestionBank bank = CompactQuestionBank.of(questions, false);
+        List<Question> before = bank.asList();
+
+        // Act
+        bank.append(question("Question 100?", 1, null));
+
+        // Assert
+        assertEquals(100, before.size());
+        assertEquals(101, bank.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(questions.get(i).getText(), bank.text(i));
+            assertEquals(i % 4, bank.correctIndex(i));
+            assertEquals(questions.get(i).getTopic(), bank.topic(i));
+        }
+        assertEquals("Question 100?", bank.get(100).getText());
+        assertThrows(IndexOutOfBoundsException.class, () -> bank.get(101));
+    }
+}
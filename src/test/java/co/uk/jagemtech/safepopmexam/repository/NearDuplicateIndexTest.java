@@ -0,0 +1,59 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearDuplicateIndexTest {
+
+    private final NearDuplicateIndex index = new NearDuplicateIndex(0.6);
+
+    @Test
+    void rejectsParaphraseOfIndexedQuestion() {
+        index.addIfDistinct(piPlanning("In SAFe, what is the primary purpose of PI Planning?"));
+
+        Question paraphrase = piPlanning("What is the main purpose of PI Planning in SAFe?");
+
+        assertTrue(index.isNearDuplicate(paraphrase));
+        assertFalse(index.addIfDistinct(paraphrase));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void acceptsDistinctQuestions() {
+        List<Question> mockQuestions = new MockQuestionRepository().getAllQuestions();
+
+        mockQuestions.forEach(question -> assertTrue(index.addIfDistinct(question), question.getText()));
+
+        assertEquals(mockQuestions.size(), index.size());
+    }
+
+    @Test
+    void clearForgetsIndexedQuestions() {
+        Question question = piPlanning("In SAFe, what is the primary purpose of PI Planning?");
+        index.addIfDistinct(question);
+
+        index.clear();
+
+        assertFalse(index.isNearDuplicate(question));
+        assertEquals(0, index.size());
+    }
+
+    private static Question piPlanning(String text) {
+        return new Question(
+            text,
+            Arrays.asList(
+                new Choice("To create a detailed backlog for the next 6-12 months", false),
+                new Choice("To align teams to a common mission and vision for the next Program Increment", true),
+                new Choice("To evaluate the performance of individual team members", false),
+                new Choice("To create a project budget for the fiscal year", false)
+            ),
+            "PI Planning aligns teams to a common mission."
+        );
+    }
+}
@@ -0,0 +1,111 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuestionStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Question question(String text) {
+        return new Question(
+            text,
+            Arrays.asList(
+                new Choice("Option 1", false),
+                new Choice("Option 2 – with “unicode”", true),
+                new Choice("Option 3", false),
+                new Choice("Option 4", false)
+            ),
+            "Explanation for " + text
+        );
+    }
+
+    @Test
+    void testQuestionsSurviveReopen() {
+        // Arrange
+        Path path = tempDir.resolve("questions.bank");
+        QuestionStore store = new QuestionStore(true, path.toString());
+
+        // Act
+        store.append(List.of(question("Question 1?"), question("Question 2?")));
+        store.append(List.of(question("Question 3?")));
+        store.close();
+        QuestionStore reopened = new QuestionStore(true, path.toString());
+
+        // Assert
+        assertEquals(3, reopened.size());
+        Question second = reopened.get(1);
+        assertEquals("Question 2?", second.getText());
+        assertEquals("Explanation for Question 2?", second.getExplanation());
+        assertEquals("Option 2 – with “unicode”", second.getCorrectChoice().getText());
+        assertEquals("Question 3?", reopened.asList().get(2).getText());
+        reopened.close();
+    }
+
+    @Test
+    void testTopicIsStoredWithQuestion() {
+        // Arrange
+        Path path = tempDir.resolve("questions.bank");
+        QuestionStore store = new QuestionStore(true, path.toString());
+        Question untagged = question("Question 1?");
+        Question tagged = new Question(untagged.getText(), untagged.getChoices(), untagged.getExplanation(),
+                Topic.PI_EXECUTION);
+
+        // Act
+        int first = store.append(List.of(tagged, question("Question 2?")));
+
+        // Assert
+        assertEquals(0, first);
+        assertEquals(Topic.PI_EXECUTION, store.topic(0));
+        assertEquals(Topic.PI_EXECUTION, store.get(0).getTopic());
+        assertNull(store.topic(1));
+        assertEquals(4, store.get(1).getChoices().size());
+        store.close();
+    }
+
+    @Test
+    void testTornRecordIsTruncatedAndUnindexedRecordIsRecovered() throws IOException {
+        // Arrange - one indexed question, then simulate a crash after writing the log but before indexing
+        Path path = tempDir.resolve("questions.bank");
+        QuestionStore store = new QuestionStore(true, path.toString());
+        store.append(List.of(question("Question 1?"), question("Question 2?")));
+        store.close();
+        try (FileChannel index = FileChannel.open(tempDir.resolve("questions.bank.idx"), StandardOpenOption.WRITE)) {
+            index.truncate(Long.BYTES);
+        }
+        try (FileChannel log = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 100, 1, 2, 3}));
+        }
+
+        // Act
+        QuestionStore reopened = new QuestionStore(true, path.toString());
+        reopened.append(List.of(question("Question 3?")));
+
+        // Assert
+        assertEquals(3, reopened.size());
+        assertEquals("Question 2?", reopened.get(1).getText());
+        assertEquals("Question 3?", reopened.get(2).getText());
+        reopened.close();
+    }
+
+    @Test
+    void testDisabledStoreIsEmpty() {
+        QuestionStore store = new QuestionStore(false, tempDir.resolve("unused.bank").toString());
+        store.append(List.of(question("Question 1?")));
+        assertTrue(store.isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final Counter shared = new SimpleMeterRegistry().counter("shared");
+    private final SingleFlight<String, Integer> flight = new SingleFlight<>(shared);
+
+    @Test
+    void callersArrivingDuringTheWorkShareItsResult() throws Exception {
+        // Arrange - the work is held until both other callers have joined
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> flight.run("work", () -> {
+            started.countDown();
+            await(release);
+            return runs.incrementAndGet();
+        }));
+        await(started);
+
+        // Act
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> flight.run("work", runs::incrementAndGet));
+        CompletableFuture<Integer> third = CompletableFuture.supplyAsync(() -> flight.run("work", runs::incrementAndGet));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (shared.count() < 2 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        // Assert
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, third.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(2, shared.count());
+    }
+
+    @Test
+    void runsAgainOnceTheWorkHasFinishedOrFailed() {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> flight.run("work", () -> {
+            runs.incrementAndGet();
+            throw new IllegalStateException("Claude unavailable");
+        }));
+
+        // Act
+        int result = flight.run("work", runs::incrementAndGet);
+
+        // Assert
+        assertEquals(2, result);
+        assertEquals(0, shared.count());
+    }
+
+    @Test
+    void callersForDifferentKeysRunTheirOwnWork() throws Exception {
+        // Arrange - the work for one key is held while another key is asked for
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> five = CompletableFuture.supplyAsync(() -> flight.run("5", () -> {
+            started.countDown();
+            await(release);
+            return 5;
+        }));
+        await(started);
+
+        // Act
+        int hundred = flight.run("100", () -> 100);
+        release.countDown();
+
+        // Assert
+        assertEquals(100, hundred);
+        assertEquals(5, five.get(5, TimeUnit.SECONDS));
+        assertEquals(0, shared.count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
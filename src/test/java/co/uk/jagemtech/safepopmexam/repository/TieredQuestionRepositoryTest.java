@@ -0,0 +1,268 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredQuestionRepositoryTest {
+
+    private static final Executor EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void fastestTierAnswersAndNextTierTopsUp() {
+        // Arrange - memory holds two questions, the store three more
+        ListTier memory = new ListTier(questions("memory", 2));
+        ListTier store = new ListTier(questions("store", 3));
+        ListTier mock = new ListTier(questions("mock", 5));
+        TieredQuestionRepository tiers = chain(memory, store, new SlowTier(List.of(), new CountDownLatch(0)), mock);
+
+        // Act
+        List<Question> served = new ArrayList<>();
+        CompletableFuture<Void> done = tiers.streamQuestions(4, new SplittableRandom(1), served::add);
+
+        // Assert - answered synchronously, without asking the slower tiers
+        assertTrue(done.isDone());
+        assertEquals(List.of("memory 0?", "memory 1?", "store 0?", "store 1?"), texts(served));
+        assertEquals(2, served(TieredQuestionRepository.SERVED_COUNTER, "store"));
+        assertEquals(0, served(TieredQuestionRepository.SERVED_COUNTER, "mock"));
+        assertEquals(List.of("memory 0?", "memory 1?"), texts(memory.getAllQuestions()));
+    }
+
+    @Test
+    void movesPastASlowTierAndPromotesItsQuestionsWhenTheyArrive() throws Exception {
+        // Arrange - the slow tier delivers one question, then stalls beyond its budget
+        CountDownLatch stalled = new CountDownLatch(1);
+        ListTier memory = new ListTier(List.of());
+        SlowTier claude = new SlowTier(questions("claude", 3), stalled);
+        ListTier mock = new ListTier(questions("mock", 5));
+        TieredQuestionRepository tiers = chain(memory, claude, mock);
+
+        // Act
+        List<Question> served = new CopyOnWriteArrayList<>();
+        tiers.streamQuestions(3, new SplittableRandom(1), served::add).get(5, TimeUnit.SECONDS);
+        stalled.countDown();
+        claude.finished.get(5, TimeUnit.SECONDS);
+
+        // Assert - one question from the slow tier, the rest from the mock tier
+        assertEquals(List.of("claude 0?", "mock 0?", "mock 1?"), texts(served));
+        assertEquals(1, served(TieredQuestionRepository.BUDGET_EXCEEDED_COUNTER, "claude"));
+        // The late questions are promoted as unseen, the served one as seen
+        waitFor(() -> memory.promoted.size() == 2);
+        assertEquals(List.of("claude 0?"), texts(memory.promoted.get(0)));
+        assertEquals(List.of("claude 1?", "claude 2?"), texts(memory.promoted.get(1)));
+        assertEquals(List.of(true, false), memory.promotedServed);
+        assertTrue(mock.promoted.isEmpty());
+    }
+
+    @Test
+    void completesOnlyOnceASlowConsumerHasTakenEveryQuestion() throws Exception {
+        // Arrange - the slow tier delivers on the executor, to a consumer that takes its time
+        ListTier memory = new ListTier(List.of());
+        SlowTier claude = new SlowTier(questions("claude", 3), new CountDownLatch(0));
+        TieredQuestionRepository tiers = chain(memory, claude, new ListTier(questions("mock", 5)));
+        List<Question> served = new CopyOnWriteArrayList<>();
+
+        // Act
+        tiers.streamQuestions(3, new SplittableRandom(1), question -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            served.add(question);
+        }).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(List.of("claude 0?", "claude 1?", "claude 2?"), texts(served));
+    }
+
+    @Test
+    void getAllQuestionsFallsBackWhenATierIsOverBudget() throws Exception {
+        // Arrange
+        CountDownLatch stalled = new CountDownLatch(1);
+        ListTier memory = new ListTier(List.of());
+        SlowTier claude = new SlowTier(questions("claude", 2), stalled);
+        ListTier mock = new ListTier(questions("mock", 5));
+        TieredQuestionRepository tiers = chain(memory, claude, mock);
+
+        // Act
+        List<Question> answered = tiers.getAllQuestions();
+        stalled.countDown();
+
+        // Assert
+        assertEquals(5, answered.size());
+        assertEquals(0, served(TieredQuestionRepository.SERVED_COUNTER, "mock"));
+        waitFor(() -> memory.promoted.size() == 1);
+        assertEquals(List.of("claude 0?", "claude 1?"), texts(memory.promoted.get(0)));
+        assertEquals(List.of(false), memory.promotedServed);
+    }
+
+    @Test
+    void samplesIdsAcrossTiersAndLooksThemUpWithoutCopying() {
+        // Arrange
+        List<Question> inMemory = questions("memory", 2);
+        List<Question> inStore = questions("store", 5);
+        TieredQuestionRepository tiers = chain(new ListTier(inMemory), new ListTier(inStore),
+                new SlowTier(List.of(), new CountDownLatch(0)), new ListTier(List.of()));
+        long excluded = inStore.get(0).getId();
+
+        // Act
+        long[] ids = tiers.sampleIds(4, Set.of(), id -> id == excluded, new SplittableRandom(1));
+        List<Question> sampled = tiers.getQuestions(ids);
+
+        // Assert - both memory questions, topped up with two store questions other than the excluded one
+        assertEquals(4, Arrays.stream(ids).distinct().count());
+        assertTrue(sampled.containsAll(inMemory));
+        assertEquals(2, sampled.stream().filter(inStore::contains).count());
+        assertFalse(sampled.contains(inStore.get(0)));
+        assertEquals(inStore.get(3), tiers.getQuestion(inStore.get(3).getId()));
+        assertNull(tiers.getQuestion(42L));
+    }
+
+    private TieredQuestionRepository chain(QuestionTier... sources) {
+        List<TieredQuestionRepository.Tier> tiers = new ArrayList<>();
+        String[] names = sources.length == 4 ? new String[]{"memory", "store", "claude", "mock"}
+                : new String[]{"memory", "claude", "mock"};
+        for (int i = 0; i < sources.length; i++) {
+            boolean slow = sources[i] instanceof SlowTier;
+            tiers.add(new TieredQuestionRepository.Tier(names[i], sources[i],
+                    slow ? Duration.ofMillis(200) : Duration.ZERO, slow));
+        }
+        return new TieredQuestionRepository(tiers, EXECUTOR, meterRegistry);
+    }
+
+    private double served(String counter, String tier) {
+        return meterRegistry.get(counter).tag("tier", tier).counter().count();
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static List<String> texts(List<Question> questions) {
+        return questions.stream().map(Question::getText).toList();
+    }
+
+    private static List<Question> questions(String source, int count) {
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            questions.add(new Question(source + " " + i + "?",
+                    List.of(new Choice("Right", true), new Choice("Wrong", false)), "Because"));
+        }
+        return questions;
+    }
+
+    /**
+     * Serves its questions in order, at once, and records what is promoted into it.
+     */
+    private static class ListTier implements QuestionTier {
+        private final List<Question> questions;
+        private final List<List<Question>> promoted = new CopyOnWriteArrayList<>();
+        private final List<Boolean> promotedServed = new CopyOnWriteArrayList<>();
+
+        ListTier(List<Question> questions) {
+            this.questions = questions;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return questions.isEmpty();
+        }
+
+        @Override
+        public List<Question> getAllQuestions() {
+            return questions;
+        }
+
+        @Override
+        public CompletableFuture<Void> streamQuestions(int count, List<Question> alreadySelected, RandomGenerator random,
+                                                       Consumer<Question> consumer) {
+            questions.stream().filter(question -> !alreadySelected.contains(question)).limit(count).forEach(consumer);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public Question getQuestion(long id) {
+            return QuestionSampling.find(questions, id);
+        }
+
+        @Override
+        public long[] sampleIds(int count, Set<Topic> topics, LongPredicate excluded, RandomGenerator random) {
+            return QuestionSampling.sampleIds(questions, count, topics, excluded, random);
+        }
+
+        @Override
+        public void promote(List<Question> questions, boolean served) {
+            promoted.add(questions);
+            promotedServed.add(served);
+        }
+    }
+
+    /**
+     * Delivers its first question at once and the rest only once released.
+     */
+    private static class SlowTier implements QuestionTier {
+        private final List<Question> questions;
+        private final CountDownLatch release;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+        SlowTier(List<Question> questions, CountDownLatch release) {
+            this.questions = questions;
+            this.release = release;
+        }
+
+        @Override
+        public List<Question> getAllQuestions() {
+            await();
+            return questions;
+        }
+
+        @Override
+        public CompletableFuture<Void> streamQuestions(int count, List<Question> alreadySelected, RandomGenerator random,
+                                                       Consumer<Question> consumer) {
+            CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < Math.min(count, questions.size()); i++) {
+                    if (i == 1) {
+                        await();
+                    }
+                    consumer.accept(questions.get(i));
+                }
+            }, EXECUTOR).whenComplete((result, error) -> finished.complete(null));
+            return finished;
+        }
+
+        private void await() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package co.uk.jagemtech.safepopmexam.repository;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicIndexTest {
+
+    @Test
+    void allocatesByBlueprintWeight() {
+        int[] available = {100, 100, 100, 100, 100, 0};
+
+        int[] allocation = TopicIndex.allocate(20, available, new int[6]);
+
+        assertArrayEquals(new int[] {4, 5, 3, 5, 3, 0}, allocation);
+    }
+
+    @Test
+    void makesUpShortfallFromOtherTopicsThenUntagged() {
+        int[] available = {0, 1, 100, 2, 0, 100};
+
+        int[] allocation = TopicIndex.allocate(10, available, new int[6]);
+
+        assertEquals(10, Arrays.stream(allocation).sum());
+        assertEquals(0, allocation[Topic.ROLES_AND_RESPONSIBILITIES.ordinal()]);
+        assertEquals(1, allocation[Topic.PI_PLANNING_PREPARATION.ordinal()]);
+        assertEquals(7, allocation[Topic.LEADERSHIP_FOR_PI_PLANNING.ordinal()]);
+        assertEquals(2, allocation[Topic.ITERATION_EXECUTION.ordinal()]);
+        assertEquals(0, allocation[5]);
+    }
+
+    @Test
+    void samplesDistinctPositionsAccountingForSelectedQuestions() {
+        TopicIndex index = new TopicIndex();
+        for (int position = 0; position < 1000; position++) {
+            index.add(position, Topic.values()[position % Topic.values().length]);
+        }
+        List<Question> alreadySelected = List.of(question(Topic.PI_PLANNING_PREPARATION));
+
+        int[] sampled = index.sample(19, alreadySelected, new SplittableRandom(7));
+
+        assertEquals(19, sampled.length);
+        assertEquals(19, Arrays.stream(sampled).distinct().count());
+        long piPlanning = Arrays.stream(sampled)
+                .filter(position -> position % Topic.values().length == Topic.PI_PLANNING_PREPARATION.ordinal())
+                .count();
+        assertEquals(4, piPlanning);
+    }
+
+    @Test
+    void samplesInRandomOrderNotGroupedByTopic() {
+        // Arrange
+        TopicIndex index = new TopicIndex();
+        for (int position = 0; position < 1000; position++) {
+            index.add(position, Topic.values()[position % Topic.values().length]);
+        }
+        SplittableRandom random = new SplittableRandom(11);
+
+        // Act - an exam grouped by topic changes topic only between groups, four times
+        int changes = 0;
+        for (int exam = 0; exam < 20; exam++) {
+            int[] sampled = index.sample(20, List.of(), random);
+            for (int i = 1; i < sampled.length; i++) {
+                if (sampled[i] % Topic.values().length != sampled[i - 1] % Topic.values().length) {
+                    changes++;
+                }
+            }
+        }
+
+        // Assert - a random order of 20 questions over five topics changes topic about 15 times
+        assertTrue(changes > 20 * 8, changes + " topic changes in 20 exams");
+    }
+
+    @Test
+    void samplesOnlyTheRequestedTopicsSkippingExcludedPositions() {
+        TopicIndex index = new TopicIndex();
+        for (int position = 0; position < 1000; position++) {
+            index.add(position, Topic.values()[position % Topic.values().length]);
+        }
+        Set<Topic> topics = Set.of(Topic.PI_EXECUTION, Topic.ITERATION_EXECUTION);
+
+        int[] sampled = index.sample(50, topics, position -> position < 500, new SplittableRandom(3));
+
+        assertEquals(50, sampled.length);
+        assertEquals(50, Arrays.stream(sampled).distinct().count());
+        assertTrue(Arrays.stream(sampled).allMatch(position -> position >= 500
+                && topics.contains(Topic.values()[position % Topic.values().length])));
+    }
+
+    @Test
+    void findsTheFewPositionsLeftWhenAlmostEverythingIsExcluded() {
+        TopicIndex index = new TopicIndex();
+        for (int position = 0; position < 1000; position++) {
+            index.add(position, position % 2 == 0 ? Topic.PI_EXECUTION : null);
+        }
+
+        int[] sampled = index.sample(5, Set.of(), position -> position % 250 != 0, new SplittableRandom(3));
+
+        Arrays.sort(sampled);
+        assertArrayEquals(new int[] {0, 250, 500, 750}, sampled);
+    }
+
+    @Test
+    void returnsWholeBankWhenSmallerThanRequest() {
+        TopicIndex index = new TopicIndex();
+        index.add(0, Topic.PI_EXECUTION);
+        index.add(1, null);
+
+        int[] sampled = index.sample(5, List.of(), new SplittableRandom(7));
+
+        assertEquals(2, sampled.length);
+    }
+
+    private static Question question(Topic topic) {
+        return new Question("Question?", List.of(new Choice("Yes", true), new Choice("No", false)), null, topic);
+    }
+}
@@ -0,0 +1,192 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.SourceChunk;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import co.uk.jagemtech.safepopmexam.repository.SourceChunkStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.anthropic.AnthropicChatModel;
+import org.springframework.ai.anthropic.AnthropicChatOptions;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ClaudeServiceTest {
+
+    private static final String RESPONSE = """
+            [{"text":"What is the purpose of PI Planning?","choices":[{"text":"Alignment","correct":true},\
+            {"text":"Budgeting","correct":false}],"explanation":"Aligns teams","topic":"5.2"},\
+            {"text":"Who owns the Team Backlog?","choices":[{"text":"Product Owner","correct":true},\
+            {"text":"Scrum Master","correct":false}],"explanation":"PO owns it","topic":"5.1.4"}]
+            """;
+
+    private final AnthropicChatModel chatModel = mock(AnthropicChatModel.class);
+    private final GenerationController generationController =
+            new GenerationController(5, 10, 400, 8192, Duration.ofSeconds(30));
+    private final ResilientChatCaller resilientCaller = new ResilientChatCaller(Duration.ofSeconds(5), 2,
+            Duration.ofMillis(1), Duration.ofMillis(5), false, Duration.ofSeconds(5), 5, Duration.ofSeconds(30));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GenerationProgress progress = new GenerationProgress(meterRegistry);
+    private final ClaudeService claudeService =
+            new ClaudeService(chatModel, generationController, resilientCaller, meterRegistry,
+                    new SourceChunkStore(false, "unused"), progress, 2);
+
+    @Test
+    void sendsStaticPrefixAsSystemMessageAndCountInUserMessage() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(response(RESPONSE, 600, 200));
+        ArgumentCaptor<Prompt> prompts = ArgumentCaptor.forClass(Prompt.class);
+
+        // Act
+        claudeService.generateQuestions(2);
+        claudeService.generateQuestions(20);
+
+        // Assert
+        verify(chatModel, times(2)).call(prompts.capture());
+        for (Prompt prompt : prompts.getAllValues()) {
+            List<Message> messages = prompt.getInstructions();
+            assertEquals(MessageType.SYSTEM, messages.get(0).getMessageType());
+            assertEquals(QuestionPrompt.SYSTEM_PREFIX, messages.get(0).getText());
+            assertEquals(MessageType.USER, messages.get(1).getMessageType());
+        }
+        assertEquals("Generate exactly 2 questions.", prompts.getAllValues().get(0).getInstructions().get(1).getText());
+        assertEquals("Generate exactly 10 questions.", prompts.getAllValues().get(1).getInstructions().get(1).getText());
+        AnthropicChatOptions options = (AnthropicChatOptions) prompts.getAllValues().get(0).getOptions();
+        assertEquals(1200, options.getMaxTokens());
+    }
+
+    @Test
+    void groundsPromptInIngestedSourceMaterial(@TempDir Path directory) {
+        // Arrange
+        SourceChunkStore sources = new SourceChunkStore(true, directory.resolve("sources.bank").toString());
+        sources.append(List.of(new SourceChunk("course.txt", Topic.PI_EXECUTION,
+                "The System Demo is a significant event that provides an integrated view of new features.")));
+        ClaudeService grounded = new ClaudeService(chatModel, generationController, resilientCaller, meterRegistry,
+                sources, progress, 2);
+        when(chatModel.call(any(Prompt.class))).thenReturn(response(RESPONSE, 600, 200));
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+
+        // Act
+        grounded.generateQuestions(2);
+
+        // Assert - the system prefix is unchanged and the extract follows the instruction
+        verify(chatModel).call(prompt.capture());
+        assertEquals(QuestionPrompt.SYSTEM_PREFIX, prompt.getValue().getInstructions().get(0).getText());
+        String instruction = prompt.getValue().getInstructions().get(1).getText();
+        assertTrue(instruction.startsWith("Generate exactly 2 questions."));
+        assertTrue(instruction.contains("[5.5 PI Execution]\nThe System Demo is a significant event"));
+        sources.close();
+    }
+
+    @Test
+    void tracksTokensPerGeneratedQuestion() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(response(RESPONSE, 600, 200));
+
+        // Act
+        List<Question> questions = claudeService.generateQuestions(2);
+
+        // Assert
+        assertEquals(2, questions.size());
+        assertEquals(Topic.PI_PLANNING_PREPARATION, questions.get(0).getTopic());
+        assertEquals(Topic.ROLES_AND_RESPONSIBILITIES, questions.get(1).getTopic());
+        TokenUsage usage = claudeService.getTokenUsage();
+        assertEquals(1, usage.getCalls());
+        assertEquals(600, usage.getInputTokens());
+        assertEquals(300.0, usage.getInputTokensPerQuestion());
+        assertEquals(100.0, usage.getOutputTokensPerQuestion());
+    }
+
+    @Test
+    void reportsTruncatedResponsesToController() {
+        // Arrange - five questions requested, two returned before the token limit
+        when(chatModel.call(any(Prompt.class))).thenReturn(response(RESPONSE, 600, 200));
+
+        // Act
+        claudeService.generateQuestions(5);
+
+        // Assert
+        assertEquals(2, generationController.getBatchSize());
+    }
+
+    @Test
+    void retriesFailedCallsThenThrowsInsteadOfReturningErrorQuestion() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenThrow(new RuntimeException("overloaded"));
+
+        // Act / Assert
+        assertThrows(ClaudeUnavailableException.class, () -> claudeService.generateQuestions(5));
+        verify(chatModel, times(2)).call(any(Prompt.class));
+    }
+
+    @Test
+    void recordsCallMetrics() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(response(RESPONSE, 600, 200))
+                .thenThrow(new RuntimeException("overloaded"));
+
+        // Act
+        claudeService.generateQuestions(5);
+        assertThrows(ClaudeUnavailableException.class, () -> claudeService.generateQuestions(5));
+
+        // Assert
+        assertEquals(1, meterRegistry.get(ClaudeService.CALLS_TIMER).tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get(ClaudeService.CALLS_TIMER).tag("outcome", "failure").timer().count());
+        assertEquals(600, meterRegistry.get(ClaudeService.TOKENS_COUNTER).tag("type", "input").counter().count());
+        assertEquals(200, meterRegistry.get(ClaudeService.TOKENS_COUNTER).tag("type", "output").counter().count());
+        assertEquals(5, meterRegistry.get(ClaudeService.QUESTIONS_REQUESTED_COUNTER).counter().count());
+        assertEquals(2, meterRegistry.get(ClaudeService.QUESTIONS_PARSED_COUNTER).counter().count());
+    }
+
+    @Test
+    void reportsBatchesToGenerationProgress() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(response(RESPONSE, 600, 200))
+                .thenThrow(new RuntimeException("overloaded"));
+
+        // Act
+        claudeService.generateQuestions(5);
+        assertThrows(ClaudeUnavailableException.class, () -> claudeService.generateQuestions(5));
+
+        // Assert
+        assertEquals(2, progress.getBatchesStarted());
+        assertEquals(1, progress.getBatchesFailed());
+        assertEquals(0, progress.getBatchesInFlight());
+        assertEquals(200, progress.getTokens());
+        assertEquals(2, progress.getQuestions());
+    }
+
+    @Test
+    void returnsEmptyListWhenResponseHasNoQuestions() {
+        // Arrange
+        when(chatModel.call(any(Prompt.class))).thenReturn(response("Sorry, I can't help with that.", 600, 10));
+
+        // Act / Assert
+        assertTrue(claudeService.generateQuestions(5).isEmpty());
+    }
+
+    private static ChatResponse response(String text, int inputTokens, int outputTokens) {
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .usage(new DefaultUsage(inputTokens, outputTokens))
+                .build();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata);
+    }
+}
@@ -0,0 +1,86 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DifficultyCalibrationTest {
+
+    @Test
+    void testDifficultyIsLearnedFromResponses() {
+        // Arrange
+        DifficultyCalibration calibration = new DifficultyCalibration();
+        Question easy = question("Who owns the team backlog?");
+        Question hard = question("Which guardrail limits portfolio spending?");
+        SplittableRandom random = new SplittableRandom(42);
+
+        // Act - candidates of normally distributed ability answer by the true 2PL model
+        for (int i = 0; i < 2000; i++) {
+            double ability = random.nextGaussian();
+            calibration.record(easy, random.nextDouble() < DifficultyCalibration.probabilityCorrect(ability, 1.0, -1.5), ability);
+            calibration.record(hard, random.nextDouble() < DifficultyCalibration.probabilityCorrect(ability, 1.0, 1.5), ability);
+        }
+
+        // Assert
+        DifficultyCalibration.ItemStatistics easyStatistics = calibration.statistics(easy);
+        DifficultyCalibration.ItemStatistics hardStatistics = calibration.statistics(hard);
+        assertEquals(2000, easyStatistics.getAttempts());
+        assertTrue(easyStatistics.getCorrect() > hardStatistics.getCorrect());
+        assertEquals(-1.5, easyStatistics.getDifficulty(), 0.5);
+        assertEquals(1.5, hardStatistics.getDifficulty(), 0.5);
+        assertEquals(2, calibration.size());
+    }
+
+    @Test
+    void testLookingUpUnansweredQuestionsDoesNotAddThem() {
+        // Arrange
+        DifficultyCalibration calibration = new DifficultyCalibration();
+        Question answered = question("Who owns the team backlog?");
+        Question unanswered = question("What is a PI?");
+
+        // Act - adaptive selection scores every candidate question before one is answered
+        calibration.statistics(unanswered).information(0.0);
+        calibration.statistics(answered);
+        calibration.record(answered, false, 2.0);
+
+        // Assert
+        assertEquals(1, calibration.size());
+        assertEquals(1, calibration.statistics(answered).getAttempts());
+        assertEquals(0, calibration.statistics(unanswered).getAttempts());
+        assertEquals(DifficultyCalibration.DEFAULT_DIFFICULTY, calibration.statistics(unanswered).getDifficulty());
+    }
+
+    @Test
+    void testInformationPeaksAtDifficulty() {
+        DifficultyCalibration.ItemStatistics statistics = new DifficultyCalibration().statistics(question("What is a PI?"));
+
+        assertEquals(0.5, statistics.probabilityCorrect(0.0), 1e-9);
+        assertEquals(0.25, statistics.information(0.0), 1e-9);
+        assertTrue(statistics.information(2.0) < statistics.information(0.0));
+        assertTrue(statistics.information(-2.0) < statistics.information(0.0));
+    }
+
+    @Test
+    void testAbilityEstimateFollowsAnswersAndNarrows() {
+        double[] discriminations = {1, 1, 1, 1, 1, 1, 1, 1};
+        double[] difficulties = {-1, -0.5, 0, 0.5, 1, 1.5, 2, 2.5};
+        boolean[] answers = {true, true, true, true, true, false, false, false};
+
+        AbilityEstimate afterTwo = AbilityEstimate.estimate(discriminations, difficulties, answers, 2);
+        AbilityEstimate afterAll = AbilityEstimate.estimate(discriminations, difficulties, answers, answers.length);
+
+        assertTrue(afterTwo.ability() > 0);
+        assertTrue(afterAll.ability() > 0.5 && afterAll.ability() < 2.0, "ability " + afterAll.ability());
+        assertTrue(afterAll.standardError() < afterTwo.standardError());
+        assertTrue(afterTwo.standardError() < AbilityEstimate.PRIOR.standardError());
+    }
+
+    private static Question question(String text) {
+        return new Question(text, List.of(new Choice("Yes", true), new Choice("No", false)), null, null);
+    }
+}
@@ -0,0 +1,240 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Choice;
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.repository.AttemptJournal;
+import co.uk.jagemtech.safepopmexam.repository.MockQuestionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExamServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ExamService examService;
+    private SimpleMeterRegistry meterRegistry;
+
+    private static AttemptJournal disabledJournal() {
+        return new AttemptJournal(false, "unused", Duration.ZERO, 1, new SimpleMeterRegistry());
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        examService = new ExamService(new MockQuestionRepository(), new DifficultyCalibration(), disabledJournal(), Duration.ofMinutes(30),
+                3, 5, 0.4, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        examService.shutdown();
+    }
+
+    @Test
+    void testSessionsAreIsolated() {
+        // Arrange
+        examService.startExam("alice", 3);
+        examService.startExam("bob", 2);
+
+        // Act - alice answers every question correctly, bob ends early, then answers after the end are rejected
+        assertFalse(examService.answer("alice", 9).accepted());
+        for (int i = 0; i < 3; i++) {
+            int correctIndex = examService.getCurrentQuestion("alice").getChoices()
+                    .indexOf(examService.getCurrentQuestion("alice").getCorrectChoice());
+            assertTrue(examService.submitAnswer("alice", correctIndex));
+        }
+        examService.endExam("bob");
+        assertFalse(examService.submitAnswer("alice", 0));
+        assertFalse(examService.submitAnswer("bob", 0));
+        assertFalse(examService.submitAnswer("nobody", 0));
+
+        // Assert
+        assertFalse(examService.isExamInProgress("alice"));
+        assertEquals(100.0, examService.getScore("alice"));
+        assertEquals(3, examService.getTotalQuestions("alice"));
+        assertFalse(examService.isExamInProgress("bob"));
+        assertEquals(2, examService.getTotalQuestions("bob"));
+        assertEquals(0, examService.getCorrectAnswers("bob"));
+        assertEquals(2, meterRegistry.get(ExamService.EXAMS_STARTED_COUNTER).counter().count());
+        assertEquals(3, meterRegistry.get(ExamService.ANSWERS_COUNTER).counter().count());
+        assertEquals(2, meterRegistry.get(ExamService.ACTIVE_SESSIONS_GAUGE).gauge().value());
+    }
+
+    @Test
+    void testConcurrentAnswersEachScoreTheirOwnQuestion() throws Exception {
+        // Arrange
+        examService.startExam("dave", 5);
+
+        // Act - five answers race for the session's five questions
+        List<Thread> threads = new ArrayList<>();
+        List<ExamSession.Answer> answers = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 5; i++) {
+            threads.add(Thread.ofVirtual().start(() -> answers.add(examService.answer("dave", 0))));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert - every question was answered once, and the score matches the answers reported
+        assertEquals(5, answers.stream().map(answer -> answer.question().getId()).distinct().count());
+        assertTrue(answers.stream().allMatch(ExamSession.Answer::accepted));
+        assertEquals(answers.stream().filter(ExamSession.Answer::correct).count(), examService.getCorrectAnswers("dave"));
+        assertFalse(examService.isExamInProgress("dave"));
+        assertNull(examService.answer("dave", 0));
+    }
+
+    @Test
+    void testQuestionAskedBeforeTheStreamIsAttachedWaitsForIt() throws Exception {
+        // Arrange - the repository is slow to hand back its stream once the exam has begun
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch attach = new CountDownLatch(1);
+        MockQuestionRepository slowRepository = new MockQuestionRepository() {
+            @Override
+            public CompletableFuture<Void> streamQuestions(int count, RandomGenerator random, Consumer<Question> consumer) {
+                streaming.countDown();
+                try {
+                    attach.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.streamQuestions(count, random, consumer);
+            }
+        };
+        ExamService slowService = new ExamService(slowRepository, new DifficultyCalibration(), disabledJournal(),
+                Duration.ofMinutes(30), 3, 5, 0.4, new SimpleMeterRegistry());
+        Thread starting = Thread.ofVirtual().start(() -> slowService.startExam("erin", 3));
+        streaming.await();
+
+        // Act - ask for the question in the window between the exam beginning and its stream attaching
+        CompletableFuture<Question> asked = CompletableFuture.supplyAsync(() -> slowService.getCurrentQuestion("erin"));
+        Thread.sleep(100);
+        attach.countDown();
+        starting.join();
+
+        // Assert
+        assertNotNull(asked.get(5, TimeUnit.SECONDS));
+        assertTrue(slowService.isExamInProgress("erin"));
+        slowService.shutdown();
+    }
+
+    @Test
+    void testExamIsLimitedToAvailableQuestions() {
+        examService.startExam("carol", 50);
+
+        assertEquals(new MockQuestionRepository().getAllQuestions().size(), examService.getTotalQuestions("carol"));
+    }
+
+    @Test
+    void testIdleSessionsExpire() {
+        // Arrange
+        ExamService shortLived = new ExamService(new MockQuestionRepository(), new DifficultyCalibration(), disabledJournal(), Duration.ZERO,
+                3, 5, 0.4, new SimpleMeterRegistry());
+        shortLived.startExam("dave", 1);
+
+        // Act
+        shortLived.expireIdleSessions();
+
+        // Assert
+        assertNull(shortLived.getSession("dave"));
+        assertFalse(shortLived.isExamInProgress("dave"));
+        shortLived.shutdown();
+    }
+
+    @Test
+    void testAdaptiveExamConvergesBeforeMaximum() {
+        // Arrange - 200 questions of known difficulty, calibrated from earlier candidates
+        Map<Question, Double> trueDifficulty = new HashMap<>();
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Question question = new Question("Question " + i,
+                    List.of(new Choice("Right", true), new Choice("Wrong", false)), null, null);
+            questions.add(question);
+            trueDifficulty.put(question, -3 + 6.0 * i / 199);
+        }
+        DifficultyCalibration calibration = new DifficultyCalibration();
+        SplittableRandom random = new SplittableRandom(7);
+        for (Question question : questions) {
+            for (int i = 0; i < 100; i++) {
+                double ability = random.nextDouble(-3, 3);
+                calibration.record(question, ability > trueDifficulty.get(question), ability);
+            }
+        }
+        ExamService adaptiveService = new ExamService(() -> questions, calibration, disabledJournal(), Duration.ofMinutes(30),
+                3, 5, 0.5, new SimpleMeterRegistry());
+
+        // Act - a strong candidate answers every question easier than their ability
+        double trueAbility = 1.0;
+        ExamSession session = adaptiveService.startAdaptiveExam("erin", 40);
+        Question question;
+        while ((question = session.getCurrentQuestion()) != null) {
+            session.submitAnswer(trueDifficulty.get(question) < trueAbility ? 0 : 1);
+        }
+
+        // Assert
+        assertTrue(session.isAdaptive());
+        assertFalse(session.isExamInProgress());
+        assertTrue(session.getTotalQuestions() < 40, "asked " + session.getTotalQuestions());
+        assertTrue(session.getTotalQuestions() >= 5);
+        assertTrue(session.getAbilityEstimate().standardError() <= 0.5);
+        assertEquals(trueAbility, session.getAbilityEstimate().ability(), 0.75);
+        adaptiveService.shutdown();
+    }
+
+    @Test
+    void testExamResumesFromJournalAfterRestart() {
+        // Arrange - answer two questions, then stop without ending the exam
+        Path path = tempDir.resolve("attempts.journal");
+        AttemptJournal journal = new AttemptJournal(true, path.toString(), Duration.ofMillis(10), 1024, new SimpleMeterRegistry());
+        ExamService before = new ExamService(new MockQuestionRepository(), new DifficultyCalibration(), journal,
+                Duration.ofMinutes(30), 3, 5, 0.4, new SimpleMeterRegistry());
+        before.startExam("frank", 4);
+        Question first = before.getCurrentQuestion("frank");
+        before.submitAnswer("frank", first.getCorrectIndex());
+        Question second = before.getCurrentQuestion("frank");
+        before.submitAnswer("frank", (second.getCorrectIndex() + 1) % second.getChoices().size());
+        Question third = before.getCurrentQuestion("frank");
+        before.shutdown();
+        journal.close();
+
+        // Act
+        AttemptJournal reopened = new AttemptJournal(true, path.toString(), Duration.ofMillis(10), 1024, new SimpleMeterRegistry());
+        DifficultyCalibration calibration = new DifficultyCalibration();
+        ExamService after = new ExamService(new MockQuestionRepository(), calibration, reopened,
+                Duration.ofMinutes(30), 3, 5, 0.4, new SimpleMeterRegistry());
+        after.recover();
+
+        // Assert
+        assertEquals(List.of("frank"), after.getResumableSessionIds());
+        assertEquals(2, calibration.size());
+        assertEquals(1, calibration.statistics(first).getCorrect());
+        ExamSession resumed = after.resumeExam("frank");
+        assertNotNull(resumed);
+        assertTrue(resumed.isExamInProgress());
+        assertEquals(3, resumed.getCurrentQuestionNumber());
+        assertEquals(1, resumed.getCorrectAnswers());
+        assertEquals(third.getText(), resumed.getCurrentQuestion().getText());
+        assertEquals(4, resumed.getTotalQuestions());
+        after.shutdown();
+        reopened.close();
+    }
+}
@@ -0,0 +1,61 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationControllerTest {
+
+    private static final Duration FAST = Duration.ofSeconds(5);
+
+    private final GenerationController controller = new GenerationController(5, 8, 400, 8192, Duration.ofSeconds(30));
+
+    @Test
+    void growsBatchSizeAdditivelyUpToMaximum() {
+        for (int call = 0; call < 5; call++) {
+            int batchSize = controller.getBatchSize();
+            controller.record(batchSize, batchSize, batchSize * 200L, FAST, false);
+        }
+
+        assertEquals(8, controller.getBatchSize());
+    }
+
+    @Test
+    void halvesBatchSizeWhenTruncatedOrSlow() {
+        controller.record(5, 3, 600, FAST, false);
+        assertEquals(2, controller.getBatchSize());
+
+        controller.record(2, 2, 400, Duration.ofSeconds(45), false);
+        assertEquals(1, controller.getBatchSize());
+
+        controller.record(1, 0, 0, FAST, true);
+        assertEquals(1, controller.getBatchSize());
+    }
+
+    @Test
+    void sizesTokenLimitFromObservedOutput() {
+        assertEquals(3000, controller.maxTokensFor(5));
+
+        // Converges on 200 tokens per question
+        for (int call = 0; call < 30; call++) {
+            controller.record(5, 5, 1000, FAST, false);
+        }
+        assertEquals(200, controller.getTokensPerQuestion(), 1.0);
+        assertEquals(1500, controller.maxTokensFor(5), 10);
+
+        // Hitting the limit raises the estimate at once
+        controller.record(5, 4, 1000, FAST, true);
+        assertTrue(controller.maxTokensFor(5) > 1800);
+        assertEquals(8192, controller.maxTokensFor(1000));
+        assertEquals(512, controller.maxTokensFor(0));
+    }
+
+    @Test
+    void doesNotGrowOnSmallRequests() {
+        controller.record(2, 2, 400, FAST, false);
+
+        assertEquals(5, controller.getBatchSize());
+    }
+}
@@ -0,0 +1,88 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuestionJsonExtractorTest {
+
+    private static final String QUESTION = """
+        {
+          "text": "What is the purpose of PI Planning?",
+          "choices": [
+            {"text": "Align teams to a mission", "correct": true},
+            {"text": "Write a budget", "correct": false}
+          ],
+          "explanation": "PI Planning aligns teams."
+        }""";
+
+    private QuestionJsonExtractor extractor;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        extractor = new QuestionJsonExtractor(objectMapper);
+    }
+
+    private List<ClaudeService.QuestionDTO> extract(String content) {
+        List<ClaudeService.QuestionDTO> questions = new ArrayList<>();
+        int count = extractor.extract(content, questions::add);
+        assertEquals(questions.size(), count);
+        return questions;
+    }
+
+    @Test
+    void testFencedResponseWithSurroundingProse() {
+        String content = "Here are [2] questions:\n```json\n[" + QUESTION + ",\n" + QUESTION + "]\n```\nLet me know!";
+
+        List<ClaudeService.QuestionDTO> questions = extract(content);
+
+        assertEquals(2, questions.size());
+        assertEquals("What is the purpose of PI Planning?", questions.get(0).getText());
+    }
+
+    @Test
+    void testTrailingCommasAndRawNewlinesAreRepaired() {
+        String content = "[" + QUESTION.replace("\"Write a budget\", \"correct\": false}", "\"Write a\nbudget\", \"correct\": false},")
+                + ",\n]";
+
+        List<ClaudeService.QuestionDTO> questions = extract(content);
+
+        assertEquals(1, questions.size());
+        assertEquals("Write a budget", questions.get(0).getChoices().get(1).getText());
+    }
+
+    @Test
+    void testTruncatedResponseKeepsCompleteQuestions() {
+        String content = "[" + QUESTION + ",\n" + QUESTION.substring(0, QUESTION.indexOf("Align teams") + 5);
+
+        List<ClaudeService.QuestionDTO> questions = extract(content);
+
+        assertEquals(1, questions.size());
+    }
+
+    @Test
+    void testUnknownFieldsAndSingleQuotesAreAccepted() {
+        String content = "[" + QUESTION.replace("\"explanation\"", "'difficulty': 'easy', \"explanation\"") + "]";
+
+        List<ClaudeService.QuestionDTO> questions = extract(content);
+
+        assertEquals(1, questions.size());
+        assertEquals("PI Planning aligns teams.", questions.get(0).getExplanation());
+    }
+
+    @Test
+    void testResponseWithoutJsonYieldsNothing() {
+        assertTrue(extract("I'm sorry, I can't help with that.").isEmpty());
+        assertTrue(extract("").isEmpty());
+    }
+}
@@ -0,0 +1,201 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.Question;
+import co.uk.jagemtech.safepopmexam.model.SourceChunk;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import co.uk.jagemtech.safepopmexam.repository.SourceChunkStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.anthropic.AnthropicChatOptions;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RecordingChatModelTest {
+
+    private static final String RESPONSE = """
+            [{"text":"What is the purpose of PI Planning?","choices":[{"text":"Alignment","correct":true},\
+            {"text":"Budgeting","correct":false}],"explanation":"Aligns teams","topic":"5.2"}]
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordedResponseWithoutCallingModel() {
+        // Arrange
+        ChatModel claude = mock(ChatModel.class);
+        when(claude.call(any(Prompt.class))).thenReturn(response(RESPONSE));
+        Prompt prompt = QuestionPrompt.forBatch(1, 600);
+        new RecordingChatModel(claude, RecordingChatModel.Mode.RECORD, directory).call(prompt);
+
+        ChatModel offline = mock(ChatModel.class);
+        when(offline.call(any(Prompt.class))).thenThrow(new IllegalStateException("no network"));
+        RecordingChatModel replay = new RecordingChatModel(offline, RecordingChatModel.Mode.REPLAY, directory);
+
+        // Act
+        ChatResponse replayed = replay.call(QuestionPrompt.forBatch(1, 600));
+
+        // Assert
+        assertEquals(RESPONSE, replayed.getResult().getOutput().getText());
+        assertEquals("end_turn", replayed.getResult().getMetadata().getFinishReason());
+        assertEquals(600, replayed.getMetadata().getUsage().getPromptTokens());
+        verify(offline, never()).call(any(Prompt.class));
+    }
+
+    @Test
+    void replaysStreamedRecordingAndFailsForUnknownPrompt() {
+        // Arrange - record a response streamed in two chunks
+        ChatModel claude = mock(ChatModel.class);
+        String firstHalf = RESPONSE.substring(0, 40);
+        when(claude.stream(any(Prompt.class))).thenReturn(Flux.just(
+                new ChatResponse(List.of(new Generation(new AssistantMessage(firstHalf)))),
+                response(RESPONSE.substring(40))));
+        new RecordingChatModel(claude, RecordingChatModel.Mode.RECORD, directory)
+                .stream(QuestionPrompt.forBatch(1, 600)).blockLast();
+        RecordingChatModel replay = new RecordingChatModel(mock(ChatModel.class), RecordingChatModel.Mode.REPLAY, directory);
+
+        // Act
+        String replayed = replay.stream(QuestionPrompt.forBatch(1, 600))
+                .map(response -> response.getResult().getOutput().getText())
+                .reduce(String::concat)
+                .block();
+
+        // Assert
+        assertEquals(RESPONSE, replayed);
+        assertThrows(ClaudeUnavailableException.class, () -> replay.call(QuestionPrompt.forBatch(1, 900)));
+    }
+
+    @Test
+    void fingerprintCoversMessagesAndOptions() {
+        RecordingChatModel model = new RecordingChatModel(mock(ChatModel.class), RecordingChatModel.Mode.REPLAY, directory);
+
+        String fingerprint = model.fingerprint(QuestionPrompt.forBatch(5, 3000));
+
+        assertEquals(fingerprint, model.fingerprint(QuestionPrompt.forBatch(5, 3000)));
+        assertNotEquals(fingerprint, model.fingerprint(QuestionPrompt.forBatch(4, 3000)));
+        assertNotEquals(fingerprint, model.fingerprint(QuestionPrompt.forBatch(5, 2000)));
+        assertNotEquals(fingerprint, model.fingerprint(new Prompt(QuestionPrompt.forBatch(5, 3000).getInstructions(),
+                AnthropicChatOptions.builder().maxTokens(3000).temperature(0.2).build())));
+    }
+
+    @Test
+    void generationPipelineRunsOfflineFromRecordings() {
+        // Arrange - record a run, then replay it with no model behind the cache
+        ChatModel claude = mock(ChatModel.class);
+        when(claude.call(any(Prompt.class))).thenReturn(response(RESPONSE));
+        ClaudeService recording = claudeService(new RecordingChatModel(claude, RecordingChatModel.Mode.RECORD, directory));
+        recording.generateQuestions(1);
+        recording.generateQuestions(1);
+
+        ClaudeService offline = claudeService(
+                new RecordingChatModel(mock(ChatModel.class), RecordingChatModel.Mode.REPLAY, directory));
+
+        // Act
+        List<Question> first = offline.generateQuestions(1);
+        List<Question> second = offline.generateQuestions(1);
+
+        // Assert
+        assertEquals(1, first.size());
+        assertEquals("What is the purpose of PI Planning?", first.get(0).getText());
+        assertEquals(first.get(0).getText(), second.get(0).getText());
+    }
+
+    @Test
+    void replaysWithoutBuildingModelWhateverTheTokenLimitHasLearned() {
+        // Arrange - record with a fresh controller, replay with one that has learned a different limit
+        ChatModel claude = mock(ChatModel.class);
+        when(claude.call(any(Prompt.class))).thenReturn(response(RESPONSE));
+        ChatOptions configured = AnthropicChatOptions.builder().model("claude-3-sonnet-20240229").maxTokens(4000).build();
+        claudeService(new RecordingChatModel(() -> claude, configured, RecordingChatModel.Mode.RECORD, directory),
+                new GenerationController(5, 5, 400, 8192, Duration.ofSeconds(30))).generateQuestions(3);
+
+        RecordingChatModel replay = new RecordingChatModel(() -> {
+            throw new IllegalStateException("ANTHROPIC_API_KEY is not set");
+        }, configured, RecordingChatModel.Mode.REPLAY, directory);
+        ClaudeService offline = claudeService(replay, new GenerationController(5, 5, 900, 8192, Duration.ofSeconds(30)));
+
+        // Act
+        List<Question> replayed = offline.generateQuestions(3);
+
+        // Assert
+        assertEquals(1, replayed.size());
+        assertSame(configured, replay.getDefaultOptions());
+    }
+
+    @Test
+    void replaysPromptsGroundedInIngestedSources() {
+        // Arrange - record a run whose prompts carry course extracts, then replay it
+        SourceChunkStore sources = new SourceChunkStore(true, directory.resolve("sources.bank").toString());
+        List<SourceChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            chunks.add(new SourceChunk("course.txt", Topic.values()[i % Topic.values().length],
+                    "Extract " + i + " of the course material about the Agile Release Train"));
+        }
+        sources.append(chunks);
+        ChatModel claude = mock(ChatModel.class);
+        when(claude.call(any(Prompt.class))).thenReturn(response(RESPONSE));
+        claudeService(new RecordingChatModel(claude, RecordingChatModel.Mode.RECORD, directory), sources, 2)
+                .generateQuestions(1);
+
+        ClaudeService offline = claudeService(
+                new RecordingChatModel(mock(ChatModel.class), RecordingChatModel.Mode.REPLAY, directory), sources, 2);
+
+        // Act
+        List<Question> replayed = offline.generateQuestions(1);
+
+        // Assert
+        ArgumentCaptor<Prompt> recorded = ArgumentCaptor.forClass(Prompt.class);
+        verify(claude).call(recorded.capture());
+        assertTrue(recorded.getValue().getContents().contains("Extract "));
+        assertEquals(1, replayed.size());
+        assertEquals("What is the purpose of PI Planning?", replayed.get(0).getText());
+        sources.close();
+    }
+
+    private static ClaudeService claudeService(ChatModel chatModel) {
+        return claudeService(chatModel, new SourceChunkStore(false, "unused"), 0);
+    }
+
+    private static ClaudeService claudeService(ChatModel chatModel, GenerationController generationController) {
+        return claudeService(chatModel, generationController, new SourceChunkStore(false, "unused"), 0);
+    }
+
+    private static ClaudeService claudeService(ChatModel chatModel, SourceChunkStore sources, int sourcesPerPrompt) {
+        return claudeService(chatModel, new GenerationController(5, 5, 400, 8192, Duration.ofSeconds(30)), sources,
+                sourcesPerPrompt);
+    }
+
+    private static ClaudeService claudeService(ChatModel chatModel, GenerationController generationController,
+                                               SourceChunkStore sources, int sourcesPerPrompt) {
+        return new ClaudeService(chatModel, generationController,
+                new ResilientChatCaller(Duration.ofSeconds(5), 1, Duration.ofMillis(1), Duration.ofMillis(5),
+                        false, Duration.ofSeconds(5), 5, Duration.ofSeconds(30)), new SimpleMeterRegistry(),
+                sources, new GenerationProgress(new SimpleMeterRegistry()), sourcesPerPrompt);
+    }
+
+    private static ChatResponse response(String text) {
+        ChatGenerationMetadata generationMetadata = ChatGenerationMetadata.builder().finishReason("end_turn").build();
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder().usage(new DefaultUsage(600, 150)).build();
+        return new ChatResponse(new ArrayList<>(List.of(new Generation(new AssistantMessage(text), generationMetadata))),
+                metadata);
+    }
+}
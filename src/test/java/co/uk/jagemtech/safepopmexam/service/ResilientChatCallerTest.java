@@ -0,0 +1,91 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientChatCallerTest {
+
+    private ResilientChatCaller caller;
+
+    @AfterEach
+    void tearDown() {
+        caller.shutdown();
+    }
+
+    @Test
+    void retriesWithBackoffUntilSuccess() {
+        caller = caller(3, false, Duration.ofSeconds(5), 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = caller.call(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("overloaded");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(ResilientChatCaller.CircuitState.CLOSED, caller.getState());
+    }
+
+    @Test
+    void opensCircuitAfterRepeatedFailuresAndFailsFast() {
+        caller = caller(1, false, Duration.ofSeconds(5), 2);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ClaudeUnavailableException.class, () -> caller.call(() -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("down");
+            }));
+        }
+        assertThrows(ClaudeUnavailableException.class, () -> caller.call(() -> calls.incrementAndGet()));
+
+        assertEquals(ResilientChatCaller.CircuitState.OPEN, caller.getState());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void hedgedRequestAnswersWhenFirstIsSlow() throws InterruptedException {
+        caller = caller(1, true, Duration.ofMillis(50), 5);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch never = new CountDownLatch(1);
+
+        String result = caller.call(() -> {
+            if (calls.incrementAndGet() == 1) {
+                never.await();
+                return "slow";
+            }
+            return "hedged";
+        });
+
+        assertEquals("hedged", result);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void abandonsCallsThatMissTheDeadline() {
+        caller = new ResilientChatCaller(Duration.ofMillis(100), 1, Duration.ofMillis(1), Duration.ofMillis(5),
+                false, Duration.ofSeconds(5), 5, Duration.ofSeconds(30));
+
+        long started = System.nanoTime();
+        assertThrows(ClaudeUnavailableException.class, () -> caller.call(() -> {
+            Thread.sleep(10_000);
+            return "late";
+        }));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 5_000);
+    }
+
+    private static ResilientChatCaller caller(int maxAttempts, boolean hedging, Duration hedgeDelay, int failureThreshold) {
+        return new ResilientChatCaller(Duration.ofSeconds(5), maxAttempts, Duration.ofMillis(1), Duration.ofMillis(5),
+                hedging, hedgeDelay, failureThreshold, Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,126 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import co.uk.jagemtech.safepopmexam.model.SourceChunk;
+import co.uk.jagemtech.safepopmexam.model.Topic;
+import co.uk.jagemtech.safepopmexam.repository.SourceChunkStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceIngesterTest {
+
+    private static final String PARAGRAPH = "Product Owners and Product Managers collaborate to define and prioritise "
+            + "the work of the Agile Release Train so that it delivers the most value.\n\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void chunksFilesBySyllabusHeadingIntoStore() throws IOException {
+        // Arrange
+        Path course = Files.createDirectories(directory.resolve("course"));
+        Files.writeString(course.resolve("lesson-1.txt"), "Lesson 1: Exploring the Product Owner/Product Manager Roles\n\n"
+                + PARAGRAPH.repeat(20));
+        Files.writeString(course.resolve("lesson-2.txt"), "Introduction\n" + PARAGRAPH
+                + "5.2 PI Planning Preparation\n" + PARAGRAPH.repeat(3));
+        Files.writeString(course.resolve("notes.md"), "Not course text");
+        SourceChunkStore store = new SourceChunkStore(true, directory.resolve("sources.bank").toString());
+        SourceIngester ingester = new SourceIngester(store, 1000, 2);
+
+        // Act
+        IngestResult result = ingester.ingest(course);
+
+        // Assert
+        assertEquals(2, result.files());
+        assertEquals(0, result.failedFiles());
+        assertEquals(1, result.untaggedChunks());
+        assertEquals(1, result.chunksByTopic().get(Topic.PI_PLANNING_PREPARATION));
+        assertTrue(result.chunksByTopic().get(Topic.ROLES_AND_RESPONSIBILITIES) >= 3);
+        assertEquals(result.chunks(), store.size());
+        for (int i = 0; i < store.size(); i++) {
+            SourceChunk chunk = store.get(i);
+            assertTrue(chunk.text().length() <= 2000, "chunk " + i + " is " + chunk.text().length() + " characters");
+            if (chunk.topic() == Topic.PI_PLANNING_PREPARATION) {
+                assertEquals("lesson-2.txt", chunk.source());
+                assertTrue(chunk.text().startsWith("5.2 PI Planning Preparation"));
+            }
+        }
+        store.close();
+    }
+
+    @Test
+    void readsLinesLongerThanTheBufferInParts() throws IOException {
+        // Arrange - PDF extraction can leave a whole document on one line
+        String wall = "word ".repeat(20_000).strip();
+        Path file = Files.writeString(directory.resolve("wall.txt"), "Lesson 5: Executing the PI\r\n" + wall + "\r\n"
+                + "5.4 Iteration Execution\n" + PARAGRAPH);
+        SourceChunkStore store = new SourceChunkStore(true, directory.resolve("sources.bank").toString());
+        SourceIngester ingester = new SourceIngester(store, 1000, 1);
+
+        // Act
+        IngestResult result = ingester.ingest(file);
+
+        // Assert
+        assertEquals(1, result.files());
+        assertEquals(1, result.chunksByTopic().get(Topic.ITERATION_EXECUTION));
+        StringBuilder read = new StringBuilder();
+        for (int i = 0; i < store.size(); i++) {
+            SourceChunk chunk = store.get(i);
+            assertTrue(chunk.text().length() <= 2000, "chunk " + i + " is " + chunk.text().length() + " characters");
+            if (chunk.topic() == Topic.PI_EXECUTION) {
+                read.append(chunk.text().replace("Lesson 5: Executing the PI", "").replaceAll("\\s", ""));
+            }
+        }
+        // Every word arrives in order, apart from a tail too short to make a chunk of its own
+        String words = wall.replace(" ", "");
+        assertTrue(words.startsWith(read.toString()));
+        assertTrue(read.length() > words.length() - 40, read.length() + " of " + words.length() + " characters");
+        store.close();
+    }
+
+    @Test
+    void storeReopensAndDropsTornRecord() throws IOException {
+        // Arrange
+        Path path = directory.resolve("sources.bank");
+        SourceChunkStore store = new SourceChunkStore(true, path.toString());
+        store.append(List.of(new SourceChunk("a.txt", Topic.PI_EXECUTION, "First chunk of course text"),
+                new SourceChunk("a.txt", null, "Second chunk of course text")));
+        store.close();
+        long intact = Files.size(path);
+        // Simulate a crash part way through appending a third chunk
+        Files.write(path, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 0, 1, 2}, StandardOpenOption.APPEND);
+
+        // Act
+        SourceChunkStore reopened = new SourceChunkStore(true, path.toString());
+
+        // Assert
+        assertEquals(2, reopened.size());
+        assertEquals(intact, Files.size(path));
+        assertEquals(Topic.PI_EXECUTION, reopened.get(0).topic());
+        assertNull(reopened.get(1).topic());
+        assertEquals("Second chunk of course text", reopened.get(1).text());
+        reopened.close();
+    }
+
+    @Test
+    void cutsTextWithoutParagraphBreaksAtHardLimit() {
+        List<SourceChunk> chunks = new ArrayList<>();
+        SyllabusChunker chunker = new SyllabusChunker("wall.txt", 100, chunks::add);
+
+        chunker.accept("x".repeat(450));
+        chunker.finish();
+
+        assertEquals(3, chunks.size());
+        assertTrue(chunks.stream().allMatch(chunk -> chunk.text().length() <= 200));
+        assertEquals(Topic.LEADERSHIP_FOR_PI_PLANNING, SyllabusChunker.headingTopic("LESSON 3 Leading PI Planning"));
+        assertNull(SyllabusChunker.headingTopic("In 5.2 million cases the train delivered value."));
+    }
+}
@@ -0,0 +1,73 @@
+package co.uk.jagemtech.safepopmexam.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingQuestionParserTest {
+
+    private static final String RESPONSE = """
+        ```json
+        [
+          {
+            "text": "What is the purpose of PI Planning?",
+            "choices": [
+              {"text": "Align teams {to} a mission", "correct": true},
+              {"text": "Write a budget", "correct": false}
+            ],
+            "explanation": "PI Planning aligns \\"teams\\"."
+          },
+          {
+            "text": "Who owns the Team Backlog?",
+            "choices": [
+              {"text": "Product Owner", "correct": true},
+              {"text": "RTE", "correct": false}
+            ],
+            "explanation": "The PO owns it."
+          }
+        ]
+        ```
+        """;
+
+    @Test
+    void testQuestionsAreEmittedAsSoonAsTheyClose() {
+        // Arrange
+        List<ClaudeService.QuestionDTO> emitted = new ArrayList<>();
+        StreamingQuestionParser parser = new StreamingQuestionParser(new ObjectMapper(), emitted::add);
+        int firstQuestionEnd = RESPONSE.indexOf("},\n  {") + 1;
+
+        // Act - feed the response in small chunks, as a token stream would
+        int emittedAfterFirstQuestion = -1;
+        for (int i = 0; i < RESPONSE.length(); i += 7) {
+            parser.accept(RESPONSE.substring(i, Math.min(i + 7, RESPONSE.length())));
+            if (emittedAfterFirstQuestion < 0 && i + 7 >= firstQuestionEnd) {
+                emittedAfterFirstQuestion = emitted.size();
+            }
+        }
+
+        // Assert
+        assertEquals(1, emittedAfterFirstQuestion);
+        assertEquals(2, emitted.size());
+        assertEquals("What is the purpose of PI Planning?", emitted.get(0).getText());
+        assertEquals("Align teams {to} a mission", emitted.get(0).getChoices().get(0).getText());
+        assertEquals("PI Planning aligns \"teams\".", emitted.get(0).getExplanation());
+        assertTrue(emitted.get(1).getChoices().get(0).isCorrect());
+    }
+
+    @Test
+    void testIncompleteQuestionIsNotEmitted() {
+        // Arrange
+        List<ClaudeService.QuestionDTO> emitted = new ArrayList<>();
+        StreamingQuestionParser parser = new StreamingQuestionParser(new ObjectMapper(), emitted::add);
+
+        // Act - response cut off part way through the second question
+        parser.accept(RESPONSE.substring(0, RESPONSE.indexOf("Who owns")));
+
+        // Assert
+        assertEquals(1, emitted.size());
+    }
+}
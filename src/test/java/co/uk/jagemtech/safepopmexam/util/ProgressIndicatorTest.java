@@ -0,0 +1,107 @@
+package co.uk.jagemtech.safepopmexam.util;
+
+import co.uk.jagemtech.safepopmexam.service.GenerationProgress;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressIndicatorTest {
+
+    private final GenerationProgress progress = new GenerationProgress(new SimpleMeterRegistry());
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final ProgressIndicator indicator = new ProgressIndicator(new PrintStream(output, true, StandardCharsets.US_ASCII),
+            progress, Duration.ofHours(1), Duration.ofSeconds(10));
+
+    @AfterEach
+    void close() {
+        indicator.close();
+    }
+
+    @Test
+    void showsOnlyTheSpinnerUntilGenerationStarts() {
+        // Arrange
+        indicator.start("Preparing questions...");
+
+        // Act
+        int length = indicator.render(System.nanoTime());
+
+        // Assert
+        String frame = indicator.frame(length);
+        assertTrue(frame.matches("Preparing questions\\.\\.\\. [|/\\\\-]"), frame);
+    }
+
+    @Test
+    void showsPipelineThroughputEtaAndStalls() {
+        // Arrange - 10 questions wanted, after 2 seconds one batch has produced 4 of them
+        indicator.start("Generating", 10);
+        long started = System.nanoTime();
+        GenerationProgress.Batch done = progress.batchStarted();
+        done.tokens(400);
+        done.parsing();
+        done.parsed(4);
+        done.finish(true);
+        progress.batchStarted().received();
+        progress.batchStarted();
+
+        // Act
+        int length = indicator.render(started + Duration.ofSeconds(2).toNanos());
+
+        // Assert
+        String frame = indicator.frame(length);
+        assertTrue(frame.contains("4/10 questions | 2 in flight (1 waiting, 1 receiving, 0 parsing)"), frame);
+        assertTrue(frame.contains("400 tok, 19"), frame);
+        assertTrue(frame.contains("ETA 3s"), frame);
+        assertFalse(frame.contains("no data"), frame);
+        assertTrue(indicator.frame(indicator.render(progress.getLastActivityNanos() + Duration.ofSeconds(12).toNanos()))
+                .endsWith("no data for 12s"));
+    }
+
+    @Test
+    void clearsTheLineWhenStopped() {
+        // Arrange
+        progress.batchStarted();
+        indicator.start("Generating", 10);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (output.size() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        // Act
+        indicator.stop();
+
+        // Assert
+        String written = output.toString(StandardCharsets.US_ASCII);
+        assertTrue(written.startsWith("\rGenerating |  0/10 questions"), written);
+        assertTrue(written.endsWith(" ".repeat(10) + "\r"), written);
+    }
+
+    @Test
+    void drawsFramesWithoutAllocating() {
+        // Arrange
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        indicator.start("Generating", 100);
+        progress.batchStarted().parsed(3);
+        long now = System.nanoTime();
+        for (int i = 0; i < 20_000; i++) {
+            indicator.render(now + i);
+        }
+
+        // Act
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            indicator.render(now + i);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Assert - allow for the allocation counter's own bookkeeping
+        assertTrue(allocated < 10_000, "Allocated " + allocated + " bytes for 10,000 frames");
+    }
+}
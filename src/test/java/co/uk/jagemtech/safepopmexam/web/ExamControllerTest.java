@@ -0,0 +1,79 @@
+package co.uk.jagemtech.safepopmexam.web;
+
+import co.uk.jagemtech.safepopmexam.service.ClaudeService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+    "spring.shell.interactive.enabled=false",
+    "spring.shell.command.script.enabled=false",
+    "spring.main.web-application-type=servlet",
+    "popm.store.enabled=false",
+    "popm.replenish.enabled=false",
+    "popm.journal.enabled=false"
+})
+@AutoConfigureMockMvc
+public class ExamControllerTest {
+
+    // Claude is unavailable, so exams fall back to the mock questions
+    @MockBean
+    private ClaudeService claudeService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testExamLifecycle() throws Exception {
+        // Start
+        String started = mockMvc.perform(post("/api/exams").param("numberOfQuestions", "2"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.question.number").value(1))
+                .andExpect(jsonPath("$.question.totalQuestions").value(2))
+                .andExpect(jsonPath("$.question.choices.length()").value(4))
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(started).get("sessionId").asText();
+
+        // Current question
+        mockMvc.perform(get("/api/exams/{id}/question", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.number").value(1));
+
+        // Invalid answer
+        mockMvc.perform(post("/api/exams/{id}/answers", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"choice\": 9}"))
+                .andExpect(status().isBadRequest());
+
+        // Answer
+        String answered = mockMvc.perform(post("/api/exams/{id}/answers", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"choice\": 1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextQuestion.number").value(2))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode score = objectMapper.readTree(answered).get("score");
+
+        // End
+        mockMvc.perform(delete("/api/exams/{id}", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.correctAnswers").value(score.get("correctAnswers").asInt()))
+                .andExpect(jsonPath("$.examInProgress").value(false));
+    }
+
+    @Test
+    void testUnknownSession() throws Exception {
+        mockMvc.perform(get("/api/exams/{id}/question", "missing"))
+                .andExpect(status().isNotFound());
+    }
+}